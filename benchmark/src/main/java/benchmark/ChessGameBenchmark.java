@@ -0,0 +1,138 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveList;
+import chess.Perft;
+
+/**
+ * Measures the ChessGame operations the server runs for every request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    // Ruy Lopez, ending with white castling king side
+    private static final int[][] OPENING_LINE = {
+        {2, 5, 4, 5}, {7, 5, 5, 5}, {1, 7, 3, 6}, {8, 2, 6, 3}, {1, 6, 5, 2},
+        {7, 1, 6, 1}, {5, 2, 4, 1}, {8, 7, 6, 6}, {1, 5, 1, 7}, {8, 6, 7, 5},
+    };
+
+    @Param({"INITIAL", "KIWIPETE", "POSITION_4"})
+    public Perft.Position position;
+
+    private ChessGame game;
+    private List<ChessPosition> pieces;
+    private List<ChessMove> openingLine;
+    private Gson gson;
+    private String json;
+    private MoveList moveList;
+
+    @Setup
+    public void setup() {
+        this.game = position.createGame();
+        this.pieces = new ArrayList<>(game.findAllPositionsOfPieces(game.getBoard(), game.getTeamTurn()));
+        this.openingLine = new ArrayList<>();
+        for (int[] move : OPENING_LINE) {
+            openingLine.add(new ChessMove(new ChessPosition(move[0], move[1]), new ChessPosition(move[2], move[3]), null));
+        }
+        this.gson = new Gson();
+        this.json = gson.toJson(game);
+        this.moveList = new MoveList();
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition piece : pieces) {
+            blackhole.consume(game.validMoves(piece));
+        }
+    }
+
+    @Benchmark
+    public Collection<ChessMove> legalMoves() {
+        return game.legalMoves(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        moveList.clear();
+        game.generateLegalMoves(moveList);
+        return moveList.size();
+    }
+
+    /**
+     * Tests a fresh copy of the game, since the game caches its status and asking
+     * the same game again would only measure the cache. Subtract {@link #copy()}
+     * for the cost of the test itself.
+     */
+    @Benchmark
+    public boolean isInCheckmate() {
+        ChessGame uncached = game.copy();
+        return uncached.isInCheckmate(uncached.getTeamTurn());
+    }
+
+    @Benchmark
+    public ChessGame copy() {
+        return game.copy();
+    }
+
+    @Benchmark
+    public ChessBoard deepCopy() {
+        return ChessBoard.deepCopy(game.getBoard());
+    }
+
+    /**
+     * Plays a fixed ten move opening on a new game, so each move pays for
+     * validation and the checkmate and stalemate tests that follow it
+     */
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        ChessGame newGame = new ChessGame();
+        for (ChessMove move : openingLine) {
+            newGame.makeMove(move);
+        }
+        return newGame;
+    }
+
+    @Benchmark
+    public String gsonSerialize() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gsonRoundTrip() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame gsonDeserialize() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.ChessGame;
+import chess.Perft;
+
+/**
+ * Runs perft on the standard positions and reports leaf nodes per second.
+ * The node count is checked against the published value before measuring,
+ * so a faster but wrong move generator fails instead of posting a number.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param({"INITIAL", "KIWIPETE", "POSITION_3", "POSITION_4", "POSITION_5", "POSITION_6"})
+    public Perft.Position position;
+
+    @Param({"3"})
+    public int depth;
+
+    private ChessGame game;
+
+    /**
+     * Reported by JMH as a rate alongside the perft calls per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        this.game = position.createGame();
+
+        long nodes = Perft.perft(game, depth);
+        if (nodes != position.getExpectedNodes(depth)) {
+            throw new IllegalStateException("perft(%d) of %s was %d, expected %d".formatted(
+                    depth, position, nodes, position.getExpectedNodes(depth)));
+        }
+    }
+
+    @Benchmark
+    public long perft(Nodes counter) {
+        long nodes = Perft.perft(game, depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
@@ -7,6 +7,7 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.GameStatus;
 import exceptions.ResponseException;
 import chess.ChessGame.TeamColor;
 import chess.ChessPiece.PieceType;
@@ -307,10 +308,11 @@ public class GameClient implements Client, ServerMessageObserver {
         System.out.println();
 
         if (game.getGameOver()) {
-            if (game.isInStalemate(game.getTeamTurn())) {
+            GameStatus status = game.getStatus();
+            if (status == GameStatus.STALEMATE) {
                 System.out.println("THE GAME ENDED IN STALEMATE");
             }
-            else if (game.isInCheckmate(game.getTeamTurn())) {
+            else if (status == GameStatus.CHECKMATE) {
                 TeamColor winningTeam = game.getTeamTurn() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
                 if (isObserving) {
                     System.out.println("CHECKMATE: %S WON.".formatted(winningTeam));
@@ -61,7 +61,7 @@ public class PrintUtilities {
             for (int j = 0; j < 8; j++) {
                 int row = color == TeamColor.WHITE ? 9 - (i + 1) : i + 1;
                 int col = color == TeamColor.WHITE ? j + 1 : 9 - (j + 1);
-                ChessPosition position = new ChessPosition(row, col);
+                ChessPosition position = ChessPosition.of(row, col);
                 String squareColor = getSquareColor(position, game, color, selectedPosition);
                 drawSquare(squareColor, color, game.getBoard().getPiece(position));
             }
@@ -0,0 +1,390 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * Opening a MySQL connection costs a TCP and authentication handshake, which is
+ * more than most queries take, so connections are kept open and lent out again.
+ * A borrowed connection is a proxy whose {@code close()} gives the connection back,
+ * so code that closes connections with try-with-resources uses the pool without
+ * knowing it. Connections that sat idle for a while are checked before they are
+ * lent out, and connections idle past the idle timeout are closed down to the
+ * minimum size. When every connection is lent out, borrowers wait up to the borrow
+ * timeout for one to come back.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * How a pool sizes itself and how long it waits
+     *
+     * @param minSize how many connections to keep open even when idle
+     * @param maxSize the most connections that may be open at once
+     * @param borrowTimeoutMillis how long a borrower waits for a connection before giving up
+     * @param idleTimeoutMillis how long a connection may sit idle before it is closed
+     * @param validationIntervalMillis how long a connection may sit idle before it is checked on borrow
+     * @param validationTimeoutSeconds how long the check may take
+     */
+    public record Settings(int minSize, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis,
+                           long validationIntervalMillis, int validationTimeoutSeconds) {
+
+        public static final Settings DEFAULT = new Settings(2, 10, 5000, 10 * 60_000, 1000, 2);
+
+        public Settings {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("the pool needs 0 <= minSize <= maxSize and maxSize >= 1");
+            }
+            if (borrowTimeoutMillis < 0 || idleTimeoutMillis < 1 || validationIntervalMillis < 0
+                || validationTimeoutSeconds < 0) {
+                throw new IllegalArgumentException("pool timeouts cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * A snapshot of how busy a pool is
+     *
+     * @param active how many connections are lent out
+     * @param idle how many connections are open and waiting to be borrowed
+     * @param waiters how many borrowers are waiting for a connection
+     * @param borrows how many connections have been lent out in all
+     * @param timeouts how many borrowers gave up waiting
+     * @param totalWaitMillis how long all borrows took together, including opening connections
+     * @param maxWaitMillis how long the slowest borrow took
+     */
+    public record Stats(int active, int idle, int waiters, long borrows, long timeouts, long totalWaitMillis,
+                        long maxWaitMillis) {
+
+        /**
+         * @return how long a borrow took on average
+         */
+        public double averageWaitMillis() {
+            return borrows == 0 ? 0 : (double) totalWaitMillis / borrows;
+        }
+    }
+
+    /**
+     * An idle connection and when it was given back
+     */
+    private record Pooled(Connection connection, long returnedNanos) {}
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final ScheduledExecutorService evictor;
+
+    // Guarded by this. Idle connections are kept most recently used first, so the
+    // busy ones stay warm and the ones at the back are the ones to evict.
+    private final ArrayDeque<Pooled> idle = new ArrayDeque<>();
+    // Open connections, lent out or idle, and slots taken by connections being opened
+    private int total;
+    private int waiters;
+    private boolean closed;
+    private long borrows;
+    private long timeouts;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * @param factory opens the physical connections
+     * @param settings how the pool sizes itself
+     */
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(100, Math.min(settings.idleTimeoutMillis() / 2, 30_000));
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lends out a connection, opening one if none is idle and the pool is not full.
+     * Closing the connection gives it back.
+     *
+     * @return the connection
+     * @throws DataAccessException if the pool is closed, no connection came back in
+     * time, or a new connection could not be opened
+     */
+    public Connection borrow() throws DataAccessException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.settings.borrowTimeoutMillis());
+
+        while (true) {
+            Pooled pooled = this.take(deadline);
+            Connection connection;
+            if (pooled == null) {
+                // A slot was reserved; open the connection outside the lock, since it is slow
+                try {
+                    connection = this.factory.open();
+                }
+                catch (SQLException ex) {
+                    this.release();
+                    throw new DataAccessException("failed to get connection", ex);
+                }
+            }
+            else {
+                connection = pooled.connection();
+                long idleNanos = System.nanoTime() - pooled.returnedNanos();
+                if (idleNanos > TimeUnit.MILLISECONDS.toNanos(this.settings.validationIntervalMillis())
+                    && !this.isValid(connection)) {
+                    this.release();
+                    closeQuietly(connection);
+                    continue;
+                }
+            }
+
+            long waited = System.nanoTime() - start;
+            synchronized (this) {
+                this.borrows++;
+                this.totalWaitNanos += waited;
+                this.maxWaitNanos = Math.max(this.maxWaitNanos, waited);
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new Borrowed(connection));
+        }
+    }
+
+    /**
+     * @return how busy the pool is right now
+     */
+    public synchronized Stats getStats() {
+        return new Stats(this.total - this.idle.size(), this.idle.size(), this.waiters, this.borrows, this.timeouts,
+            TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos), TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos));
+    }
+
+    /**
+     * Closes every idle connection and stops lending. Connections that are lent out
+     * are closed when they are given back.
+     */
+    @Override
+    public void close() {
+        List<Pooled> toClose;
+        synchronized (this) {
+            this.closed = true;
+            toClose = new ArrayList<>(this.idle);
+            this.total -= this.idle.size();
+            this.idle.clear();
+            this.notifyAll();
+        }
+        this.evictor.shutdownNow();
+        for (Pooled pooled : toClose) {
+            closeQuietly(pooled.connection());
+        }
+    }
+
+    /**
+     * Closes connections that have been idle too long, keeping the minimum size,
+     * and opens connections until there are at least the minimum
+     */
+    void evictIdle() {
+        List<Connection> expired = new ArrayList<>();
+        int missing;
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            long now = System.nanoTime();
+            long timeout = TimeUnit.MILLISECONDS.toNanos(this.settings.idleTimeoutMillis());
+            while (this.total > this.settings.minSize() && !this.idle.isEmpty()
+                && now - this.idle.peekLast().returnedNanos() > timeout) {
+                expired.add(this.idle.pollLast().connection());
+                this.total--;
+            }
+            missing = Math.max(0, this.settings.minSize() - this.total);
+            this.total += missing;
+        }
+
+        for (Connection connection : expired) {
+            closeQuietly(connection);
+        }
+        for (int i = 0; i < missing; i++) {
+            try {
+                this.giveBack(this.factory.open());
+            }
+            catch (SQLException ex) {
+                // The database may not be up yet; the next run tries again
+                for (int j = i; j < missing; j++) {
+                    this.release();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes an idle connection, or reserves a slot for a new one, waiting until the deadline if the pool is full
+     *
+     * @return the idle connection, or null if a slot was reserved
+     */
+    private synchronized Pooled take(long deadline) throws DataAccessException {
+        while (true) {
+            if (this.closed) {
+                throw new DataAccessException("the connection pool is closed");
+            }
+            if (!this.idle.isEmpty()) {
+                return this.idle.pollFirst();
+            }
+            if (this.total < this.settings.maxSize()) {
+                this.total++;
+                return null;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                this.timeouts++;
+                throw new DataAccessException("timed out waiting for a database connection");
+            }
+            this.waiters++;
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("interrupted waiting for a database connection", ex);
+            }
+            finally {
+                this.waiters--;
+            }
+        }
+    }
+
+    /**
+     * Puts a connection back in the pool, or closes it if it cannot be reused
+     */
+    private void giveBack(Connection connection) {
+        boolean reusable = reset(connection);
+        synchronized (this) {
+            if (reusable && !this.closed) {
+                this.idle.addFirst(new Pooled(connection, System.nanoTime()));
+                this.notify();
+                return;
+            }
+            this.total--;
+            this.notifyAll();
+        }
+        closeQuietly(connection);
+    }
+
+    /**
+     * Frees the slot of a connection that was closed or never opened
+     */
+    private synchronized void release() {
+        this.total--;
+        this.notifyAll();
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(this.settings.validationTimeoutSeconds());
+        }
+        catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Undoes whatever the borrower left behind that the next borrower should not see
+     *
+     * @return whether the connection can be lent out again
+     */
+    private static boolean reset(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        }
+        catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        }
+        catch (SQLException ex) {
+            // The connection is being thrown away either way
+        }
+    }
+
+    /**
+     * Stands in for a lent-out connection. Closing it gives the connection back,
+     * and it cannot be used after that.
+     */
+    private final class Borrowed implements InvocationHandler {
+        private final Connection connection;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private Borrowed(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (this.returned.compareAndSet(false, true)) {
+                        giveBack(this.connection);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if (this.returned.get()) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "pooled " + this.connection;
+                }
+                default -> {
+                }
+            }
+
+            if (this.returned.get()) {
+                throw new SQLException("the connection has been given back to the pool");
+            }
+            try {
+                return method.invoke(this.connection, args);
+            }
+            catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
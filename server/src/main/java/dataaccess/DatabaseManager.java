@@ -8,6 +8,10 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool.Settings poolSettings;
+
+    // Created on first use, since the database may not exist until createDatabase runs
+    private static ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +34,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the connection pool, with the catalog
+     * set based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you are
+     * done with it, which gives it back to the pool. The easiest way to do that is
+     * with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -42,14 +47,42 @@ public class DatabaseManager {
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
+        return pool().borrow();
+    }
+
+    /**
+     * @return how busy the connection pool is, or null if no connection has been asked for yet
+     */
+    public static synchronized ConnectionPool.Stats getPoolStats() {
+        return pool == null ? null : pool.getStats();
+    }
+
+    /**
+     * Closes the connection pool. A later call to {@link #getConnection()} starts a new one.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            pool = new ConnectionPool(DatabaseManager::openConnection, poolSettings);
+        }
+        return pool;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
         try {
-            //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
             conn.setCatalog(databaseName);
-            return conn;
         } catch (SQLException ex) {
-            throw new DataAccessException("failed to get connection", ex);
+            conn.close();
+            throw ex;
         }
+        return conn;
     }
 
     private static void loadPropertiesFromResources() {
@@ -72,6 +105,21 @@ public class DatabaseManager {
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // Prepare statements on the server and keep them on each pooled connection, so
+        // a DAO call with SQL the connection has seen before skips parsing and the prepare round trip
+        var statementCacheSize = Integer.parseInt(props.getProperty("db.statementCacheSize", "64"));
+        connectionUrl = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true&cachePrepStmts=true"
+                + "&prepStmtCacheSize=%d&prepStmtCacheSqlLimit=2048", host, port, statementCacheSize);
+
+        // The pool settings are optional
+        var defaults = ConnectionPool.Settings.DEFAULT;
+        poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.minSize", String.valueOf(defaults.minSize()))),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(defaults.maxSize()))),
+                Long.parseLong(props.getProperty("db.pool.borrowTimeoutMillis", String.valueOf(defaults.borrowTimeoutMillis()))),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", String.valueOf(defaults.idleTimeoutMillis()))),
+                Long.parseLong(props.getProperty("db.pool.validationIntervalMillis",
+                        String.valueOf(defaults.validationIntervalMillis()))),
+                defaults.validationTimeoutSeconds());
     }
 }
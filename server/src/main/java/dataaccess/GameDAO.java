@@ -1,6 +1,8 @@
 package dataaccess;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 
 import model.GameData;
 
@@ -9,6 +11,36 @@ public interface GameDAO {
     void createGame(GameData gameData);
     GameData getGame(int gameID);
     ArrayList<GameData> getAllGames();
+
+    /**
+     * Reads one page of games in order of their IDs, so that every game can be visited
+     * without holding them all in memory. DAOs that can read just the page should.
+     *
+     * @param afterGameID only games with a greater ID are read
+     * @param limit the most games to read
+     * @return the games, in order of their IDs
+     */
+    default ArrayList<GameData> getGamesAfter(int afterGameID, int limit) {
+        ArrayList<GameData> page = new ArrayList<>();
+        for (GameData gameData : this.getAllGames()) {
+            if (gameData.gameID() > afterGameID) {
+                page.add(gameData);
+            }
+        }
+        page.sort(Comparator.comparingInt(GameData::gameID));
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
     void updateGame(GameData gameData);
     void clearAllData();
+
+    /**
+     * Updates several games at once. DAOs that can send them in one batch should.
+     *
+     * @param games the games to update
+     */
+    default void updateGames(Collection<GameData> games) {
+        for (GameData gameData : games) {
+            this.updateGame(gameData);
+        }
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package dataaccess;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import model.AuthData;
 import model.UserData;
@@ -10,6 +11,10 @@ public class MemoryUserDAO implements UserDAO {
 
     private Map<String, UserData> storage = new HashMap<>();
     private Map<String, AuthData> auth = new HashMap<>();
+    // Read by the revocation refresh thread as well as requests
+    private final Map<String, Revocation> revoked = new ConcurrentHashMap<>();
+
+    private record Revocation(long expiresAt, long revokedAt) {}
 
     @Override
     public void createUser(UserData user) {
@@ -40,5 +45,27 @@ public class MemoryUserDAO implements UserDAO {
     public void clearAllData() {
         this.storage = new HashMap<>();
         this.auth = new HashMap<>();
+        this.revoked.clear();
+    }
+
+    @Override
+    public void revokeToken(String tokenID, long expiresAt, long revokedAt) {
+        revoked.putIfAbsent(tokenID, new Revocation(expiresAt, revokedAt));
+    }
+
+    @Override
+    public Map<String, Long> getRevokedTokens(long since) {
+        Map<String, Long> tokens = new HashMap<>();
+        revoked.forEach((tokenID, revocation) -> {
+            if (revocation.revokedAt() >= since) {
+                tokens.put(tokenID, revocation.expiresAt());
+            }
+        });
+        return tokens;
+    }
+
+    @Override
+    public void deleteExpiredRevocations(long now) {
+        revoked.values().removeIf(revocation -> revocation.expiresAt() <= now);
     }
 }
\ No newline at end of file
@@ -1,111 +1,118 @@
 package dataaccess;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
+import java.util.Collection;
 
 import com.google.gson.Gson;
 
 import chess.ChessGame;
 
-import static java.sql.Types.NULL;
-
 import exceptions.ForbiddenException;
 import exceptions.ServerErrorException;
 import model.GameData;
 
 public class SQLGameDAO implements GameDAO {
+    private static final String GAME_COLUMNS = "gameID, whiteUsername, blackUsername, gameName, game";
+    private static final String UPDATE_GAME = "UPDATE games "
+                        + "SET whiteUsername = ?, blackUsername = ?, gameName = ?, game = ? "
+                        + "WHERE gameID = ?";
+
     Gson gson = new Gson();
 
+    // Reads the columns of GAME_COLUMNS by position
+    private final SqlRunner.RowMapper<GameData> gameRow = rs -> new GameData(rs.getInt(1), rs.getString(2),
+            rs.getString(3), rs.getString(4), deserializeGame(rs.getString(5)));
+
     public SQLGameDAO() {
         configureDatabase();
     }
 
     @Override
     public void createGame(GameData gameData) {
-        String statement = "INSERT INTO games (gameID, whiteUsername, blackUsername, gameName, game)"
-                        + "VALUES (?, ?, ?, ?, ?)";
-        this.executeQuery(statement, gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), gameData.game());
+        String statement = "INSERT INTO games (" + GAME_COLUMNS + ") VALUES (?, ?, ?, ?, ?)";
+        this.write(statement, ps -> {
+            ps.setInt(1, gameData.gameID());
+            SqlRunner.setNullableString(ps, 2, gameData.whiteUsername());
+            SqlRunner.setNullableString(ps, 3, gameData.blackUsername());
+            SqlRunner.setNullableString(ps, 4, gameData.gameName());
+            SqlRunner.setNullableString(ps, 5, serializeGame(gameData.game()));
+        });
     }
 
     @Override
     public GameData getGame(int gameID) {
-        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game"
-                        + " FROM games WHERE gameID = ?";
-        return this.executeQuery(statement, gameID);   
+        String statement = "SELECT " + GAME_COLUMNS + " FROM games WHERE gameID = ?";
+        try {
+            return SqlRunner.readOne(statement, ps -> ps.setInt(1, gameID), this.gameRow);
+        }
+        catch (DataAccessException | SQLException e) {
+            throw new ServerErrorException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
+        }
     }
 
     @Override
     public ArrayList<GameData> getAllGames() {
-        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games";
-        ArrayList<GameData> games = new ArrayList<>();
-
-        try (Connection conn = DatabaseManager.getConnection();
-            PreparedStatement ps = conn.prepareStatement(statement);
-            ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    games.add(new GameData(rs.getInt("gameID"), rs.getString("whiteUsername"), rs.getString("blackUsername"),
-                            rs.getString("gameName"), deserializeGame(rs.getString("game"))));
-                }
-        }
-        catch (SQLIntegrityConstraintViolationException e) {
-            throw new ForbiddenException("operation forbidden");
+        String statement = "SELECT " + GAME_COLUMNS + " FROM games";
+        try {
+            return SqlRunner.readAll(statement, SqlRunner.Binder.NONE, this.gameRow);
         }
         catch (DataAccessException | SQLException e) {
             throw new ServerErrorException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
         }
+    }
 
-        return games;
+    @Override
+    public ArrayList<GameData> getGamesAfter(int afterGameID, int limit) {
+        // Seeking past the last ID read uses the primary key, however deep into the table the page is
+        String statement = "SELECT " + GAME_COLUMNS + " FROM games WHERE gameID > ? ORDER BY gameID LIMIT ?";
+        try {
+            return SqlRunner.readAll(statement, ps -> {
+                ps.setInt(1, afterGameID);
+                ps.setInt(2, limit);
+            }, this.gameRow);
+        }
+        catch (DataAccessException | SQLException e) {
+            throw new ServerErrorException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
+        }
     }
 
     @Override
     public void updateGame(GameData gameData) {
-        String statement = "UPDATE games "
-                        + "SET whiteUsername = ?, blackUsername = ?, gameName = ?, game = ? "
-                        + "WHERE gameID = ?";
-        this.executeQuery(statement, gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), gameData.game(), gameData.gameID());
+        this.write(UPDATE_GAME, ps -> this.bindUpdate(ps, gameData));
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> games) {
+        if (games.isEmpty()) {
+            return;
+        }
+        try {
+            SqlRunner.writeBatch(UPDATE_GAME, games, this::bindUpdate);
+        }
+        catch (DataAccessException | SQLException e) {
+            throw new ServerErrorException(String.format("unable to update database: %s, %s", UPDATE_GAME, e.getMessage()));
+        }
     }
 
     @Override
     public void clearAllData() {
-        executeQuery("DELETE FROM games");
+        this.write("DELETE FROM games", SqlRunner.Binder.NONE);
+    }
+
+    private void bindUpdate(PreparedStatement ps, GameData gameData) throws SQLException {
+        SqlRunner.setNullableString(ps, 1, gameData.whiteUsername());
+        SqlRunner.setNullableString(ps, 2, gameData.blackUsername());
+        SqlRunner.setNullableString(ps, 3, gameData.gameName());
+        SqlRunner.setNullableString(ps, 4, serializeGame(gameData.game()));
+        ps.setInt(5, gameData.gameID());
     }
 
-    private GameData executeQuery(String statement, Object... params) {
-        try (Connection conn = DatabaseManager.getConnection();
-            PreparedStatement ps = conn.prepareStatement(statement)) {
-                for (int i = 0; i < params.length; i++) {
-                    Object param = params[i];
-                    if (param instanceof String p) {
-                        ps.setString(i + 1, p);
-                    }
-                    else if (param instanceof Integer p) {
-                        ps.setInt(i + 1, p);
-                    }
-                    else if (param instanceof ChessGame p) {
-                        ps.setString(i + 1, serializeGame(p));
-                    }
-                    else if (param == null) {
-                        ps.setNull(i + 1, NULL);
-                    }
-                }
-
-                // Check if this is a SELECT statement
-                if (statement.trim().toUpperCase().startsWith("SELECT")) {
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) {
-                        return new GameData(rs.getInt("gameID"), rs.getString("whiteUsername"), rs.getString("blackUsername"),
-                            rs.getString("gameName"), deserializeGame(rs.getString("game")));
-                    }
-                    return null;
-                } else {
-                    // For INSERT, UPDATE, DELETE
-                    ps.executeUpdate();
-                    return null;
-                }
+    private void write(String statement, SqlRunner.Binder binder) {
+        try {
+            SqlRunner.write(statement, binder);
         }
         catch (SQLIntegrityConstraintViolationException e) {
             throw new ForbiddenException("game name already taken");
@@ -116,11 +123,11 @@ public class SQLGameDAO implements GameDAO {
     }
 
     private String serializeGame(ChessGame game) {
-        return gson.toJson(game);
+        return game == null ? null : gson.toJson(game);
     }
 
     private ChessGame deserializeGame(String gameJson) {
-        return gson.fromJson(gameJson, ChessGame.class);
+        return gameJson == null ? null : gson.fromJson(gameJson, ChessGame.class);
     }
 
     private String[] createUserStatements = {
@@ -139,12 +146,8 @@ public class SQLGameDAO implements GameDAO {
     private void configureDatabase() {
         try {
             DatabaseManager.createDatabase();
-            try (Connection conn = DatabaseManager.getConnection()) {
-                for (String statement : createUserStatements) {
-                    try (var preparedStatement = conn.prepareStatement(statement)) {
-                        preparedStatement.executeUpdate();
-                    }
-                }
+            for (String statement : createUserStatements) {
+                SqlRunner.write(statement, SqlRunner.Binder.NONE);
             }
         }
         catch (DataAccessException | SQLException ex) {
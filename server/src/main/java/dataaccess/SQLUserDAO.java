@@ -1,21 +1,22 @@
 package dataaccess;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.HashMap;
+import java.util.Map;
 
 import exceptions.ForbiddenException;
 import exceptions.ServerErrorException;
 
-import static java.sql.Types.NULL;
-
 import model.AuthData;
 import model.UserData;
 
 public class SQLUserDAO implements UserDAO {
 
+    private static final SqlRunner.RowMapper<UserData> USER_ROW =
+            rs -> new UserData(rs.getString(1), rs.getString(2), rs.getString(3));
+    private static final SqlRunner.RowMapper<AuthData> AUTH_ROW = rs -> new AuthData(rs.getString(1), rs.getString(2));
+
     public SQLUserDAO() {
         configureDatabase();
     }
@@ -23,84 +24,93 @@ public class SQLUserDAO implements UserDAO {
     @Override
     public void createUser(UserData user) {
         String statement = "INSERT INTO users (username, password, email) VALUES (?, ?, ?)";
-        this.executeUserQuery(statement, user.username(), user.password(), user.email());
+        this.write(statement, ps -> {
+            SqlRunner.setNullableString(ps, 1, user.username());
+            SqlRunner.setNullableString(ps, 2, user.password());
+            SqlRunner.setNullableString(ps, 3, user.email());
+        });
     }
 
     @Override
     public UserData getUser(String username) {
         String statement = "SELECT username, password, email FROM users WHERE username = ?";
-        return executeUserQuery(statement, username);
+        return this.read(statement, ps -> SqlRunner.setNullableString(ps, 1, username), USER_ROW);
     }
 
     @Override
     public void createAuth(AuthData authData) {
         String statement = "INSERT INTO auth (authToken, username) VALUES (?, ?)";
-        executeUserQuery(statement, authData.authToken(), authData.username());
+        this.write(statement, ps -> {
+            SqlRunner.setNullableString(ps, 1, authData.authToken());
+            SqlRunner.setNullableString(ps, 2, authData.username());
+        });
     }
 
     @Override
     public AuthData getAuthData(String authToken) {
         String statement = "SELECT authToken, username FROM auth WHERE authToken = ?";
-        return executeAuthQuery(statement, authToken);
+        return this.read(statement, ps -> SqlRunner.setNullableString(ps, 1, authToken), AUTH_ROW);
     }
 
     @Override
     public void deleteAuthData(String authToken) {
         String statement = "DELETE FROM auth WHERE authToken = ?";
-        executeUserQuery(statement, authToken);
+        this.write(statement, ps -> SqlRunner.setNullableString(ps, 1, authToken));
     }
 
     @Override
     public void clearAllData() {
-        executeUserQuery("DELETE FROM users");
-        executeAuthQuery("DELETE FROM auth");
+        this.write("DELETE FROM users", SqlRunner.Binder.NONE);
+        this.write("DELETE FROM auth", SqlRunner.Binder.NONE);
+        this.write("DELETE FROM revoked_tokens", SqlRunner.Binder.NONE);
+    }
+
+    @Override
+    public void revokeToken(String tokenID, long expiresAt, long revokedAt) {
+        String statement = "INSERT IGNORE INTO revoked_tokens (tokenID, expiresAt, revokedAt) VALUES (?, ?, ?)";
+        this.write(statement, ps -> {
+            ps.setString(1, tokenID);
+            ps.setLong(2, expiresAt);
+            ps.setLong(3, revokedAt);
+        });
     }
 
-    private UserData executeUserQuery(String statement, Object... params) {
-        try (Connection conn = DatabaseManager.getConnection();
-            PreparedStatement ps = conn.prepareStatement(statement)) {
-                // Prepare the statement
-                prepareStatement(ps, params);
-
-                // Check if this is a SELECT statement
-                if (statement.trim().toUpperCase().startsWith("SELECT")) {
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) {
-                        return new UserData(rs.getString("username"), rs.getString("password"), rs.getString("email"));
-                    }
-                    return null;
-                } else {
-                    // For INSERT, UPDATE, DELETE
-                    ps.executeUpdate();
-                    return null;
-                }
+    @Override
+    public Map<String, Long> getRevokedTokens(long since) {
+        String statement = "SELECT tokenID, expiresAt FROM revoked_tokens WHERE revokedAt >= ?";
+        try {
+            Map<String, Long> revoked = new HashMap<>();
+            for (Map.Entry<String, Long> row : SqlRunner.readAll(statement, ps -> ps.setLong(1, since),
+                    rs -> Map.entry(rs.getString(1), rs.getLong(2)))) {
+                revoked.put(row.getKey(), row.getValue());
+            }
+            return revoked;
         }
-        catch (SQLIntegrityConstraintViolationException e) {
-            throw new ForbiddenException("username already taken");
+        catch (DataAccessException | SQLException e) {
+            throw new ServerErrorException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void deleteExpiredRevocations(long now) {
+        this.write("DELETE FROM revoked_tokens WHERE expiresAt <= ?", ps -> ps.setLong(1, now));
+    }
+
+    private <T> T read(String statement, SqlRunner.Binder binder, SqlRunner.RowMapper<T> mapper) {
+        try {
+            return SqlRunner.readOne(statement, binder, mapper);
         }
         catch (DataAccessException | SQLException e) {
             throw new ServerErrorException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
         }
     }
 
-    private AuthData executeAuthQuery(String statement, Object... params) {
-        try (Connection conn = DatabaseManager.getConnection();
-            PreparedStatement ps = conn.prepareStatement(statement)) {
-                // Prepare the statement
-                prepareStatement(ps, params);
-
-                // Check if this is a SELECT statement
-                if (statement.trim().toUpperCase().startsWith("SELECT")) {
-                    ResultSet rs = ps.executeQuery();
-                    if (rs.next()) {
-                        return new AuthData(rs.getString("authToken"), rs.getString("username"));
-                    }
-                    return null;
-                } else {
-                    // For INSERT, UPDATE, DELETE
-                    ps.executeUpdate();
-                    return null;
-                }
+    private void write(String statement, SqlRunner.Binder binder) {
+        try {
+            SqlRunner.write(statement, binder);
+        }
+        catch (SQLIntegrityConstraintViolationException e) {
+            throw new ForbiddenException("username already taken");
         }
         catch (DataAccessException | SQLException e) {
             throw new ServerErrorException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
@@ -128,36 +138,35 @@ public class SQLUserDAO implements UserDAO {
         """
     };
 
+    // Signed session tokens are never stored; only the ones logged out early are
+    private String[] createRevocationStatements = {
+        """
+        CREATE TABLE IF NOT EXISTS  revoked_tokens (
+            `tokenID` VARCHAR(64) NOT NULL,
+            `expiresAt` BIGINT NOT NULL,
+            `revokedAt` BIGINT NOT NULL,
+            PRIMARY KEY (`tokenID`),
+            INDEX (`expiresAt`),
+            INDEX (`revokedAt`)
+        ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+        """
+    };
+
     private void configureDatabase() {
         try {
             DatabaseManager.createDatabase();
-            try (Connection conn = DatabaseManager.getConnection()) {
-                for (String statement : createUserStatements) {
-                    try (var preparedStatement = conn.prepareStatement(statement)) {
-                        preparedStatement.executeUpdate();
-                    }
-                }
-                for (String statement : createAuthStatements) {
-                    try (var preparedStatement = conn.prepareStatement(statement)) {
-                        preparedStatement.executeUpdate();
-                    }
-                }
+            for (String statement : createUserStatements) {
+                SqlRunner.write(statement, SqlRunner.Binder.NONE);
+            }
+            for (String statement : createAuthStatements) {
+                SqlRunner.write(statement, SqlRunner.Binder.NONE);
+            }
+            for (String statement : createRevocationStatements) {
+                SqlRunner.write(statement, SqlRunner.Binder.NONE);
             }
         }
         catch (DataAccessException | SQLException ex) {
             throw new ServerErrorException(String.format("Unable to configure database: %s", ex.getMessage()));
         }
     }
-
-    private void prepareStatement(PreparedStatement ps, Object... params) throws SQLException {
-        for (int i = 0; i < params.length; i++) {
-            Object param = params[i];
-            if (param instanceof String p) {
-                ps.setString(i + 1, p);
-            }
-            else if (param == null) {
-                ps.setNull(i + 1, NULL);
-            }
-        }
-    }
 }
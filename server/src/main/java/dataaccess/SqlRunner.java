@@ -0,0 +1,132 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+
+/**
+ * Runs SQL statements for the DAOs on a pooled connection.
+ * <p>
+ * Reads and writes have their own entry points, parameters are bound by the caller
+ * with the setter for their type, and rows are turned into objects by a mapper that
+ * reads the columns straight from the result set. Statements are prepared on the
+ * server and the driver caches them on each pooled connection (see
+ * {@link DatabaseManager}), so closing a statement here only hands it back to that
+ * cache and the next call with the same SQL skips the prepare round trip.
+ */
+final class SqlRunner {
+
+    /**
+     * Sets the parameters of a statement
+     */
+    @FunctionalInterface
+    interface Binder {
+        Binder NONE = statement -> {};
+
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Sets the parameters of a statement for one item of a batch
+     */
+    @FunctionalInterface
+    interface ItemBinder<T> {
+        void bind(PreparedStatement statement, T item) throws SQLException;
+    }
+
+    /**
+     * Turns the current row of a result set into an object
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+
+    private SqlRunner() {
+    }
+
+    /**
+     * Runs a query that matches at most one row
+     *
+     * @return the row, or null if nothing matched
+     */
+    static <T> T readOne(String sql, Binder binder, RowMapper<T> mapper) throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+                binder.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? mapper.map(rs) : null;
+                }
+        }
+    }
+
+    /**
+     * Runs a query and maps every row it matches
+     *
+     * @return the rows, in the order the database returned them
+     */
+    static <T> ArrayList<T> readAll(String sql, Binder binder, RowMapper<T> mapper)
+            throws DataAccessException, SQLException {
+        ArrayList<T> rows = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+                binder.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(mapper.map(rs));
+                    }
+                }
+        }
+        return rows;
+    }
+
+    /**
+     * Runs an INSERT, UPDATE, DELETE or DDL statement
+     *
+     * @return the number of rows changed
+     */
+    static int write(String sql, Binder binder) throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+                binder.bind(ps);
+                return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs one statement for every item in a single transaction, sending them as a batch
+     *
+     * @return the number of rows each item changed
+     */
+    static <T> int[] writeBatch(String sql, Iterable<T> items, ItemBinder<T> binder)
+            throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+            PreparedStatement ps = conn.prepareStatement(sql)) {
+                conn.setAutoCommit(false);
+                for (T item : items) {
+                    binder.bind(ps, item);
+                    ps.addBatch();
+                }
+                // The pool rolls back and restores auto-commit if this throws
+                int[] counts = ps.executeBatch();
+                conn.commit();
+                conn.setAutoCommit(true);
+                return counts;
+        }
+    }
+
+    /**
+     * Sets a string parameter that may be null
+     */
+    static void setNullableString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        }
+        else {
+            ps.setString(index, value);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package dataaccess;
 
+import java.util.Map;
+
 import exceptions.ServerErrorException;
 import model.AuthData;
 import model.UserData;
@@ -11,4 +13,26 @@ public interface UserDAO {
     AuthData getAuthData(String authToken);
     void deleteAuthData(String authToken);
     void clearAllData();
+
+    /**
+     * Records that a signed session token was logged out. Revoking a token twice is allowed.
+     *
+     * @param tokenID the token's ID
+     * @param expiresAt when the token expires anyway, in epoch milliseconds
+     * @param revokedAt when it was logged out, in epoch milliseconds
+     */
+    void revokeToken(String tokenID, long expiresAt, long revokedAt);
+
+    /**
+     * @param since only tokens revoked at or after this time, in epoch milliseconds, are read
+     * @return the ID of every token revoked since then, with when it expires in epoch milliseconds
+     */
+    Map<String, Long> getRevokedTokens(long since);
+
+    /**
+     * Forgets revoked tokens that have expired, since they are rejected anyway
+     *
+     * @param now the current time, in epoch milliseconds
+     */
+    void deleteExpiredRevocations(long now);
 }
\ No newline at end of file
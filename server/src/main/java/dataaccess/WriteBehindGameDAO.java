@@ -0,0 +1,289 @@
+package dataaccess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import model.GameData;
+
+/**
+ * Keeps the games being played in memory and writes them to another DAO later.
+ * <p>
+ * Every move used to be a read and a write of the whole game, serialized to JSON,
+ * against the database. Here the cached copy of a game is the one that counts:
+ * reads after the first come from memory, and updates only mark the game dirty.
+ * Dirty games are written in one batch every flush interval and when the cache is
+ * closed. In the durable mode an update that ends a game writes it before
+ * returning, so a finished game is never lost to a crash.
+ * <p>
+ * Callers get a copy of the cached game, so they may change it freely and the
+ * flush never serializes a game that another thread is changing. New games are
+ * written straight through so that duplicate names are reported to the caller.
+ * Finished games leave the cache once they have been written, and games nobody
+ * has touched for the idle timeout leave it once they are clean, so abandoned
+ * games do not stay in memory.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60_000;
+
+    /**
+     * A cached game and when it was last read or written
+     */
+    private static final class Entry {
+        private final GameData gameData;
+        private volatile long usedNanos = System.nanoTime();
+
+        private Entry(GameData gameData) {
+            this.gameData = gameData;
+        }
+    }
+
+    private final GameDAO delegate;
+    private final boolean flushOnGameEnd;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService flusher;
+
+    private final Map<Integer, Entry> games = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    // Flushes run one at a time, so an older copy of a game can never overwrite a newer one
+    private final Object flushLock = new Object();
+    // Why the last flush failed, until one succeeds
+    private volatile RuntimeException flushFailure;
+
+    /**
+     * @param delegate where the games are stored
+     * @param flushIntervalMillis how often dirty games are written, or 0 to only write on {@link #flush()}
+     * @param flushOnGameEnd whether an update that ends a game writes it before returning
+     */
+    public WriteBehindGameDAO(GameDAO delegate, long flushIntervalMillis, boolean flushOnGameEnd) {
+        this(delegate, flushIntervalMillis, flushOnGameEnd, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param delegate where the games are stored
+     * @param flushIntervalMillis how often dirty games are written, or 0 to only write on {@link #flush()}
+     * @param flushOnGameEnd whether an update that ends a game writes it before returning
+     * @param idleTimeoutMillis how long a clean game may go unused before it leaves the cache
+     */
+    public WriteBehindGameDAO(GameDAO delegate, long flushIntervalMillis, boolean flushOnGameEnd,
+                              long idleTimeoutMillis) {
+        if (flushIntervalMillis < 0 || idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("the flush interval and idle timeout cannot be negative");
+        }
+        this.delegate = delegate;
+        this.flushOnGameEnd = flushOnGameEnd;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        if (flushIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flushAndEvict, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+        else {
+            this.flusher = null;
+        }
+    }
+
+    @Override
+    public void createGame(GameData gameData) {
+        this.delegate.createGame(gameData);
+        this.games.put(gameData.gameID(), new Entry(copyOf(gameData)));
+    }
+
+    @Override
+    public GameData getGame(int gameID) {
+        Entry cached = this.games.get(gameID);
+        if (cached == null) {
+            GameData stored = this.delegate.getGame(gameID);
+            if (stored == null) {
+                return null;
+            }
+            // Another thread may have loaded or updated the game in the meantime
+            Entry loaded = new Entry(stored);
+            cached = this.games.putIfAbsent(gameID, loaded);
+            if (cached == null) {
+                cached = loaded;
+            }
+        }
+        cached.usedNanos = System.nanoTime();
+        return copyOf(cached.gameData);
+    }
+
+    @Override
+    public ArrayList<GameData> getAllGames() {
+        ArrayList<GameData> all = this.delegate.getAllGames();
+        this.replaceWithCached(all);
+        return all;
+    }
+
+    @Override
+    public ArrayList<GameData> getGamesAfter(int afterGameID, int limit) {
+        ArrayList<GameData> page = this.delegate.getGamesAfter(afterGameID, limit);
+        this.replaceWithCached(page);
+        return page;
+    }
+
+    @Override
+    public void updateGame(GameData gameData) {
+        GameData cached = copyOf(gameData);
+        this.games.put(gameData.gameID(), new Entry(cached));
+        this.dirty.add(gameData.gameID());
+
+        if (this.flushOnGameEnd && isOver(cached)) {
+            this.flush();
+        }
+    }
+
+    @Override
+    public void clearAllData() {
+        synchronized (this.flushLock) {
+            this.games.clear();
+            this.dirty.clear();
+            this.delegate.clearAllData();
+        }
+    }
+
+    /**
+     * Writes every dirty game to the delegate in one batch. If the write fails the
+     * games stay dirty and the next flush tries again.
+     *
+     * @throws RuntimeException whatever the delegate threw
+     */
+    public void flush() {
+        synchronized (this.flushLock) {
+            List<GameData> batch = new ArrayList<>();
+            for (Integer gameID : this.dirty) {
+                // An update after this point marks the game dirty again for the next flush
+                if (this.dirty.remove(gameID)) {
+                    Entry cached = this.games.get(gameID);
+                    if (cached != null) {
+                        batch.add(cached.gameData);
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                this.delegate.updateGames(batch);
+            }
+            catch (RuntimeException ex) {
+                for (GameData gameData : batch) {
+                    this.dirty.add(gameData.gameID());
+                }
+                this.flushFailure = ex;
+                throw ex;
+            }
+            this.flushFailure = null;
+
+            for (GameData gameData : batch) {
+                // Unless it changed again, a finished game is not needed in memory anymore
+                Entry cached = this.games.get(gameData.gameID());
+                if (isOver(gameData) && cached != null && cached.gameData == gameData
+                    && !this.dirty.contains(gameData.gameID())) {
+                    this.games.remove(gameData.gameID(), cached);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops clean games that have not been read or written for the idle timeout.
+     * The next read loads them from the delegate again.
+     */
+    void evictIdle() {
+        long now = System.nanoTime();
+        for (Map.Entry<Integer, Entry> cached : this.games.entrySet()) {
+            // An update replaces the entry, so removing this one cannot drop a newer copy
+            if (now - cached.getValue().usedNanos > this.idleTimeoutNanos
+                && !this.dirty.contains(cached.getKey())) {
+                this.games.remove(cached.getKey(), cached.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return how many games are waiting to be written
+     */
+    public int getDirtyCount() {
+        return this.dirty.size();
+    }
+
+    /**
+     * @return how many games are held in memory
+     */
+    public int getCachedCount() {
+        return this.games.size();
+    }
+
+    /**
+     * @return why the last flush failed, or null if it succeeded. Dirty games are
+     * not written until a flush succeeds, so this stays set until one does.
+     */
+    public RuntimeException getFlushFailure() {
+        return this.flushFailure;
+    }
+
+    /**
+     * Stops the periodic flush and writes whatever is still dirty
+     *
+     * @throws RuntimeException if the last games could not be written
+     */
+    @Override
+    public void close() {
+        if (this.flusher != null) {
+            this.flusher.shutdown();
+            try {
+                this.flusher.awaitTermination(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.flush();
+    }
+
+    private void flushAndEvict() {
+        try {
+            this.flush();
+        }
+        catch (RuntimeException ex) {
+            // The games stay dirty and getFlushFailure() reports why; the next run tries again
+            ex.printStackTrace();
+        }
+        this.evictIdle();
+    }
+
+    /**
+     * Swaps stored games for their cached copies, which may be newer
+     */
+    private void replaceWithCached(List<GameData> stored) {
+        for (int i = 0; i < stored.size(); i++) {
+            Entry cached = this.games.get(stored.get(i).gameID());
+            if (cached != null) {
+                stored.set(i, copyOf(cached.gameData));
+            }
+        }
+    }
+
+    private static boolean isOver(GameData gameData) {
+        return gameData.game() != null && gameData.game().getGameOver();
+    }
+
+    private static GameData copyOf(GameData gameData) {
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+            gameData.gameName(), gameData.game() == null ? null : gameData.game().copy());
+    }
+}
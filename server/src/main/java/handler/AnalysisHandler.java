@@ -0,0 +1,39 @@
+package handler;
+
+import com.google.gson.Gson;
+
+import exceptions.BadRequestException;
+import io.javalin.http.Context;
+import results.AnalysisResult;
+import service.AnalysisService;
+
+public class AnalysisHandler {
+
+    private AnalysisService analysisService;
+    Gson gson = new Gson();
+
+    public AnalysisHandler(AnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    public void handleAnalysis(Context ctx) {
+        int gameID = parseInteger(ctx.pathParam("id"));
+        String depth = ctx.queryParam("depth");
+        String timeMillis = ctx.queryParam("ms");
+        AnalysisResult result = this.analysisService.analyzeNow(
+                    gameID,
+                    depth == null ? null : parseInteger(depth),
+                    timeMillis == null ? null : parseInteger(timeMillis),
+                    ctx.header("authorization"));
+        ctx.status(200).result(gson.toJson(result));
+    }
+
+    private static int parseInteger(String value) {
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException ex) {
+            throw new BadRequestException("bad request");
+        }
+    }
+}
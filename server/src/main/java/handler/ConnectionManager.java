@@ -30,6 +30,22 @@ public class ConnectionManager {
         }
     }
 
+    /**
+     * Sends a message to one session. Jetty's blocking remote endpoint does not allow
+     * two sends at once, and analysis results are sent from the analysis pool while
+     * command handlers and broadcasts send from others, so every send to a session
+     * holds that session's lock.
+     *
+     * @param session where to send the message
+     * @param message the message, as JSON
+     * @throws IOException if the message could not be sent
+     */
+    public static void send(Session session, String message) throws IOException {
+        synchronized (session) {
+            session.getRemote().sendString(message);
+        }
+    }
+
     public void broadcast(int gameID, Session excludeSession, ServerMessage serverMessage) throws IOException {
         String msg = new Gson().toJson(serverMessage);
         ArrayList<Session> sessions = connections.get(gameID);
@@ -37,7 +53,7 @@ public class ConnectionManager {
             for (Session c : sessions) {
                 if (c.isOpen()) {
                     if (!c.equals(excludeSession)) {
-                        c.getRemote().sendString(msg);
+                        send(c, msg);
                     }
                 }
             }
@@ -1,7 +1,11 @@
 package handler;
 
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
 import com.google.gson.Gson;
 
+import exceptions.BadRequestException;
 import io.javalin.http.Context;
 import requests.CreateGameRequest;
 import requests.JoinGameRequest;
@@ -11,6 +15,8 @@ import service.GameService;
 
 public class GameHandler {
 
+    private static final String PGN_CONTENT_TYPE = "application/x-chess-pgn";
+
     private GameService gameService;
     Gson gson = new Gson();
 
@@ -37,4 +43,25 @@ public class GameHandler {
         this.gameService.joinGame(request, authToken);
         ctx.status(200);
     }
+
+    public void handleExportGame(Context ctx) {
+        int gameID;
+        try {
+            gameID = Integer.parseInt(ctx.pathParam("id"));
+        }
+        catch (NumberFormatException ex) {
+            throw new BadRequestException("bad request");
+        }
+        String pgn = this.gameService.exportPgn(gameID, ctx.header("authorization"));
+        ctx.status(200).contentType(PGN_CONTENT_TYPE).result(pgn);
+    }
+
+    public void handleExportAllGames(Context ctx) {
+        // Written straight to the response, so the export is never held in memory as one string.
+        // The response only starts once the export can, so an earlier failure gets its own status.
+        this.gameService.exportAllPgn(ctx.header("authorization"), () -> {
+            ctx.status(200).contentType(PGN_CONTENT_TYPE);
+            return new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8);
+        });
+    }
 }
@@ -1,14 +1,19 @@
 package handler;
 
 import java.io.IOException;
-
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.gson.Gson;
 
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.GameStatus;
 
 import org.eclipse.jetty.websocket.api.Session;
 
@@ -23,13 +28,17 @@ import io.javalin.websocket.WsMessageContext;
 import io.javalin.websocket.WsMessageHandler;
 import model.AuthData;
 import model.GameData;
+import results.AnalysisResult;
 import requests.LeaveGameRequest;
 import requests.MakeMoveRequest;
 import requests.ResignGameRequest;
+import service.AnalysisService;
 import service.GameService;
 import service.UserService;
+import websocket.commands.AnalyzeCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.ServerMessage;
 import websocket.messages.ServerMessage.ServerMessageType;
@@ -37,14 +46,19 @@ import websocket.messages.ServerMessage.ServerMessageType;
 public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler {
     UserService userService;
     GameService gameService;
+    AnalysisService analysisService;
     
     Gson gson = new Gson();
 
     private final ConnectionManager connections = new ConnectionManager();
 
-    public WebSocketHandler(UserService userService, GameService gameService) {
+    // Analyses each session is still waiting on, so they can be cancelled when it closes
+    private final Map<Session, Set<CompletableFuture<AnalysisResult>>> pendingAnalyses = new ConcurrentHashMap<>();
+
+    public WebSocketHandler(UserService userService, GameService gameService, AnalysisService analysisService) {
         this.userService = userService;
         this.gameService = gameService;
+        this.analysisService = analysisService;
     }
 
     @Override
@@ -62,6 +76,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
                 case LEAVE -> leave(gameCommand, ctx.session);
                 case RESIGN -> resign(gameCommand, ctx.session);
                 case MAKE_MOVE -> makeMove(gson.fromJson(ctx.message(), MakeMoveCommand.class), ctx.session);
+                case ANALYZE -> analyze(gson.fromJson(ctx.message(), AnalyzeCommand.class), ctx.session);
             }
         } catch (BadRequestException ex) {
             sendError(ctx.session, "Error: " + ex.getMessage());
@@ -79,7 +94,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     private void sendError(Session session, String errorMessage) {
         try {
             ServerMessage errorMsg = new ServerMessage(ServerMessageType.ERROR, errorMessage);
-            session.getRemote().sendString(gson.toJson(errorMsg));
+            ConnectionManager.send(session, gson.toJson(errorMsg));
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -88,6 +103,14 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     @Override
     public void handleClose(WsCloseContext ctx) {
         System.out.println("Websocket closed");
+
+        // Nobody is left to read these answers, so let their searches stop
+        Set<CompletableFuture<AnalysisResult>> pending = pendingAnalyses.remove(ctx.session);
+        if (pending != null) {
+            for (CompletableFuture<AnalysisResult> analysis : pending) {
+                analysis.cancel(false);
+            }
+        }
     }
 
     private void connect(UserGameCommand gameCommand, Session session) throws IOException {
@@ -98,7 +121,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
         // Send LOAD_GAME to the connecting user
         LoadGameMessage loadGameMessage = new LoadGameMessage(ServerMessageType.LOAD_GAME, gameData.game());
-        session.getRemote().sendString(gson.toJson(loadGameMessage));
+        ConnectionManager.send(session, gson.toJson(loadGameMessage));
 
         // Determine if the new user is an observer or not.
         String username = getUserName(gameCommand.getAuthToken());
@@ -127,7 +150,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         ServerMessage notification = new ServerMessage(ServerMessageType.NOTIFICATION, message);
 
         // Send to sender
-        session.getRemote().sendString(gson.toJson(notification));
+        ConnectionManager.send(session, gson.toJson(notification));
 
         // Broadcast to others
         connections.broadcast(gameCommand.getGameID(), session, notification);
@@ -142,15 +165,16 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
         // Send LOAD_GAME to sender
         LoadGameMessage loadGame = new LoadGameMessage(ServerMessageType.LOAD_GAME, gameData.game());
-        session.getRemote().sendString(gson.toJson(loadGame));
+        ConnectionManager.send(session, gson.toJson(loadGame));
 
         // Broadcast LOAD_GAME to others
         connections.broadcast(moveCommand.getGameID(), session, loadGame);
 
         // THIS LOGIC IS HERE ONLY TO PASS THE TESTS
-        if (gameData.game().isInCheckmate(gameData.game().getTeamTurn())) {
+        // The status was worked out when the move was made, so this does not generate moves again
+        if (gameData.game().getStatus() == GameStatus.CHECKMATE) {
             ServerMessage checkMateNotification = new ServerMessage(ServerMessageType.NOTIFICATION, "Checkmate!");
-            session.getRemote().sendString(gson.toJson(checkMateNotification));
+            ConnectionManager.send(session, gson.toJson(checkMateNotification));
             connections.broadcast(moveCommand.getGameID(), session, checkMateNotification);
         }
 
@@ -160,6 +184,46 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
     }
 
+    private void analyze(AnalyzeCommand analyzeCommand, Session session) {
+        CompletableFuture<AnalysisResult> analysis = analysisService.analyze(
+                    analyzeCommand.getGameID(),
+                    analyzeCommand.getDepth(),
+                    analyzeCommand.getTimeMillis(),
+                    analyzeCommand.getAuthToken());
+
+        Set<CompletableFuture<AnalysisResult>> pending =
+                    pendingAnalyses.computeIfAbsent(session, key -> ConcurrentHashMap.newKeySet());
+        pending.add(analysis);
+        // If the socket closed while the analysis started, handleClose has already cancelled
+        // what it found, so this one would run for nobody
+        if (!session.isOpen()) {
+            pendingAnalyses.remove(session, pending);
+            analysis.cancel(false);
+            return;
+        }
+
+        // The search runs on the analysis pool, so answer from there when it finishes
+        analysis.whenComplete((result, ex) -> {
+            pending.remove(analysis);
+            if (!session.isOpen()) {
+                return;
+            }
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                // A cancelled analysis was cancelled because nobody is waiting for it
+                if (!(cause instanceof CancellationException)) {
+                    sendError(session, "Error: " + cause.getMessage());
+                }
+                return;
+            }
+            try {
+                ConnectionManager.send(session, gson.toJson(new AnalysisMessage(result)));
+            } catch (IOException ioEx) {
+                ioEx.printStackTrace();
+            }
+        });
+    }
+
     private String getUserName(String authToken) {
         AuthData authData = this.userService.getAuthData(authToken);
         if (authData != null) {
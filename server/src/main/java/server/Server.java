@@ -4,14 +4,18 @@ import java.util.Map;
 
 import com.google.gson.Gson;
 
+import dataaccess.DatabaseManager;
 import exceptions.BadRequestException;
 import exceptions.ForbiddenException;
+import exceptions.TooManyRequestsException;
 import exceptions.UnauthorizedException;
+import handler.AnalysisHandler;
 import handler.ApplicationHandler;
 import handler.GameHandler;
 import handler.UserHandler;
 import handler.WebSocketHandler;
 import io.javalin.*;
+import service.AnalysisService;
 import service.ApplicationService;
 import service.GameService;
 import service.UserService;
@@ -25,19 +29,23 @@ public class Server {
     private UserService userService;
     private GameService gameService;
     private ApplicationService applicationService;
+    private AnalysisService analysisService;
     private UserHandler userHandler;
     private GameHandler gameHandler;
     private ApplicationHandler applicationHandler;
+    private AnalysisHandler analysisHandler;
     private WebSocketHandler webSocketHandler;
 
     public Server() {
         this.userService = new UserService();
         this.gameService = new GameService(userService);
         this.applicationService = new ApplicationService(userService, gameService);
+        this.analysisService = new AnalysisService(gameService, userService);
         this.userHandler = new UserHandler(userService);
         this.gameHandler = new GameHandler(gameService);
         this.applicationHandler = new ApplicationHandler(applicationService);
-        this.webSocketHandler = new WebSocketHandler(userService, gameService);
+        this.analysisHandler = new AnalysisHandler(analysisService);
+        this.webSocketHandler = new WebSocketHandler(userService, gameService, analysisService);
 
         javalin = Javalin.create(config -> config.staticFiles.add("web"));
 
@@ -49,6 +57,9 @@ public class Server {
         javalin.post("/game", this.gameHandler::handleCreateGame);
         javalin.get("/game", this.gameHandler::handleListGames);
         javalin.put("/game", this.gameHandler::handleJoinGames);
+        javalin.get("/game/{id}/analysis", this.analysisHandler::handleAnalysis);
+        javalin.get("/game/pgn", this.gameHandler::handleExportAllGames);
+        javalin.get("/game/{id}/pgn", this.gameHandler::handleExportGame);
 
         javalin.delete("/db", this.applicationHandler::handleClearAppllication);
 
@@ -65,6 +76,10 @@ public class Server {
             ctx.status(403).result(gson.toJson(Map.of("message", "Error: " + e.getMessage())));
         });
 
+        javalin.exception(TooManyRequestsException.class, (e, ctx) -> {
+            ctx.status(429).result(gson.toJson(Map.of("message", "Error: " + e.getMessage())));
+        });
+
         javalin.exception(Exception.class, (e, ctx) -> {
             ctx.status(500).result(gson.toJson(Map.of("message", "Error: " + e.getMessage())));
         });
@@ -84,5 +99,9 @@ public class Server {
 
     public void stop() {
         javalin.stop();
+        analysisService.shutdown();
+        gameService.shutdown();
+        userService.shutdown();
+        DatabaseManager.closePool();
     }
 }
@@ -0,0 +1,344 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.search.ParallelSearch;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.SearchResult;
+import chess.search.TranspositionTable;
+import exceptions.BadRequestException;
+import exceptions.ServerErrorException;
+import exceptions.TooManyRequestsException;
+import exceptions.UnauthorizedException;
+import model.AuthData;
+import model.GameData;
+import results.AnalysisResult;
+
+/**
+ * Runs best-move searches on stored games for hints and evaluation bars.
+ * <p>
+ * Searches run on a small pool of their own with a bounded queue, so a burst of
+ * requests is turned away rather than starving the threads that serve moves. Each
+ * user may only wait on a few searches at once. Results are cached by the position
+ * together with the earlier positions of the game that it could repeat, since those
+ * change the result, and a request for a position that is already being searched
+ * waits on that search instead of starting another, so a room full of spectators
+ * costs one search per move. A search is stopped as soon as nobody is waiting on it.
+ */
+public class AnalysisService {
+
+    public static final int DEFAULT_TIME_MILLIS = 1000;
+    public static final int MAX_TIME_MILLIS = 10_000;
+    public static final int MAX_DEPTH = 32;
+
+    // How long a blocking request may wait for a worker on top of the search itself
+    private static final long QUEUE_WAIT_MILLIS = 5000;
+    private static final int CACHE_SIZE = 1024;
+    private static final int TABLE_MB = 16;
+
+    private final GameService gameService;
+    private final UserService userService;
+    private final ParallelSearch search;
+    private final ThreadPoolExecutor executor;
+    private final int perUserLimit;
+
+    // Only users with a request in progress have an entry, and it is only changed inside compute
+    private final Map<String, AtomicInteger> activeByUser = new ConcurrentHashMap<>();
+    // Guarded by its own lock, along with the waiter count of every job in it
+    private final Map<Long, Job> running = new HashMap<>();
+    private final Map<Long, Cached> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Cached> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    public AnalysisService(GameService gameService, UserService userService) {
+        this(gameService, userService, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 32, 2);
+    }
+
+    /**
+     * @param gameService where the games come from
+     * @param userService checks the auth tokens of requests
+     * @param threads how many searches may run at once
+     * @param queueLimit how many searches may wait for a thread before requests are turned away
+     * @param perUserLimit how many searches one user may wait on at once
+     */
+    public AnalysisService(GameService gameService, UserService userService, int threads, int queueLimit,
+                           int perUserLimit) {
+        this.gameService = gameService;
+        this.userService = userService;
+        // Each analysis searches on its own worker, so the searches need no helper threads
+        this.search = new ParallelSearch(new TranspositionTable(TABLE_MB), 0);
+        this.perUserLimit = perUserLimit;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueLimit), runnable -> {
+                Thread thread = new Thread(runnable, "analysis-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Starts an analysis of a game's current position, or joins one already running
+     * for the same position. Cancelling the returned future lets the search stop
+     * early if nobody else is waiting on it.
+     *
+     * @param gameID the game to analyse
+     * @param depth how many moves deep to search, or null to search until the time runs out
+     * @param timeMillis how long to search, or null for {@link #DEFAULT_TIME_MILLIS}
+     * @param authToken the auth token of the user asking
+     * @return the analysis, once the search finishes
+     */
+    public CompletableFuture<AnalysisResult> analyze(int gameID, Integer depth, Integer timeMillis, String authToken) {
+        // Validate the request
+        if ((depth != null && (depth < 1 || depth > MAX_DEPTH))
+            || (timeMillis != null && (timeMillis < 1 || timeMillis > MAX_TIME_MILLIS))) {
+            throw new BadRequestException("bad request");
+        }
+
+        // Verify the authtoken
+        AuthData authData = this.userService.getAuthData(authToken);
+        if (authData == null) {
+            throw new UnauthorizedException("unauthorized");
+        }
+
+        GameData gameData = this.gameService.getGame(gameID, authToken);
+        ChessGame game = gameData.game().copy();
+        TeamColor turn = game.getTeamTurn();
+        long key = Search.resultKey(game);
+        SearchLimits limits = new SearchLimits(depth == null ? MAX_DEPTH : depth,
+            timeMillis == null ? DEFAULT_TIME_MILLIS : timeMillis, 0);
+
+        Cached cached = this.cache.get(key);
+        if (cached != null && cached.covers(limits)) {
+            return CompletableFuture.completedFuture(toResult(gameID, turn, cached.result()));
+        }
+
+        // Count the request against the user before it can take a place in the queue
+        String username = authData.username();
+        this.activeByUser.compute(username, (name, active) -> {
+            if ((active == null ? 0 : active.get()) >= this.perUserLimit) {
+                throw new TooManyRequestsException("too many analyses in progress");
+            }
+            if (active == null) {
+                return new AtomicInteger(1);
+            }
+            active.incrementAndGet();
+            return active;
+        });
+
+        Job job;
+        try {
+            job = this.join(key, game, limits);
+        }
+        catch (RuntimeException ex) {
+            this.release(username);
+            throw ex;
+        }
+
+        CompletableFuture<AnalysisResult> result = job.result.thenApply(found -> toResult(gameID, turn, found));
+        result.whenComplete((found, ex) -> {
+            this.release(username);
+            if (ex != null) {
+                this.leave(job);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Analyses a game's current position, waiting for the result
+     *
+     * @param gameID the game to analyse
+     * @param depth how many moves deep to search, or null to search until the time runs out
+     * @param timeMillis how long to search, or null for {@link #DEFAULT_TIME_MILLIS}
+     * @param authToken the auth token of the user asking
+     * @return the analysis
+     */
+    public AnalysisResult analyzeNow(int gameID, Integer depth, Integer timeMillis, String authToken) {
+        CompletableFuture<AnalysisResult> result = this.analyze(gameID, depth, timeMillis, authToken);
+        long wait = (timeMillis == null ? DEFAULT_TIME_MILLIS : timeMillis) + QUEUE_WAIT_MILLIS;
+        try {
+            return result.get(wait, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ServerErrorException("analysis interrupted");
+        }
+        catch (TimeoutException ex) {
+            result.cancel(false);
+            throw new TooManyRequestsException("analysis timed out waiting for a worker");
+        }
+        catch (ExecutionException | CancellationException ex) {
+            throw new ServerErrorException("analysis failed");
+        }
+    }
+
+    /**
+     * @return how many users have an analysis in progress
+     */
+    int getActiveUserCount() {
+        return this.activeByUser.size();
+    }
+
+    /**
+     * Stops every search and the worker threads
+     */
+    public void shutdown() {
+        synchronized (this.running) {
+            for (Job job : this.running.values()) {
+                job.stop.set(true);
+                job.result.cancel(false);
+            }
+            this.running.clear();
+        }
+        this.executor.shutdownNow();
+        this.search.shutdown();
+    }
+
+    /**
+     * Takes a finished request off a user's count, and forgets the user once they have none
+     */
+    private void release(String username) {
+        this.activeByUser.computeIfPresent(username, (name, active) -> active.decrementAndGet() == 0 ? null : active);
+    }
+
+    /**
+     * Waits on the running search of a position if it searches at least as hard as
+     * asked, and otherwise queues a new one
+     */
+    private Job join(long key, ChessGame game, SearchLimits limits) {
+        synchronized (this.running) {
+            Job job = this.running.get(key);
+            if (job == null || !job.covers(limits)) {
+                job = new Job(key, game, limits);
+                try {
+                    this.executor.execute(job);
+                }
+                catch (RejectedExecutionException ex) {
+                    throw new TooManyRequestsException("the analysis queue is full");
+                }
+                this.running.put(key, job);
+            }
+            job.waiters++;
+            return job;
+        }
+    }
+
+    /**
+     * Stops a search once the last request waiting on it has gone
+     */
+    private void leave(Job job) {
+        synchronized (this.running) {
+            job.waiters--;
+            if (job.waiters > 0 || job.result.isDone()) {
+                return;
+            }
+            job.stop.set(true);
+            job.result.cancel(false);
+            this.executor.remove(job);
+            this.running.remove(job.key, job);
+        }
+    }
+
+    private void finish(Job job, SearchResult found) {
+        synchronized (this.running) {
+            this.running.remove(job.key, job);
+        }
+        // Cache before answering, so that anyone asking again once answered finds it.
+        // A search stopped because nobody was waiting was already cancelled and is not kept.
+        Cached cached = new Cached(job.limits, found);
+        this.cache.put(job.key, cached);
+        if (!job.result.complete(found)) {
+            this.cache.remove(job.key, cached);
+        }
+    }
+
+    private static AnalysisResult toResult(int gameID, TeamColor turn, SearchResult found) {
+        int score = turn == TeamColor.WHITE ? found.score() : -found.score();
+        Integer mateIn = null;
+        if (Search.isMateScore(score)) {
+            int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+            mateIn = score > 0 ? moves : -moves;
+        }
+        return new AnalysisResult(gameID, found.bestMove(), score, mateIn, found.depth(), found.nodes(),
+            found.elapsedMillis(), new ArrayList<>(found.principalVariation()));
+    }
+
+    /**
+     * A finished search and the limits it was given
+     */
+    private record Cached(SearchLimits limits, SearchResult result) {
+
+        /**
+         * @return whether this search answers a request with the given limits as well as a new one would
+         */
+        private boolean covers(SearchLimits requested) {
+            return this.result.depth() >= requested.depth()
+                || (this.limits.depth() >= requested.depth() && this.limits.timeMillis() >= requested.timeMillis());
+        }
+    }
+
+    /**
+     * One search of one position, shared by every request waiting on it
+     */
+    private final class Job implements Runnable {
+        private final long key;
+        private final ChessGame game;
+        private final SearchLimits limits;
+        private final AtomicBoolean stop = new AtomicBoolean();
+        private final CompletableFuture<SearchResult> result = new CompletableFuture<>();
+        private int waiters;
+
+        private Job(long key, ChessGame game, SearchLimits limits) {
+            this.key = key;
+            this.game = game;
+            this.limits = limits;
+        }
+
+        /**
+         * @return whether this search answers a request with the given limits as well as a new one would
+         */
+        private boolean covers(SearchLimits requested) {
+            return this.limits.depth() >= requested.depth() && this.limits.timeMillis() >= requested.timeMillis();
+        }
+
+        @Override
+        public void run() {
+            if (this.stop.get()) {
+                return;
+            }
+            try {
+                finish(this, search.search(this.game, this.limits, 1, this.stop));
+            }
+            catch (RuntimeException ex) {
+                synchronized (running) {
+                    running.remove(this.key, this);
+                }
+                this.result.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import model.AuthData;
+
+/**
+ * Remembers recent auth token lookups so that repeats do not reach the database.
+ * <p>
+ * Every REST call and WebSocket command looks its token up, and almost all of those
+ * lookups are for tokens seen a moment ago. Valid tokens are remembered for the
+ * TTL and tokens that were not found for the shorter negative TTL, so a client
+ * retrying with a bad token does not hit the database either. The cache is split
+ * into stripes, each an access-ordered map that drops its least recently used
+ * entry when full, so threads only contend when their tokens share a stripe.
+ * <p>
+ * Invalidating a token also bumps its stripe's epoch. A lookup that started
+ * before the invalidation and read the token from the database does not cache
+ * what it read, so a logged-out token cannot come back.
+ */
+final class AuthCache {
+
+    static final int DEFAULT_CAPACITY = 10_000;
+    static final long DEFAULT_TTL_MILLIS = 60_000;
+    static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5_000;
+
+    private static final int STRIPES = 16;
+
+    /**
+     * A cached lookup; a null authData means the token was not found
+     */
+    private record Entry(AuthData authData, long expiresNanos) {}
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    /**
+     * @param capacity about how many tokens to remember
+     * @param ttlMillis how long a valid token is remembered
+     * @param negativeTtlMillis how long a token that was not found is remembered, or 0 to not remember it
+     */
+    AuthCache(int capacity, long ttlMillis, long negativeTtlMillis) {
+        if (capacity < 1 || ttlMillis < 0 || negativeTtlMillis < 0) {
+            throw new IllegalArgumentException("the auth cache needs a positive capacity and TTLs that are not negative");
+        }
+        int perStripe = Math.max(1, (capacity + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(perStripe);
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+    }
+
+    /**
+     * Looks a token up, asking the loader only if the token is not cached or its entry expired
+     *
+     * @param authToken the token
+     * @param loader reads the token from the database, returning null if it is not there
+     * @return the token's auth data, or null if it is not a valid token
+     */
+    AuthData get(String authToken, Function<String, AuthData> loader) {
+        Stripe stripe = this.stripeOf(authToken);
+        long epoch;
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(authToken);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresNanos() < 0) {
+                    return entry.authData();
+                }
+                stripe.entries.remove(authToken);
+            }
+            epoch = stripe.epoch;
+        }
+
+        // Load outside the lock, since it is a database round trip
+        AuthData authData = loader.apply(authToken);
+        long ttl = authData == null ? this.negativeTtlNanos : this.ttlNanos;
+        if (ttl > 0) {
+            synchronized (stripe) {
+                if (stripe.epoch == epoch) {
+                    stripe.entries.put(authToken, new Entry(authData, System.nanoTime() + ttl));
+                }
+            }
+        }
+        return authData;
+    }
+
+    /**
+     * Remembers a token that was just issued
+     */
+    void put(AuthData authData) {
+        if (this.ttlNanos == 0) {
+            return;
+        }
+        Stripe stripe = this.stripeOf(authData.authToken());
+        synchronized (stripe) {
+            stripe.entries.put(authData.authToken(), new Entry(authData, System.nanoTime() + this.ttlNanos));
+        }
+    }
+
+    /**
+     * Forgets a token, including any lookup of it that is still in flight
+     */
+    void invalidate(String authToken) {
+        Stripe stripe = this.stripeOf(authToken);
+        synchronized (stripe) {
+            stripe.entries.remove(authToken);
+            stripe.epoch++;
+        }
+    }
+
+    /**
+     * Forgets every token
+     */
+    void clear() {
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+                stripe.epoch++;
+            }
+        }
+    }
+
+    /**
+     * @return how many tokens are remembered, including expired ones not yet dropped
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeOf(String authToken) {
+        int hash = authToken.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * One part of the cache. Guarded by itself.
+     */
+    private static final class Stripe {
+        private final Map<String, Entry> entries;
+        private long epoch;
+
+        private Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return this.size() > capacity;
+                }
+            };
+        }
+    }
+}
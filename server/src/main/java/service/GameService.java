@@ -1,14 +1,24 @@
 package service;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import chess.ChessGame;
 import chess.ChessPiece;
+import chess.InvalidMoveException;
 import chess.ChessGame.TeamColor;
+import chess.pgn.GameRecord;
+import chess.pgn.PgnWriter;
 import dataaccess.GameDAO;
 import dataaccess.SQLGameDAO;
+import dataaccess.WriteBehindGameDAO;
 import exceptions.BadRequestException;
 import exceptions.ForbiddenException;
+import exceptions.ServerErrorException;
 import exceptions.UnauthorizedException;
 import model.AuthData;
 import model.GameData;
@@ -22,12 +32,28 @@ import results.ListGamesResult;
 import results.MakeMoveResult;
 
 public class GameService {
+    // How many games an export of every game reads at once
+    private static final int EXPORT_PAGE_SIZE = 100;
+
     private GameDAO gameDAO;
     private UserService userService;
     private int nextGameId;
+    // The in-memory cache in front of the database, if this service made one
+    private WriteBehindGameDAO gameCache;
     
     public GameService(UserService userService) {
-        this.gameDAO = new SQLGameDAO();
+        this(userService, WriteBehindGameDAO.DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Keeps the games being played in memory and writes them to the database in the background
+     *
+     * @param userService checks the auth tokens
+     * @param flushIntervalMillis how often changed games are written to the database
+     */
+    public GameService(UserService userService, long flushIntervalMillis) {
+        this.gameCache = new WriteBehindGameDAO(new SQLGameDAO(), flushIntervalMillis, true);
+        this.gameDAO = this.gameCache;
         this.userService = userService;
         this.nextGameId = 1;
     }
@@ -182,8 +208,8 @@ public class GameService {
             throw new ForbiddenException("the game is already over");
         }
 
-        // update the game to the game over status
-        gameData.game().setGameOver(true);
+        // update the game to the game over status, remembering who resigned for the result
+        gameData.game().resign(gameData.whiteUsername().equals(authData.username()) ? TeamColor.WHITE : TeamColor.BLACK);
 
         gameDAO.updateGame(gameData);
     }
@@ -257,7 +283,99 @@ public class GameService {
         return gameData;
     }
 
+    /**
+     * Exports a game as PGN
+     *
+     * @param gameID the game to export
+     * @param authToken the auth token of the user asking
+     * @return the game's tags and moves in PGN
+     */
+    public String exportPgn(int gameID, String authToken) {
+        GameData gameData = this.getGame(gameID, authToken);
+        StringBuilder pgn = new StringBuilder();
+        this.writePgn(new PgnWriter(pgn), gameData);
+        return pgn.toString();
+    }
+
+    /**
+     * Exports every game as PGN, one after another. Games are read a page at a time
+     * and written as they are read, so memory does not grow with the number of games.
+     * <p>
+     * The output is only opened once the user is authorized and the first page has
+     * been read, so a failure before then is thrown with nothing written. A failure
+     * after that cannot change a response that has started, so it ends the export with
+     * a PGN escape line saying why, which PGN readers skip.
+     *
+     * @param authToken the auth token of the user asking
+     * @param output opens where to write the games, which is flushed once they are written
+     */
+    public void exportAllPgn(String authToken, Supplier<Appendable> output) {
+        // Verify the authToken
+        if (!this.userService.isAuthorized(authToken)) {
+            throw new UnauthorizedException("unauthorized");
+        }
+
+        // Game IDs start at 1
+        List<GameData> page = this.gameDAO.getGamesAfter(0, EXPORT_PAGE_SIZE);
+        Appendable out = output.get();
+        PgnWriter writer = new PgnWriter(out);
+        try {
+            while (true) {
+                for (GameData gameData : page) {
+                    this.writePgn(writer, gameData);
+                }
+                if (page.size() < EXPORT_PAGE_SIZE) {
+                    break;
+                }
+                page = this.gameDAO.getGamesAfter(page.get(page.size() - 1).gameID(), EXPORT_PAGE_SIZE);
+            }
+        }
+        catch (ServerErrorException ex) {
+            ex.printStackTrace();
+            try {
+                out.append("\n% export failed: ").append(ex.getMessage()).append('\n');
+            }
+            catch (IOException writeEx) {
+                // The output is what failed, so there is nowhere to say so
+            }
+        }
+        try {
+            writer.flush();
+        }
+        catch (IOException ex) {
+            // The client went away
+        }
+    }
+
+    private void writePgn(PgnWriter writer, GameData gameData) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", gameData.gameName());
+        tags.put("Site", "?");
+        tags.put("Date", "????.??.??");
+        tags.put("Round", "-");
+        tags.put("White", gameData.whiteUsername() == null ? "?" : gameData.whiteUsername());
+        tags.put("Black", gameData.blackUsername() == null ? "?" : gameData.blackUsername());
+        // GameRecord.of replaces this with the result if the game is over
+        tags.put("Result", GameRecord.UNKNOWN_RESULT);
+
+        try {
+            writer.write(tags, gameData.game());
+        }
+        catch (IOException | InvalidMoveException ex) {
+            throw new ServerErrorException("could not write game " + gameData.gameID());
+        }
+    }
+
     public void clearAllData() {
         this.gameDAO.clearAllData();
     }
+
+    /**
+     * Writes every game that changed since the last flush and stops flushing in the background
+     */
+    public void shutdown() {
+        if (this.gameCache != null) {
+            this.gameCache.close();
+        }
+    }
 }
@@ -0,0 +1,262 @@
+package service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Issues and verifies signed session tokens, so that checking a token does not need the database.
+ * <p>
+ * A token is {@code keyID.username.issuedAt.expiresAt.nonce.signature}: the username
+ * in URL-safe Base64, the times in epoch milliseconds, random bytes so that two
+ * sessions started at the same moment differ, and an HMAC-SHA256 of everything before the
+ * signature under the key named by the key ID. Tokens are signed with the current
+ * key and verified with any key that has not been retired, so keys are rotated by
+ * adding a new current key and retiring the old one once the tokens it signed have
+ * expired. The signature doubles as the token's ID for revocation, so only its
+ * canonical encoding is accepted; otherwise a revoked token could be made to look
+ * new by changing the unused bits of its last character.
+ */
+public final class SessionTokens {
+
+    static final long DEFAULT_TTL_SECONDS = 12 * 60 * 60;
+    // HMAC-SHA256 keys shorter than its output weaken it
+    private static final int MIN_KEY_BYTES = 32;
+    private static final int NONCE_BYTES = 8;
+    private static final int PARTS = 6;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        }
+        catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ALGORITHM + " is not available", ex);
+        }
+    });
+
+    /**
+     * What a valid token says
+     *
+     * @param keyID the key that signed it
+     * @param username who it was issued to
+     * @param issuedAt when it was issued, in epoch milliseconds
+     * @param expiresAt when it stops being valid, in epoch milliseconds
+     * @param tokenID the token's signature, which identifies it
+     */
+    public record Claims(String keyID, String username, long issuedAt, long expiresAt, String tokenID) {}
+
+    /**
+     * The signing key and every key that can still verify
+     */
+    private record Keys(String currentKeyID, Map<String, SecretKeySpec> byID) {}
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private volatile Keys keys;
+
+    /**
+     * @param keyID names the first signing key
+     * @param secret the first signing key, at least 32 bytes
+     * @param ttlSeconds how long a token is valid
+     */
+    public SessionTokens(String keyID, byte[] secret, long ttlSeconds) {
+        this(keyID, secret, ttlSeconds, System::currentTimeMillis);
+    }
+
+    SessionTokens(String keyID, byte[] secret, long ttlSeconds, LongSupplier clock) {
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("tokens must be valid for at least a second");
+        }
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.clock = clock;
+        this.keys = new Keys(keyID, Map.of(keyID, key(keyID, secret)));
+    }
+
+    /**
+     * Reads the token keys from the {@code auth.properties} resource, if there is one.
+     * {@code auth.tokens.keys} lists {@code keyID:base64Secret} pairs separated by commas,
+     * the first of which signs; {@code auth.tokens.ttlSeconds} is optional.
+     *
+     * @return the tokens, or null if signed tokens are not configured
+     */
+    public static SessionTokens load() {
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("auth.properties")) {
+            if (propStream == null) {
+                return null;
+            }
+            Properties props = new Properties();
+            props.load(propStream);
+            return fromProperties(props);
+        }
+        catch (Exception ex) {
+            throw new RuntimeException("unable to process auth.properties", ex);
+        }
+    }
+
+    static SessionTokens fromProperties(Properties props) {
+        String keyList = props.getProperty("auth.tokens.keys");
+        if (keyList == null || keyList.isBlank()) {
+            return null;
+        }
+        long ttlSeconds = Long.parseLong(props.getProperty("auth.tokens.ttlSeconds", String.valueOf(DEFAULT_TTL_SECONDS)));
+
+        // Add the verifying keys first, so that the first key listed ends up current
+        String[] entries = keyList.split(",");
+        SessionTokens tokens = null;
+        for (int i = entries.length - 1; i >= 0; i--) {
+            String entry = entries[i].trim();
+            int colon = entry.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("token keys are listed as keyID:base64Secret");
+            }
+            String keyID = entry.substring(0, colon);
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1));
+            if (tokens == null) {
+                tokens = new SessionTokens(keyID, secret, ttlSeconds);
+            }
+            else {
+                tokens.rotate(keyID, secret);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Issues a token signed with the current key
+     *
+     * @param username who the token is for
+     * @return the token
+     */
+    public String issue(String username) {
+        Keys current = this.keys;
+        long issuedAt = this.clock.getAsLong();
+        byte[] nonce = new byte[NONCE_BYTES];
+        RANDOM.nextBytes(nonce);
+        String payload = current.currentKeyID() + '.'
+            + ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + '.'
+            + issuedAt + '.' + (issuedAt + this.ttlMillis) + '.' + ENCODER.encodeToString(nonce);
+        return payload + '.' + ENCODER.encodeToString(sign(current.byID().get(current.currentKeyID()), payload));
+    }
+
+    /**
+     * Checks a token's signature and expiry
+     *
+     * @param token the token
+     * @return what the token says, or null if it is malformed, forged, signed by a retired key or expired
+     */
+    public Claims verify(String token) {
+        // Where each part ends: key ID, username, issued at, expires at, nonce, signature
+        int[] ends = new int[PARTS];
+        int parts = 0;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') {
+                if (parts == PARTS - 1) {
+                    return null;
+                }
+                ends[parts++] = i;
+            }
+        }
+        ends[parts++] = token.length();
+        if (parts != PARTS || ends[0] == 0) {
+            return null;
+        }
+        int keyEnd = ends[0];
+        int userEnd = ends[1];
+        int issuedEnd = ends[2];
+        int expiresEnd = ends[3];
+        int nonceEnd = ends[4];
+
+        SecretKeySpec key = this.keys.byID().get(token.substring(0, keyEnd));
+        if (key == null) {
+            return null;
+        }
+        try {
+            String signature = token.substring(nonceEnd + 1);
+            byte[] expected = sign(key, token.substring(0, nonceEnd));
+            // Compare in constant time, so the time taken says nothing about the right signature
+            if (!MessageDigest.isEqual(expected, DECODER.decode(signature))
+                || !ENCODER.encodeToString(expected).equals(signature)) {
+                return null;
+            }
+
+            long expiresAt = Long.parseLong(token, issuedEnd + 1, expiresEnd, 10);
+            if (this.clock.getAsLong() >= expiresAt) {
+                return null;
+            }
+            String username = new String(DECODER.decode(token.substring(keyEnd + 1, userEnd)), StandardCharsets.UTF_8);
+            long issuedAt = Long.parseLong(token, userEnd + 1, issuedEnd, 10);
+            return new Claims(token.substring(0, keyEnd), username, issuedAt, expiresAt, signature);
+        }
+        catch (IllegalArgumentException ex) {
+            // Not Base64 or not a number, so not a token this server issued
+            return null;
+        }
+    }
+
+    /**
+     * Whether a token looks like one of these rather than an auth table token
+     */
+    static boolean isSigned(String token) {
+        return token.indexOf('.') >= 0;
+    }
+
+    /**
+     * Makes a new key the one that signs. Tokens signed with the old keys stay valid.
+     *
+     * @param keyID names the key
+     * @param secret the key, at least 32 bytes
+     */
+    public synchronized void rotate(String keyID, byte[] secret) {
+        Map<String, SecretKeySpec> byID = new LinkedHashMap<>(this.keys.byID());
+        byID.put(keyID, key(keyID, secret));
+        this.keys = new Keys(keyID, Map.copyOf(byID));
+    }
+
+    /**
+     * Stops accepting tokens signed with a key
+     *
+     * @param keyID the key, which must not be the one that signs
+     */
+    public synchronized void retire(String keyID) {
+        if (keyID.equals(this.keys.currentKeyID())) {
+            throw new IllegalArgumentException("the signing key cannot be retired");
+        }
+        Map<String, SecretKeySpec> byID = new LinkedHashMap<>(this.keys.byID());
+        byID.remove(keyID);
+        this.keys = new Keys(this.keys.currentKeyID(), Map.copyOf(byID));
+    }
+
+    private static SecretKeySpec key(String keyID, byte[] secret) {
+        if (keyID.isEmpty() || keyID.indexOf('.') >= 0) {
+            throw new IllegalArgumentException("a key ID cannot be empty or contain '.'");
+        }
+        if (secret.length < MIN_KEY_BYTES) {
+            throw new IllegalArgumentException("token keys must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        return new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    private static byte[] sign(SecretKeySpec key, String payload) {
+        Mac mac = MAC.get();
+        try {
+            mac.init(key);
+        }
+        catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("could not sign a session token", ex);
+        }
+        return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import dataaccess.UserDAO;
+
+/**
+ * The signed session tokens that were logged out before they expired.
+ * <p>
+ * The DAO holds the revocations so that every server sees them, and each server
+ * keeps a copy in memory so that checking a token never waits on the database.
+ * The copy is loaded when the server starts and then refreshed on a background
+ * thread once per refresh interval. A refresh only reads the revocations made since
+ * the last one, looking a little further back to allow for servers whose clocks
+ * differ and for writes that commit late. Expired revocations are dropped from the
+ * copy on every refresh, and from the DAO far less often, since an expired token is
+ * rejected anyway.
+ */
+final class TokenRevocations implements AutoCloseable {
+
+    static final long DEFAULT_REFRESH_MILLIS = 5000;
+    // How far before the last refresh the next one reads
+    static final long LOOKBACK_MILLIS = 60_000;
+    static final long CLEANUP_MILLIS = 10 * 60_000;
+
+    private final UserDAO userDAO;
+    private final LongSupplier clock;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    // Null if the copy is only refreshed by calling refresh()
+    private final ScheduledExecutorService refresher;
+
+    // Guarded by this
+    private boolean loaded;
+    private long loadedAt;
+    private long nextCleanup;
+
+    /**
+     * @param userDAO where the revocations are kept
+     * @param refreshMillis how often revocations made by other servers are picked up, or 0
+     * to only pick them up on {@link #refresh()}
+     * @param clock the current time in epoch milliseconds
+     */
+    TokenRevocations(UserDAO userDAO, long refreshMillis, LongSupplier clock) {
+        this.userDAO = userDAO;
+        this.clock = clock;
+        this.nextCleanup = clock.getAsLong() + CLEANUP_MILLIS;
+        this.refresh();
+
+        if (refreshMillis > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "token-revocations");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        }
+        else {
+            this.refresher = null;
+        }
+    }
+
+    /**
+     * @param claims a token that verified
+     * @return whether the token was logged out
+     */
+    boolean isRevoked(SessionTokens.Claims claims) {
+        return this.revoked.containsKey(claims.tokenID());
+    }
+
+    /**
+     * Logs a token out on every server
+     *
+     * @param claims the token
+     */
+    void revoke(SessionTokens.Claims claims) {
+        this.userDAO.revokeToken(claims.tokenID(), claims.expiresAt(), this.clock.getAsLong());
+        this.revoked.put(claims.tokenID(), claims.expiresAt());
+    }
+
+    /**
+     * Forgets the revocations held in memory
+     */
+    void clear() {
+        this.revoked.clear();
+    }
+
+    /**
+     * Picks up the revocations made since the last refresh, and deletes the expired
+     * ones from the DAO if that is due. If the DAO fails, the copy is checked as it is
+     * and the next refresh reads from where this one should have.
+     */
+    synchronized void refresh() {
+        long now = this.clock.getAsLong();
+        try {
+            if (now >= this.nextCleanup) {
+                this.userDAO.deleteExpiredRevocations(now);
+                this.nextCleanup = now + CLEANUP_MILLIS;
+            }
+            this.revoked.putAll(this.userDAO.getRevokedTokens(this.loaded ? this.loadedAt - LOOKBACK_MILLIS : 0));
+            this.loaded = true;
+            this.loadedAt = now;
+        }
+        catch (RuntimeException ex) {
+            // Keep checking against the copy; the next refresh tries the database again
+        }
+        this.revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    /**
+     * Stops the background refresh
+     */
+    @Override
+    public void close() {
+        if (this.refresher != null) {
+            this.refresher.shutdownNow();
+        }
+    }
+}
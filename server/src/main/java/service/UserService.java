@@ -19,13 +19,34 @@ import results.RegisterResult;
 public class UserService {
 
     private UserDAO userDAO;
+    private AuthCache authCache;
+    // Null unless signed session tokens are configured
+    private SessionTokens sessionTokens;
+    private TokenRevocations revocations;
+    // Signed tokens issued before this time, in epoch milliseconds, were issued before the data was cleared
+    private volatile long signedNotBefore;
 
     public UserService() {
-        this.userDAO = new SQLUserDAO();
+        this(new SQLUserDAO(), SessionTokens.load());
     }
 
     public UserService(UserDAO dao) {
+        this(dao, null);
+    }
+
+    /**
+     * @param dao where users, auth tokens and revoked session tokens are kept
+     * @param sessionTokens issues and verifies signed tokens, or null to keep tokens in the auth table
+     */
+    public UserService(UserDAO dao, SessionTokens sessionTokens) {
         this.userDAO = dao;
+        this.authCache = new AuthCache(AuthCache.DEFAULT_CAPACITY, AuthCache.DEFAULT_TTL_MILLIS,
+            AuthCache.DEFAULT_NEGATIVE_TTL_MILLIS);
+        this.sessionTokens = sessionTokens;
+        if (sessionTokens != null) {
+            this.revocations = new TokenRevocations(dao, TokenRevocations.DEFAULT_REFRESH_MILLIS,
+                System::currentTimeMillis);
+        }
     }
 
     public RegisterResult register(RegisterRequest registerRequest) {
@@ -49,7 +70,6 @@ public class UserService {
         this.userDAO.createUser(user);
 
         AuthData authData = createAuthData(user.username());
-        this.userDAO.createAuth(authData);
 
         return new RegisterResult(user.username(), authData.authToken());
     }
@@ -74,7 +94,6 @@ public class UserService {
 
         // Create auth data
         AuthData authData = createAuthData(userData.username());
-        this.userDAO.createAuth(authData);
 
         return new LoginResult(userData.username(), authData.authToken());
     }
@@ -85,30 +104,94 @@ public class UserService {
             throw new BadRequestException("bad request");
         }
 
+        // A signed token cannot be deleted, so it is revoked until it expires
+        if (this.isSignedToken(authToken)) {
+            SessionTokens.Claims claims = this.verifySignedToken(authToken);
+            if (claims == null) {
+                throw new UnauthorizedException("unauthorized");
+            }
+            this.revocations.revoke(claims);
+            return;
+        }
+
         // Verify that the authoken is valid
-        AuthData authData = this.userDAO.getAuthData(authToken);
+        AuthData authData = this.getAuthData(authToken);
         if (authData == null) {
             throw new UnauthorizedException("unauthorized");
         }
 
-        // Remove the authdata
+        // Remove the authdata, then forget it so that it stops working right away
         this.userDAO.deleteAuthData(authData.authToken());
+        this.authCache.invalidate(authData.authToken());
     }
 
     public boolean isAuthorized(String authToken) {
-        return !(this.userDAO.getAuthData(authToken) == null);
+        return !(this.getAuthData(authToken) == null);
     }
 
+    /**
+     * Looks up an auth token, from the cache if it was looked up recently
+     *
+     * @param authToken the token
+     * @return the token's auth data, or null if it is not a valid token
+     */
     public AuthData getAuthData(String authToken) {
-        return this.userDAO.getAuthData(authToken);
+        if (authToken == null) {
+            return null;
+        }
+        if (this.isSignedToken(authToken)) {
+            SessionTokens.Claims claims = this.verifySignedToken(authToken);
+            return claims == null ? null : new AuthData(authToken, claims.username());
+        }
+        return this.authCache.get(authToken, this.userDAO::getAuthData);
     }
 
     public void clearAllData() {
+        this.authCache.clear();
+        if (this.revocations != null) {
+            this.revocations.clear();
+            // The users the signed tokens name are gone, but the tokens cannot be deleted
+            this.signedNotBefore = System.currentTimeMillis();
+        }
         this.userDAO.clearAllData();
     }
     
+    /**
+     * Stops refreshing the revoked session tokens in the background
+     */
+    public void shutdown() {
+        if (this.revocations != null) {
+            this.revocations.close();
+        }
+    }
+
+    /**
+     * Issues a signed token if they are configured, or stores a random one in the auth table
+     */
     private AuthData createAuthData(String username) {
-        return new AuthData(UUID.randomUUID().toString(), username);
+        if (this.sessionTokens != null) {
+            return new AuthData(this.sessionTokens.issue(username), username);
+        }
+        AuthData authData = new AuthData(UUID.randomUUID().toString(), username);
+        this.userDAO.createAuth(authData);
+        this.authCache.put(authData);
+        return authData;
+    }
+
+    /**
+     * @return what a signed token says, or null if it is invalid, revoked or older than the last clear
+     */
+    private SessionTokens.Claims verifySignedToken(String authToken) {
+        SessionTokens.Claims claims = this.sessionTokens.verify(authToken);
+        if (claims == null || claims.issuedAt() < this.signedNotBefore || this.revocations.isRevoked(claims)) {
+            return null;
+        }
+        return claims;
+    }
+
+    // Auth table tokens issued before signed tokens were turned on keep working until they log out
+    private boolean isSignedToken(String authToken) {
+        return this.sessionTokens != null && SessionTokens.isSigned(authToken);
     }
 
     private String hashPassword(String password) {
@@ -0,0 +1,191 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTests {
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void reusesConnectionsThatWereGivenBack() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(0, 4, 1000, 60_000, 60_000, 1));
+
+        Connection first = pool.borrow();
+        first.setAutoCommit(true);
+        first.close();
+        first.close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, () -> first.setAutoCommit(true));
+
+        try (Connection second = pool.borrow()) {
+            assertNotSame(first, second);
+            assertEquals(1, opened.size());
+            assertEquals(1, pool.getStats().active());
+        }
+        ConnectionPool.Stats stats = pool.getStats();
+        assertEquals(0, stats.active());
+        assertEquals(1, stats.idle());
+        assertEquals(2, stats.borrows());
+        assertFalse(opened.get(0).closed);
+    }
+
+    @Test
+    public void waitsForAConnectionAndTimesOut() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(0, 1, 200, 60_000, 60_000, 1));
+        Connection held = pool.borrow();
+
+        long start = System.nanoTime();
+        assertThrows(DataAccessException.class, () -> pool.borrow());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(1, pool.getStats().timeouts());
+
+        // A borrower that is waiting gets the connection as soon as it comes back
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            }
+            catch (DataAccessException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        while (pool.getStats().waiters() == 0) {
+            Thread.sleep(1);
+        }
+        held.close();
+        waiting.get(1, TimeUnit.SECONDS).close();
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void replacesConnectionsThatFailValidation() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(0, 2, 1000, 60_000, 0, 1));
+        pool.borrow().close();
+        opened.get(0).valid = false;
+        Thread.sleep(2);
+
+        pool.borrow().close();
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed);
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    public void rollsBackWhatTheBorrowerLeftOpen() throws Exception {
+        pool = newPool(ConnectionPool.Settings.DEFAULT);
+        Connection connection = pool.borrow();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        assertEquals(1, opened.get(0).rollbacks);
+        assertTrue(opened.get(0).autoCommit);
+    }
+
+    @Test
+    public void evictsIdleConnectionsDownToTheMinimum() throws Exception {
+        pool = newPool(new ConnectionPool.Settings(1, 4, 1000, 1, 60_000, 1));
+        List<Connection> borrowed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            borrowed.add(pool.borrow());
+        }
+        for (Connection connection : borrowed) {
+            connection.close();
+        }
+        Thread.sleep(5);
+
+        pool.evictIdle();
+        assertEquals(1, pool.getStats().idle());
+        assertEquals(2, opened.stream().filter(connection -> connection.closed).count());
+
+        // The minimum is opened ahead of time
+        ConnectionPool warm = newPool(new ConnectionPool.Settings(2, 4, 1000, 60_000, 60_000, 1));
+        warm.evictIdle();
+        assertEquals(2, warm.getStats().idle());
+        assertEquals(5, opened.size());
+        warm.close();
+        assertTrue(opened.get(3).closed && opened.get(4).closed);
+    }
+
+    @Test
+    public void refusesToLendOnceClosed() throws Exception {
+        pool = newPool(ConnectionPool.Settings.DEFAULT);
+        Connection connection = pool.borrow();
+        pool.close();
+        assertThrows(DataAccessException.class, () -> pool.borrow());
+
+        // A connection given back after the pool closed is closed instead
+        connection.close();
+        assertTrue(opened.get(0).closed);
+    }
+
+    private ConnectionPool newPool(ConnectionPool.Settings settings) {
+        return new ConnectionPool(() -> {
+            FakeConnection connection = new FakeConnection();
+            synchronized (opened) {
+                opened.add(connection);
+            }
+            return connection.proxy();
+        }, settings);
+    }
+
+    /**
+     * Just enough of a connection for the pool to manage
+     */
+    private static class FakeConnection {
+        volatile boolean closed;
+        volatile boolean valid = true;
+        volatile boolean autoCommit = true;
+        volatile int rollbacks;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close" -> closed = true;
+                            case "isClosed" -> {
+                                return closed;
+                            }
+                            case "isValid" -> {
+                                return valid && !closed;
+                            }
+                            case "getAutoCommit" -> {
+                                return autoCommit;
+                            }
+                            case "setAutoCommit" -> autoCommit = (Boolean) args[0];
+                            case "rollback" -> rollbacks++;
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            default -> {
+                            }
+                        }
+                        return null;
+                    });
+        }
+    }
+}
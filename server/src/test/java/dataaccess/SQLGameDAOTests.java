@@ -9,6 +9,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -96,6 +97,21 @@ public class SQLGameDAOTests {
       assertTrue(games.isEmpty());
   }
 
+    // GET GAMES AFTER TESTS
+    @Test
+    public void getGamesAfterReadsOnePageInOrder() {
+        // Create the games out of order
+        for (int i = 5; i >= 1; i--) {
+            gameDAO.createGame(new GameData(i, null, null, "game" + i, new ChessGame()));
+        }
+
+        // Fetch the pages and verify they pick up where the last one stopped
+        assertEquals(List.of(1, 2), gameDAO.getGamesAfter(0, 2).stream().map(GameData::gameID).toList());
+        assertEquals(List.of(3, 4), gameDAO.getGamesAfter(2, 2).stream().map(GameData::gameID).toList());
+        assertEquals(List.of(5), gameDAO.getGamesAfter(4, 2).stream().map(GameData::gameID).toList());
+        assertTrue(gameDAO.getGamesAfter(5, 2).isEmpty());
+    }
+
     // UPDATE GAME TESTS
     @Test
     public void updateGameSucceeds() {
@@ -0,0 +1,173 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+
+public class WriteBehindGameDAOTests {
+
+    private final CountingGameDAO stored = new CountingGameDAO();
+    private WriteBehindGameDAO cache;
+
+    @AfterEach
+    public void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void servesGamesFromMemoryAndWritesThemInABatch() throws Exception {
+        cache = new WriteBehindGameDAO(stored, 0, false);
+        cache.createGame(new GameData(1, null, null, "one", new ChessGame()));
+        cache.createGame(new GameData(2, null, null, "two", new ChessGame()));
+        assertEquals(2, stored.getAllGames().size());
+
+        for (int gameID = 1; gameID <= 2; gameID++) {
+            GameData game = cache.getGame(gameID);
+            game.game().makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+            cache.updateGame(new GameData(gameID, "white", null, game.gameName(), game.game()));
+        }
+        assertEquals(0, stored.reads);
+        assertEquals(2, cache.getDirtyCount());
+        assertNull(stored.getGame(1).whiteUsername());
+        assertEquals("white", cache.getGame(1).whiteUsername());
+        assertEquals("white", cache.getAllGames().get(0).whiteUsername());
+        assertEquals("white", cache.getGamesAfter(0, 1).get(0).whiteUsername());
+        assertEquals(List.of(2), cache.getGamesAfter(1, 10).stream().map(GameData::gameID).toList());
+
+        cache.flush();
+        assertEquals(List.of(2), stored.batches);
+        assertEquals(0, cache.getDirtyCount());
+        assertEquals("white", stored.getGame(2).whiteUsername());
+        assertEquals(1, stored.getGame(2).game().getMoveHistory().size());
+
+        // Nothing changed, so nothing is written
+        cache.flush();
+        assertEquals(1, stored.batches.size());
+    }
+
+    @Test
+    public void handsOutCopies() throws Exception {
+        cache = new WriteBehindGameDAO(stored, 0, false);
+        stored.createGame(new GameData(1, null, null, "one", new ChessGame()));
+
+        GameData first = cache.getGame(1);
+        first.game().makeMove(new ChessMove(ChessPosition.of(2, 1), ChessPosition.of(3, 1), null));
+        GameData second = cache.getGame(1);
+        assertNotSame(first.game(), second.game());
+        assertEquals(ChessGame.TeamColor.WHITE, second.game().getTeamTurn());
+        assertEquals(1, stored.reads);
+        assertNull(cache.getGame(7));
+    }
+
+    @Test
+    public void writesAFinishedGameRightAwayWhenDurable() {
+        cache = new WriteBehindGameDAO(stored, 0, true);
+        cache.createGame(new GameData(1, "white", "black", "one", new ChessGame()));
+        cache.updateGame(new GameData(1, "white", "black", "one", new ChessGame()));
+        assertTrue(stored.batches.isEmpty());
+
+        GameData game = cache.getGame(1);
+        game.game().setGameOver(true);
+        cache.updateGame(game);
+        assertEquals(List.of(1), stored.batches);
+        assertTrue(stored.getGame(1).game().getGameOver());
+
+        // The finished game left the cache, so the next read goes to the delegate
+        int reads = stored.reads;
+        cache.getGame(1);
+        assertEquals(reads + 1, stored.reads);
+    }
+
+    @Test
+    public void flushesOnAnIntervalAndWhenClosed() throws Exception {
+        cache = new WriteBehindGameDAO(stored, 10, false);
+        cache.createGame(new GameData(1, null, null, "one", new ChessGame()));
+        cache.updateGame(new GameData(1, "white", null, "one", new ChessGame()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getDirtyCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("white", stored.getGame(1).whiteUsername());
+
+        WriteBehindGameDAO closing = new WriteBehindGameDAO(stored, 60_000, false);
+        closing.updateGame(new GameData(1, "white", "black", "one", new ChessGame()));
+        closing.close();
+        assertEquals("black", stored.getGame(1).blackUsername());
+    }
+
+    @Test
+    public void keepsGamesDirtyWhenTheWriteFails() {
+        cache = new WriteBehindGameDAO(stored, 0, false);
+        cache.updateGame(new GameData(1, "white", null, "one", new ChessGame()));
+        stored.failing = true;
+        RuntimeException failure = assertThrows(RuntimeException.class, () -> cache.flush());
+        assertEquals(1, cache.getDirtyCount());
+        assertSame(failure, cache.getFlushFailure());
+
+        stored.failing = false;
+        cache.flush();
+        assertEquals(0, cache.getDirtyCount());
+        assertNull(cache.getFlushFailure());
+    }
+
+    @Test
+    public void dropsCleanGamesNobodyUses() throws Exception {
+        cache = new WriteBehindGameDAO(stored, 0, false, 1);
+        stored.createGame(new GameData(1, null, null, "abandoned", new ChessGame()));
+        cache.getGame(1);
+        cache.updateGame(new GameData(2, "white", null, "unsaved", new ChessGame()));
+        assertEquals(2, cache.getCachedCount());
+        Thread.sleep(5);
+
+        // The dirty game stays until it has been written
+        cache.evictIdle();
+        assertEquals(1, cache.getCachedCount());
+        cache.flush();
+        cache.evictIdle();
+        assertEquals(0, cache.getCachedCount());
+
+        assertEquals("white", cache.getGame(2).whiteUsername());
+        assertEquals(2, stored.reads);
+    }
+
+    /**
+     * Counts the reads and batches that reach the stored games
+     */
+    private static class CountingGameDAO extends MemoryGameDAO {
+        final List<Integer> batches = new ArrayList<>();
+        volatile int reads;
+        volatile boolean failing;
+
+        @Override
+        public GameData getGame(int gameID) {
+            reads++;
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public synchronized void updateGames(Collection<GameData> games) {
+            if (failing) {
+                throw new IllegalStateException("the database is down");
+            }
+            batches.add(games.size());
+            super.updateGames(games);
+        }
+    }
+}
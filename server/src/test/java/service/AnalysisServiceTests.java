@@ -0,0 +1,139 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.MemoryGameDAO;
+import dataaccess.MemoryUserDAO;
+import exceptions.BadRequestException;
+import exceptions.TooManyRequestsException;
+import exceptions.UnauthorizedException;
+import requests.CreateGameRequest;
+import requests.RegisterRequest;
+import results.AnalysisResult;
+
+public class AnalysisServiceTests {
+    private UserService userService;
+    private GameService gameService;
+    private AnalysisService analysisService;
+    private String authToken;
+    private int gameID;
+
+    @BeforeEach
+    public void setup() {
+        userService = new UserService(new MemoryUserDAO());
+        gameService = new GameService(new MemoryGameDAO(), userService);
+        analysisService = new AnalysisService(gameService, userService, 1, 2, 2);
+        authToken = userService.register(new RegisterRequest("username", "password", "email")).authToken();
+        gameID = gameService.createGame(new CreateGameRequest("game"), authToken).gameID();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        analysisService.shutdown();
+    }
+
+    @Test
+    public void analyzeSuccess() {
+        AnalysisResult result = analysisService.analyzeNow(gameID, 3, 5000, authToken);
+
+        assertEquals(gameID, result.gameID());
+        assertNotNull(result.bestMove());
+        assertTrue(result.depth() >= 3);
+        assertEquals(result.bestMove(), result.principalVariation().get(0));
+    }
+
+    @Test
+    public void repeatedPositionIsServedFromTheCache() {
+        AnalysisResult first = analysisService.analyzeNow(gameID, 3, 5000, authToken);
+        CompletableFuture<AnalysisResult> second = analysisService.analyze(gameID, 2, 5000, authToken);
+
+        assertTrue(second.isDone());
+        assertEquals(first.bestMove(), second.join().bestMove());
+        assertEquals(first.nodes(), second.join().nodes());
+    }
+
+    @Test
+    public void samePositionWithADifferentHistoryIsSearchedAgain() throws InvalidMoveException {
+        int otherGame = gameService.createGame(new CreateGameRequest("other"), authToken).gameID();
+        // The knights go out and back, so Nf3 would now repeat a position of this game
+        ChessGame game = gameService.getGame(otherGame, authToken).game();
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+
+        AnalysisResult first = analysisService.analyzeNow(gameID, 3, 5000, authToken);
+        AnalysisResult second = analysisService.analyzeNow(otherGame, 3, 5000, authToken);
+
+        assertNotEquals(first.nodes(), second.nodes());
+    }
+
+    @Test
+    public void analyzeUnauthorized() {
+        assertThrows(UnauthorizedException.class, () -> analysisService.analyzeNow(gameID, 2, 1000, "bad token"));
+    }
+
+    @Test
+    public void analyzeBadLimits() {
+        assertThrows(BadRequestException.class, () -> analysisService.analyzeNow(gameID, 0, 1000, authToken));
+        assertThrows(BadRequestException.class,
+                () -> analysisService.analyzeNow(gameID, 2, AnalysisService.MAX_TIME_MILLIS + 1, authToken));
+        assertThrows(BadRequestException.class, () -> analysisService.analyzeNow(gameID + 1, 2, 1000, authToken));
+    }
+
+    @Test
+    public void perUserLimit() {
+        int otherGame = gameService.createGame(new CreateGameRequest("other"), authToken).gameID();
+        int thirdGame = gameService.createGame(new CreateGameRequest("third"), authToken).gameID();
+        // Different games in the same position share one search, so move first to make them differ
+        gameService.getGame(otherGame, authToken).game().setTeamTurn(chess.ChessGame.TeamColor.BLACK);
+
+        CompletableFuture<AnalysisResult> first = analysisService.analyze(gameID, null, 5000, authToken);
+        CompletableFuture<AnalysisResult> second = analysisService.analyze(otherGame, null, 5000, authToken);
+        assertThrows(TooManyRequestsException.class, () -> analysisService.analyze(thirdGame, null, 5000, authToken));
+
+        first.cancel(false);
+        assertEquals(1, analysisService.getActiveUserCount());
+        second.cancel(false);
+        // A user with nothing in progress is forgotten
+        assertEquals(0, analysisService.getActiveUserCount());
+        analysisService.analyze(thirdGame, null, 5000, authToken).cancel(false);
+    }
+
+    @Test
+    public void samePositionSharesOneSearch() {
+        int otherGame = gameService.createGame(new CreateGameRequest("other"), authToken).gameID();
+
+        CompletableFuture<AnalysisResult> first = analysisService.analyze(gameID, 4, 5000, authToken);
+        CompletableFuture<AnalysisResult> second = analysisService.analyze(otherGame, 4, 5000, authToken);
+
+        assertEquals(first.join().nodes(), second.join().nodes());
+        assertEquals(otherGame, second.join().gameID());
+    }
+
+    @Test
+    public void cancellingStopsTheSearch() {
+        CompletableFuture<AnalysisResult> analysis = analysisService.analyze(gameID, null, 10_000, authToken);
+        analysis.cancel(false);
+
+        // The cancelled search neither counts against the user nor fills the cache
+        CompletableFuture<AnalysisResult> next = analysisService.analyze(gameID, 2, 5000, authToken);
+        assertTrue(next.join().depth() >= 2);
+        assertSame(null, next.join().mateIn());
+    }
+}
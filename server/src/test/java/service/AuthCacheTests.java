@@ -0,0 +1,120 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import dataaccess.MemoryUserDAO;
+import exceptions.UnauthorizedException;
+import model.AuthData;
+import requests.RegisterRequest;
+import results.RegisterResult;
+
+public class AuthCacheTests {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void remembersValidAndInvalidTokens() {
+        AuthCache cache = new AuthCache(100, 60_000, 60_000);
+        Function<String, AuthData> loader = counting(token -> token.equals("good") ? new AuthData("good", "user") : null);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("user", cache.get("good", loader).username());
+            assertNull(cache.get("bad", loader));
+        }
+        assertEquals(2, loads.get());
+
+        cache.invalidate("good");
+        cache.get("good", loader);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void forgetsEntriesOnceTheyExpire() throws Exception {
+        AuthCache cache = new AuthCache(100, 20, 0);
+        Function<String, AuthData> loader = counting(token -> token.equals("good") ? new AuthData("good", "user") : null);
+
+        cache.get("good", loader);
+        cache.get("good", loader);
+        assertEquals(1, loads.get());
+        Thread.sleep(30);
+        cache.get("good", loader);
+        assertEquals(2, loads.get());
+
+        // A negative TTL of 0 means tokens that were not found are always looked up
+        cache.get("bad", loader);
+        cache.get("bad", loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedTokens() {
+        // One token per stripe
+        AuthCache cache = new AuthCache(1, 60_000, 60_000);
+        Function<String, AuthData> loader = counting(token -> new AuthData(token, "user"));
+        for (int i = 0; i < 1000; i++) {
+            cache.get("token" + i, loader);
+        }
+        assertTrue(cache.size() <= 16);
+        cache.get("token0", loader);
+        assertEquals(1001, loads.get());
+    }
+
+    @Test
+    public void doesNotCacheALookupThatRacedAnInvalidation() {
+        AuthCache cache = new AuthCache(100, 60_000, 60_000);
+        AuthData stale = cache.get("token", token -> {
+            // Logout happens while the database read is in flight
+            cache.invalidate(token);
+            return new AuthData(token, "user");
+        });
+        assertEquals("user", stale.username());
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new AuthCache(0, 1, 1));
+    }
+
+    @Test
+    public void logoutInvalidatesTheCachedToken() {
+        CountingUserDAO userDAO = new CountingUserDAO();
+        UserService userService = new UserService(userDAO);
+        RegisterResult registered = userService.register(new RegisterRequest("username", "password", "email"));
+
+        assertTrue(userService.isAuthorized(registered.authToken()));
+        assertEquals("username", userService.getAuthData(registered.authToken()).username());
+        assertEquals(0, userDAO.authReads);
+
+        userService.logout(registered.authToken());
+        assertFalse(userService.isAuthorized(registered.authToken()));
+        assertThrows(UnauthorizedException.class, () -> userService.logout(registered.authToken()));
+        assertFalse(userService.isAuthorized(null));
+        assertEquals(1, userDAO.authReads);
+    }
+
+    private Function<String, AuthData> counting(Function<String, AuthData> loader) {
+        return token -> {
+            loads.incrementAndGet();
+            return loader.apply(token);
+        };
+    }
+
+    /**
+     * Counts the auth lookups that reach the stored tokens
+     */
+    private static class CountingUserDAO extends MemoryUserDAO {
+        int authReads;
+
+        @Override
+        public AuthData getAuthData(String authToken) {
+            authReads++;
+            return super.getAuthData(authToken);
+        }
+    }
+}
@@ -13,16 +13,23 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import dataaccess.GameDAO;
+import dataaccess.MemoryGameDAO;
+import dataaccess.MemoryUserDAO;
 import dataaccess.SQLGameDAO;
 import dataaccess.SQLUserDAO;
 import dataaccess.UserDAO;
 import exceptions.BadRequestException;
 import exceptions.ForbiddenException;
+import exceptions.ServerErrorException;
 import exceptions.UnauthorizedException;
+import chess.ChessMove;
+import chess.ChessPosition;
 import model.GameData;
 import requests.CreateGameRequest;
 import requests.JoinGameRequest;
+import requests.MakeMoveRequest;
 import requests.RegisterRequest;
+import requests.ResignGameRequest;
 import results.CreateGameResult;
 import results.ListGamesResult;
 import results.RegisterResult;
@@ -162,6 +169,80 @@ public class GameServiceTests {
         assertEquals(ex.getMessage(), "color already taken");
     }
 
+    // EXPORT PGN TESTS
+    @Test
+    public void exportPgnSuccess() {
+        RegisterResult whiteResult = registerBasicUser();
+        RegisterResult blackResult = registerBasicUser("username2");
+        CreateGameResult createGameResult = gameService.createGame(new CreateGameRequest("gameName"), whiteResult.authToken());
+        gameService.joinGame(new JoinGameRequest("WHITE", createGameResult.gameID()), whiteResult.authToken());
+        gameService.joinGame(new JoinGameRequest("BLACK", createGameResult.gameID()), blackResult.authToken());
+        gameService.makeMove(new MakeMoveRequest(createGameResult.gameID(),
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null)), whiteResult.authToken());
+        gameService.makeMove(new MakeMoveRequest(createGameResult.gameID(),
+                new ChessMove(new ChessPosition(7, 3), new ChessPosition(5, 3), null)), blackResult.authToken());
+
+        String pgn = gameService.exportPgn(createGameResult.gameID(), whiteResult.authToken());
+        assertTrue(pgn.contains("[Event \"gameName\"]"));
+        assertTrue(pgn.contains("[White \"username\"]"));
+        assertTrue(pgn.contains("[Black \"username2\"]"));
+        assertTrue(pgn.contains("1. e4 c5 *"));
+
+        // A resigned game is exported with its result, not as unfinished
+        gameService.resign(new ResignGameRequest(createGameResult.gameID()), blackResult.authToken());
+        pgn = gameService.exportPgn(createGameResult.gameID(), whiteResult.authToken());
+        assertTrue(pgn.contains("[Result \"1-0\"]"));
+        assertTrue(pgn.contains("1. e4 c5 1-0"));
+    }
+
+    @Test
+    public void exportPgnInvalidAuthFails() {
+        RegisterResult registerResult = registerBasicUser();
+        CreateGameResult createGameResult = gameService.createGame(new CreateGameRequest("gameName"), registerResult.authToken());
+        assertThrows(UnauthorizedException.class, () -> gameService.exportPgn(createGameResult.gameID(), "invalid"));
+        assertThrows(UnauthorizedException.class, () -> gameService.exportAllPgn("invalid", () -> {
+            throw new AssertionError("the export started");
+        }));
+    }
+
+    @Test
+    public void exportAllPgnReadsEveryPage() {
+        RegisterResult registerResult = registerBasicUser();
+        for (int i = 1; i <= 250; i++) {
+            gameService.createGame(new CreateGameRequest("game" + i), registerResult.authToken());
+        }
+
+        StringBuilder pgn = new StringBuilder();
+        gameService.exportAllPgn(registerResult.authToken(), () -> pgn);
+        assertEquals(250, pgn.toString().split("\\[Event ", -1).length - 1);
+        assertTrue(pgn.indexOf("[Event \"game1\"]") < pgn.indexOf("[Event \"game250\"]"));
+    }
+
+    @Test
+    public void exportAllPgnReportsAFailureInsideTheExport() {
+        GameDAO failing = new MemoryGameDAO() {
+            @Override
+            public ArrayList<GameData> getGamesAfter(int afterGameID, int limit) {
+                if (afterGameID > 0) {
+                    throw new ServerErrorException("the database went away");
+                }
+                return super.getGamesAfter(afterGameID, limit);
+            }
+        };
+        UserService memoryUsers = new UserService(new MemoryUserDAO());
+        GameService service = new GameService(failing, memoryUsers);
+        String authToken = memoryUsers.register(new RegisterRequest("username", "password", "email")).authToken();
+        for (int i = 1; i <= 150; i++) {
+            service.createGame(new CreateGameRequest("game" + i), authToken);
+        }
+
+        // The first page is written, then the export ends saying why
+        StringBuilder pgn = new StringBuilder();
+        service.exportAllPgn(authToken, () -> pgn);
+        assertTrue(pgn.toString().contains("[Event \"game100\"]"));
+        assertTrue(pgn.toString().endsWith("\n% export failed: the database went away\n"));
+    }
+
     private RegisterResult registerBasicUser() {
         return registerBasicUser("username");
     }
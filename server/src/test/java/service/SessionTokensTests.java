@@ -0,0 +1,211 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import dataaccess.MemoryUserDAO;
+import exceptions.UnauthorizedException;
+import requests.LoginRequest;
+import requests.RegisterRequest;
+import results.LoginResult;
+import results.RegisterResult;
+
+public class SessionTokensTests {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    public void issuesTokensThatVerify() {
+        SessionTokens tokens = new SessionTokens("k1", secret(1), 60, now::get);
+        String token = tokens.issue("Müller.1");
+
+        SessionTokens.Claims claims = tokens.verify(token);
+        assertEquals("Müller.1", claims.username());
+        assertEquals("k1", claims.keyID());
+        assertEquals(1_700_000_000_000L, claims.issuedAt());
+        assertEquals(1_700_000_060_000L, claims.expiresAt());
+        assertTrue(token.endsWith("." + claims.tokenID()));
+        assertFalse(token.equals(tokens.issue("Müller.1")));
+
+        now.addAndGet(60_000);
+        assertNull(tokens.verify(token));
+    }
+
+    @Test
+    public void rejectsForgedAndMalformedTokens() {
+        SessionTokens tokens = new SessionTokens("k1", secret(1), 60, now::get);
+        String token = tokens.issue("user");
+        String[] parts = token.split("\\.");
+
+        // Claim to be someone else, or to expire later, with the old signature
+        String otherUser = Base64.getUrlEncoder().withoutPadding().encodeToString("admin".getBytes(StandardCharsets.UTF_8));
+        assertNull(tokens.verify(String.join(".", parts[0], otherUser, parts[2], parts[3], parts[4], parts[5])));
+        assertNull(tokens.verify(String.join(".", parts[0], parts[1], parts[2], "9999999999", parts[4], parts[5])));
+
+        // The last character has two unused bits, and changing them must not give an equally valid token
+        for (int flip = 1; flip <= 3; flip++) {
+            assertNull(tokens.verify(withUnusedBitsChanged(token, flip)));
+        }
+        assertNull(tokens.verify(token + "="));
+
+        // Signed with a key this server does not have
+        assertNull(new SessionTokens("k1", secret(2), 60, now::get).verify(token));
+
+        for (String bad : new String[] {"", ".", "k1.....", "k2.a.1.2.n.abc", token + ".x", "k1.%%.1.2.n.abc",
+                                        token.substring(0, token.length() - 2)}) {
+            assertNull(tokens.verify(bad), bad);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SessionTokens("k1", new byte[16], 60));
+        assertThrows(IllegalArgumentException.class, () -> new SessionTokens("k.1", secret(1), 60));
+    }
+
+    @Test
+    public void rotatesKeys() {
+        SessionTokens tokens = new SessionTokens("old", secret(1), 60, now::get);
+        String before = tokens.issue("user");
+
+        tokens.rotate("new", secret(2));
+        String after = tokens.issue("user");
+        assertEquals("new", tokens.verify(after).keyID());
+        assertNotNull(tokens.verify(before));
+
+        tokens.retire("old");
+        assertNull(tokens.verify(before));
+        assertNotNull(tokens.verify(after));
+        assertThrows(IllegalArgumentException.class, () -> tokens.retire("new"));
+    }
+
+    @Test
+    public void readsKeysFromProperties() {
+        Properties props = new Properties();
+        assertNull(SessionTokens.fromProperties(props));
+
+        Base64.Encoder base64 = Base64.getEncoder();
+        props.setProperty("auth.tokens.keys",
+            "b:" + base64.encodeToString(secret(2)) + ", a:" + base64.encodeToString(secret(1)));
+        props.setProperty("auth.tokens.ttlSeconds", "30");
+        SessionTokens tokens = SessionTokens.fromProperties(props);
+
+        SessionTokens.Claims claims = tokens.verify(tokens.issue("user"));
+        assertEquals("b", claims.keyID());
+        assertEquals(30_000, claims.expiresAt() - claims.issuedAt());
+        assertNotNull(tokens.verify(new SessionTokens("a", secret(1), 60).issue("user")));
+    }
+
+    @Test
+    public void logsOutSignedTokensOnEveryServer() {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        SessionTokens tokens = new SessionTokens("k1", secret(1), 60);
+        UserService first = new UserService(userDAO, tokens);
+        UserService second = new UserService(userDAO, tokens);
+
+        RegisterResult registered = first.register(new RegisterRequest("username", "password", "email"));
+        LoginResult loggedIn = first.login(new LoginRequest("username", "password"));
+        // Signed tokens never reach the auth table
+        assertNull(userDAO.getAuthData(registered.authToken()));
+        assertEquals("username", second.getAuthData(loggedIn.authToken()).username());
+
+        second.logout(loggedIn.authToken());
+        assertFalse(second.isAuthorized(loggedIn.authToken()));
+        assertFalse(new UserService(userDAO, tokens).isAuthorized(loggedIn.authToken()));
+        assertThrows(UnauthorizedException.class, () -> second.logout(loggedIn.authToken()));
+        assertTrue(first.isAuthorized(registered.authToken()));
+        assertEquals(1, userDAO.getRevokedTokens(0).size());
+
+        // Changing the unused bits of a revoked token does not bring it back
+        assertFalse(first.isAuthorized(withUnusedBitsChanged(loggedIn.authToken(), 1)));
+
+        // Tokens from the auth table keep working alongside signed ones
+        UserService tableTokens = new UserService(userDAO);
+        String stored = tableTokens.login(new LoginRequest("username", "password")).authToken();
+        assertTrue(second.isAuthorized(stored));
+        second.logout(stored);
+        assertNull(userDAO.getAuthData(stored));
+    }
+
+    @Test
+    public void rejectsTokensThatExpireOrOutliveTheirUsers() {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        SessionTokens tokens = new SessionTokens("k1", secret(1), 60, now::get);
+        UserService userService = new UserService(userDAO, tokens);
+        String token = userService.register(new RegisterRequest("username", "password", "email")).authToken();
+
+        now.addAndGet(60_000);
+        assertThrows(UnauthorizedException.class, () -> userService.logout(token));
+
+        // Tokens issued before the data was cleared name users that are gone
+        now.set(System.currentTimeMillis() - 1000);
+        String beforeClear = userService.login(new LoginRequest("username", "password")).authToken();
+        userService.clearAllData();
+        assertFalse(userService.isAuthorized(beforeClear));
+
+        now.set(System.currentTimeMillis() + 1000);
+        String afterClear = userService.register(new RegisterRequest("username", "password", "email")).authToken();
+        assertTrue(userService.isAuthorized(afterClear));
+    }
+
+    @Test
+    public void refreshesOnlyWhatChangedSinceTheLastRefresh() {
+        List<Long> reads = new ArrayList<>();
+        List<Long> cleanups = new ArrayList<>();
+        MemoryUserDAO userDAO = new MemoryUserDAO() {
+            @Override
+            public Map<String, Long> getRevokedTokens(long since) {
+                reads.add(since);
+                return super.getRevokedTokens(since);
+            }
+
+            @Override
+            public void deleteExpiredRevocations(long now) {
+                cleanups.add(now);
+                super.deleteExpiredRevocations(now);
+            }
+        };
+        long start = now.get();
+        TokenRevocations revocations = new TokenRevocations(userDAO, 0, now::get);
+        SessionTokens.Claims claims = new SessionTokens.Claims("k1", "user", start, start + 3_600_000, "token");
+        assertFalse(revocations.isRevoked(claims));
+
+        // Another server logs the token out; this one sees it after its next refresh
+        now.addAndGet(5000);
+        userDAO.revokeToken("token", claims.expiresAt(), now.get());
+        assertFalse(revocations.isRevoked(claims));
+        revocations.refresh();
+        assertTrue(revocations.isRevoked(claims));
+
+        // The first load reads everything, later ones only what is new
+        assertEquals(List.of(0L, start - TokenRevocations.LOOKBACK_MILLIS), reads);
+        assertTrue(cleanups.isEmpty());
+        now.addAndGet(TokenRevocations.CLEANUP_MILLIS);
+        revocations.refresh();
+        assertEquals(List.of(now.get()), cleanups);
+    }
+
+    // A 32 byte signature is 43 characters, the last of which only uses its top four bits
+    private static String withUnusedBitsChanged(String token, int flip) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        int last = alphabet.indexOf(token.charAt(token.length() - 1));
+        return token.substring(0, token.length() - 1) + alphabet.charAt(last ^ flip);
+    }
+
+    private static byte[] secret(int fill) {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) fill);
+        return secret;
+    }
+}
@@ -0,0 +1,309 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Precomputed attack tables for every piece type.
+ * <p>
+ * Knights, kings and pawns use a plain table indexed by square. Rooks and bishops
+ * use magic bitboards: the blockers on a slider's rays are multiplied by a magic
+ * number so the top bits form a perfect hash into a table of attack sets. The
+ * magic numbers are searched for once when the class loads, using a fixed seed so
+ * the tables are the same on every run.
+ */
+public final class Attacks {
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {
+        {2, 1}, {2, -1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {1, -2}, {-1, -2}
+    };
+    private static final int[][] KING_OFFSETS = {
+        {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}
+    };
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = stepAttacks(square, KNIGHT_OFFSETS);
+            KING[square] = stepAttacks(square, KING_OFFSETS);
+            PAWN[TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[][]{{1, 1}, {1, -1}});
+            PAWN[TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[][]{{-1, 1}, {-1, -1}});
+        }
+
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (int square = 0; square < 64; square++) {
+            initSlider(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE, random);
+            initSlider(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE, random);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                initLine(a, b, ROOK_DIRECTIONS);
+                initLine(a, b, BISHOP_DIRECTIONS);
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * @return the squares a knight on the given square attacks
+     */
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * @return the squares a king on the given square attacks
+     */
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color on the given square attacks
+     */
+    public static long pawn(TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    /**
+     * Gets the squares a rook attacks, stopping at (and including) the first
+     * occupied square in each direction
+     *
+     * @param square the square of the rook
+     * @param occupied every occupied square on the board
+     * @return the attacked squares
+     */
+    public static long rook(int square, long occupied) {
+        long blockers = occupied & ROOK_MASKS[square];
+        return ROOK_TABLE[square][(int) ((blockers * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Gets the squares a bishop attacks, stopping at (and including) the first
+     * occupied square in each direction
+     *
+     * @param square the square of the bishop
+     * @param occupied every occupied square on the board
+     * @return the attacked squares
+     */
+    public static long bishop(int square, long occupied) {
+        long blockers = occupied & BISHOP_MASKS[square];
+        return BISHOP_TABLE[square][(int) ((blockers * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * @return the squares a queen attacks on the given board occupancy
+     */
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * Gets the squares strictly between two squares that share a row, column or diagonal
+     *
+     * @return the squares in between, or an empty bitboard if the squares are not aligned
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * Gets the entire row, column or diagonal running through two squares, edge to edge
+     *
+     * @return the line through both squares, or an empty bitboard if the squares are not aligned
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * Gets the squares a piece type attacks. Pawns only count their diagonal captures.
+     *
+     * @param type the type of the piece
+     * @param color the color of the piece
+     * @param square the square of the piece
+     * @param occupied every occupied square on the board
+     * @return the attacked squares
+     */
+    public static long of(PieceType type, TeamColor color, int square, long occupied) {
+        return switch (type) {
+            case PAWN -> pawn(color, square);
+            case KNIGHT -> knight(square);
+            case BISHOP -> bishop(square, occupied);
+            case ROOK -> rook(square, occupied);
+            case QUEEN -> queen(square, occupied);
+            case KING -> king(square);
+        };
+    }
+
+    /**
+     * Gets every piece of a team that attacks a square
+     *
+     * @param board the board to check on
+     * @param square the square being attacked
+     * @param attacker the team doing the attacking
+     * @param occupied the occupancy to use for slider rays
+     * @return a bitboard of the attacking pieces
+     */
+    public static long attackersTo(ChessBoard board, int square, TeamColor attacker, long occupied) {
+        TeamColor defender = attacker == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        long queens = board.getBitboard(attacker, PieceType.QUEEN);
+
+        return (pawn(defender, square) & board.getBitboard(attacker, PieceType.PAWN))
+            | (knight(square) & board.getBitboard(attacker, PieceType.KNIGHT))
+            | (king(square) & board.getBitboard(attacker, PieceType.KING))
+            | (bishop(square, occupied) & (board.getBitboard(attacker, PieceType.BISHOP) | queens))
+            | (rook(square, occupied) & (board.getBitboard(attacker, PieceType.ROOK) | queens));
+    }
+
+    /**
+     * Determines if any piece of a team attacks a square
+     *
+     * @param board the board to check on
+     * @param square the square being attacked
+     * @param attacker the team doing the attacking
+     * @return True if the square is attacked
+     */
+    public static boolean isAttacked(ChessBoard board, int square, TeamColor attacker) {
+        return attackersTo(board, square, attacker, board.getOccupancy()) != 0;
+    }
+
+
+    private static long stepAttacks(int square, int[][] offsets) {
+        long attacks = 0;
+        for (int[] offset : offsets) {
+            int row = Bitboards.row(square) + offset[0];
+            int col = Bitboards.column(square) + offset[1];
+            if (Bitboards.onBoard(row, col)) {
+                attacks |= Bitboards.bit(Bitboards.square(row, col));
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks each ray from a square, stopping after the first blocker
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (Bitboards.onBoard(row, col)) {
+                long bit = Bitboards.bit(Bitboards.square(row, col));
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Fills the between and line tables for two squares if one of the directions connects them
+     */
+    private static void initLine(int a, int b, int[][] directions) {
+        long bBit = Bitboards.bit(b);
+        if (a == b || (slidingAttacks(a, 0, directions) & bBit) == 0) {
+            return;
+        }
+        BETWEEN[a][b] = slidingAttacks(a, bBit, directions) & slidingAttacks(b, Bitboards.bit(a), directions);
+        LINE[a][b] = (slidingAttacks(a, 0, directions) & slidingAttacks(b, 0, directions))
+            | Bitboards.bit(a) | bBit;
+    }
+
+    /**
+     * Gets the squares whose occupancy changes a slider's attacks. The last square
+     * of each ray never matters because it is attacked whether or not it is empty.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (Bitboards.onBoard(row + direction[0], col + direction[1])) {
+                mask |= Bitboards.bit(Bitboards.square(row, col));
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Finds a magic number for one square and fills its attack table
+     */
+    private static void initSlider(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                   long[][] tables, SplittableRandom random) {
+        long mask = relevantMask(square, directions);
+        int bits = Bitboards.count(mask);
+        int size = 1 << bits;
+
+        // Enumerate every subset of the mask along with the attacks it produces
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] table = new long[size];
+        int[] epoch = new int[size];
+        int attempt = 0;
+        while (true) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Long.bitCount((mask * magic) >>> 56) < 6) {
+                continue;
+            }
+
+            attempt++;
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (epoch[index] != attempt) {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                }
+                else if (table[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                tables[square] = table;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Helpers for working with 64-bit bitboards.
+ * <p>
+ * Squares are numbered 0 through 63 starting at the bottom left of the board
+ * (row 1, column 1) and moving left to right, then bottom to top. Bit {@code n}
+ * of a bitboard is set when square {@code n} is a member of the set.
+ */
+public final class Bitboards {
+
+    public static final long EMPTY = 0L;
+    public static final long FULL = -1L;
+
+    private Bitboards() {
+    }
+
+    /**
+     * Gets the square index of a row and column
+     *
+     * @param row the row (1 - 8)
+     * @param col the column (1 - 8)
+     * @return the square index (0 - 63)
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * Gets the square index of a position
+     *
+     * @param position the position on the board
+     * @return the square index (0 - 63)
+     */
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the row (1 - 8) of the given square
+     */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @return the column (1 - 8) of the given square
+     */
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return whether the row and column are on the board
+     */
+    public static boolean onBoard(int row, int col) {
+        return 1 <= row && row <= 8 && 1 <= col && col <= 8;
+    }
+
+    /**
+     * @return the shared ChessPosition for the given square
+     */
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    /**
+     * @return a bitboard with only the given square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * @return the lowest square in the bitboard, or 64 if it is empty
+     */
+    public static int lowestSquare(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * @return the number of squares in the bitboard
+     */
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    /**
+     * Gets the index of a piece kind into per-piece arrays, such as the bitboards
+     * held by a {@link ChessBoard}. White pieces come first, followed by black.
+     *
+     * @param color the color of the piece
+     * @param type the type of the piece
+     * @return the index (0 - 11)
+     */
+    public static int pieceIndex(TeamColor color, PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+}
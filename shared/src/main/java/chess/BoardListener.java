@@ -0,0 +1,27 @@
+package chess;
+
+/**
+ * Hears about every piece placed on or taken off a {@link ChessBoard}.
+ * <p>
+ * Moving a piece, capturing, promoting, castling and taking a move back are all
+ * made of these two steps, so a listener can keep running totals over the pieces
+ * (such as an evaluation) without ever scanning the board.
+ */
+public interface BoardListener {
+
+    /**
+     * Called after a piece is placed on a square
+     *
+     * @param square the square index (0 - 63)
+     * @param piece the piece that was placed
+     */
+    void pieceAdded(int square, ChessPiece piece);
+
+    /**
+     * Called after a piece is taken off a square
+     *
+     * @param square the square index (0 - 63)
+     * @param piece the piece that was removed
+     */
+    void pieceRemoved(int square, ChessPiece piece);
+}
@@ -1,7 +1,8 @@
 package chess;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
+import java.util.Collection;
 
 import chess.ChessGame.TeamColor;
 import chess.ChessPiece.PieceType;
@@ -16,6 +17,24 @@ public class ChessBoard {
 
     ChessPiece[][] squares = new ChessPiece[8][8];
 
+    // Bitboards mirroring the squares array. They are rebuilt lazily so that boards
+    // created through reflection (e.g. Gson) are indexed on first use.
+    private transient long[] pieceBitboards = new long[12];
+    private transient long[] colorBitboards = new long[2];
+    private transient long occupied;
+    private transient long zobristKey;
+
+    // Per-color lists of occupied squares, kept in step with the bitboards. A piece
+    // is removed by moving the last entry into its slot, found through pieceListIndex.
+    private transient int[][] pieceSquares = new int[2][64];
+    private transient int[] pieceCounts = new int[2];
+    private transient int[] pieceListIndex = new int[64];
+    private transient int[] kingSquares = {-1, -1};
+
+    private transient boolean indexed;
+
+    private transient BoardListener listener;
+
     public ChessBoard() {
         for (int i = 0; i < squares.length; i++) {
             for (int j = 0; j < squares.length; j++) {
@@ -31,7 +50,46 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        this.setPiece(Bitboards.square(position), piece);
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there
+     *
+     * @param square the square index (0 - 63)
+     * @param piece the piece to place, or null to clear the square
+     */
+    void setPiece(int square, ChessPiece piece) {
+        this.ensureIndexed();
+
+        ChessPiece previous = squares[square >>> 3][square & 7];
+        if (previous != null) {
+            this.toggleBits(square, previous);
+        }
+        if (piece != null) {
+            this.toggleBits(square, piece);
+        }
+
+        squares[square >>> 3][square & 7] = piece;
+
+        if (listener != null) {
+            if (previous != null) {
+                listener.pieceRemoved(square, previous);
+            }
+            if (piece != null) {
+                listener.pieceAdded(square, piece);
+            }
+        }
+    }
+
+    /**
+     * Sets the listener told about every piece added to or removed from this board.
+     * Copies of the board do not inherit it.
+     *
+     * @param listener the listener, or null to stop listening
+     */
+    public void setListener(BoardListener listener) {
+        this.listener = listener;
     }
 
     /**
@@ -45,6 +103,121 @@ public class ChessBoard {
         return squares[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    /**
+     * Gets a chess piece on the chessboard
+     *
+     * @param square the square index (0 - 63)
+     * @return Either the piece on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square >>> 3][square & 7];
+    }
+
+    /**
+     * Gets the squares occupied by one kind of piece
+     *
+     * @param color the color of the pieces
+     * @param type the type of the pieces
+     * @return a bitboard of the squares holding that piece
+     */
+    public long getBitboard(TeamColor color, PieceType type) {
+        this.ensureIndexed();
+        return pieceBitboards[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * Gets the squares occupied by a team
+     *
+     * @param color the team to get the squares for
+     * @return a bitboard of the squares holding that team's pieces
+     */
+    public long getOccupancy(TeamColor color) {
+        this.ensureIndexed();
+        return colorBitboards[color.ordinal()];
+    }
+
+    /**
+     * @return a bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        this.ensureIndexed();
+        return occupied;
+    }
+
+    /**
+     * Gets the Zobrist key of the pieces on the board. It is kept up to date as
+     * pieces are added and moved, so reading it never walks the board.
+     *
+     * @return the key of the piece placement
+     */
+    public long getZobristKey() {
+        this.ensureIndexed();
+        return zobristKey;
+    }
+
+    /**
+     * Gets the square of a team's king without searching the board
+     *
+     * @param color the team of the king
+     * @return the square index (0 - 63), or -1 if the team has no king
+     */
+    public int getKingSquare(TeamColor color) {
+        this.ensureIndexed();
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * Gets the position of a team's king without searching the board
+     *
+     * @param color the team of the king
+     * @return the king's position, or null if the team has no king
+     */
+    public ChessPosition getKingPosition(TeamColor color) {
+        int square = this.getKingSquare(color);
+        return square < 0 ? null : ChessPosition.of(square);
+    }
+
+    /**
+     * @return the number of pieces a team has on the board
+     */
+    public int getPieceCount(TeamColor color) {
+        this.ensureIndexed();
+        return pieceCounts[color.ordinal()];
+    }
+
+    /**
+     * Gets one entry of a team's piece list. Together with {@link #getPieceCount(TeamColor)}
+     * this walks a team's pieces without allocating. The order of the list is arbitrary
+     * and changes as pieces are added and removed.
+     *
+     * @param color the team of the pieces
+     * @param index the index into the list (0 to the piece count - 1)
+     * @return the square index (0 - 63) of the piece
+     */
+    public int getPieceSquare(TeamColor color, int index) {
+        this.ensureIndexed();
+        if (index >= pieceCounts[color.ordinal()]) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return pieceSquares[color.ordinal()][index];
+    }
+
+    /**
+     * Gets the positions of every piece a team has, read from the piece list
+     *
+     * @param color the team of the pieces
+     * @return a new collection of the positions
+     */
+    public Collection<ChessPosition> getPiecePositions(TeamColor color) {
+        this.ensureIndexed();
+        int count = pieceCounts[color.ordinal()];
+        Collection<ChessPosition> positions = new ArrayList<ChessPosition>(count);
+        for (int i = 0; i < count; i++) {
+            positions.add(ChessPosition.of(pieceSquares[color.ordinal()][i]));
+        }
+        return positions;
+    }
+
     /**
      * Moves a given piece
      * The piece will replace any piece including its own color
@@ -53,13 +226,14 @@ public class ChessBoard {
      */
     public void movePiece(ChessMove move) {
         ChessPiece pieceToMove = this.getPiece(move.getStartPosition());
-        
-        this.addPiece(move.getEndPosition(), pieceToMove);
         this.addPiece(move.getStartPosition(), null);
 
+        // Pieces are shared, so a promotion swaps in the promoted piece rather than changing the pawn
         if (move.getPromotionPiece() != null) {
-            pieceToMove.promotePawn(move.getPromotionPiece());
+            pieceToMove = ChessPiece.of(pieceToMove.getTeamColor(), move.getPromotionPiece());
         }
+
+        this.addPiece(move.getEndPosition(), pieceToMove);
     }
 
     /**
@@ -69,60 +243,122 @@ public class ChessBoard {
     public void resetBoard() {
         // Place pawns for both sides
         for (int i = 0; i < squares.length; i++) {
-            addPiece(new ChessPosition(2, i + 1), new ChessPiece(TeamColor.WHITE, PieceType.PAWN));
-            addPiece(new ChessPosition(7, i + 1), new ChessPiece(TeamColor.BLACK, PieceType.PAWN));
+            addPiece(ChessPosition.of(2, i + 1), ChessPiece.of(TeamColor.WHITE, PieceType.PAWN));
+            addPiece(ChessPosition.of(7, i + 1), ChessPiece.of(TeamColor.BLACK, PieceType.PAWN));
         }
 
         // Place rooks
-        addPiece(new ChessPosition(1, 1), new ChessPiece(TeamColor.WHITE, PieceType.ROOK));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(TeamColor.WHITE, PieceType.ROOK));
-        addPiece(new ChessPosition(8, 1), new ChessPiece(TeamColor.BLACK, PieceType.ROOK));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(TeamColor.BLACK, PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 1), ChessPiece.of(TeamColor.WHITE, PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 8), ChessPiece.of(TeamColor.WHITE, PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 1), ChessPiece.of(TeamColor.BLACK, PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 8), ChessPiece.of(TeamColor.BLACK, PieceType.ROOK));
         
         // Place knights
-        addPiece(new ChessPosition(1, 2), new ChessPiece(TeamColor.WHITE, PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 7), new ChessPiece(TeamColor.WHITE, PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 2), new ChessPiece(TeamColor.BLACK, PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 7), new ChessPiece(TeamColor.BLACK, PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 2), ChessPiece.of(TeamColor.WHITE, PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 7), ChessPiece.of(TeamColor.WHITE, PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 2), ChessPiece.of(TeamColor.BLACK, PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 7), ChessPiece.of(TeamColor.BLACK, PieceType.KNIGHT));
 
         // Place bishops
-        addPiece(new ChessPosition(1, 3), new ChessPiece(TeamColor.WHITE, PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 6), new ChessPiece(TeamColor.WHITE, PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 3), new ChessPiece(TeamColor.BLACK, PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 6), new ChessPiece(TeamColor.BLACK, PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 3), ChessPiece.of(TeamColor.WHITE, PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 6), ChessPiece.of(TeamColor.WHITE, PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 3), ChessPiece.of(TeamColor.BLACK, PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 6), ChessPiece.of(TeamColor.BLACK, PieceType.BISHOP));
 
         // Place queens
-        addPiece(new ChessPosition(1, 4), new ChessPiece(TeamColor.WHITE, PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(TeamColor.BLACK, PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 4), ChessPiece.of(TeamColor.WHITE, PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 4), ChessPiece.of(TeamColor.BLACK, PieceType.QUEEN));
 
         // Place kings
-        addPiece(new ChessPosition(1, 5), new ChessPiece(TeamColor.WHITE, PieceType.KING));
-        addPiece(new ChessPosition(8, 5), new ChessPiece(TeamColor.BLACK, PieceType.KING));
+        addPiece(ChessPosition.of(1, 5), ChessPiece.of(TeamColor.WHITE, PieceType.KING));
+        addPiece(ChessPosition.of(8, 5), ChessPiece.of(TeamColor.BLACK, PieceType.KING));
     }
 
 
     /**
-     * Performs a deep copy on a given chessboard
+     * Performs a deep copy on a given chessboard. Pieces are immutable, so only
+     * the arrays need copying and the pieces themselves are shared.
      * 
      * @param original the original chessboard to copy
      * @return the copy of the chessboard
      */
     static public ChessBoard deepCopy(ChessBoard original) {
+        original.ensureIndexed();
+
         ChessBoard copy = new ChessBoard();
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPiece originalPiece = original.getPiece(new ChessPosition(i, j));
-                if (originalPiece != null) {
-                    ChessPiece copiedPiece = new ChessPiece(originalPiece.getTeamColor(), originalPiece.getPieceType());
-                    copy.addPiece(new ChessPosition(i, j), copiedPiece);
-                } else {
-                    copy.addPiece(new ChessPosition(i, j), null);
-                }
-            }
+        for (int i = 0; i < original.squares.length; i++) {
+            copy.squares[i] = original.squares[i].clone();
         }
+        copy.pieceBitboards = original.pieceBitboards.clone();
+        copy.colorBitboards = original.colorBitboards.clone();
+        copy.occupied = original.occupied;
+        copy.zobristKey = original.zobristKey;
+        copy.pieceSquares = new int[][]{original.pieceSquares[0].clone(), original.pieceSquares[1].clone()};
+        copy.pieceCounts = original.pieceCounts.clone();
+        copy.pieceListIndex = original.pieceListIndex.clone();
+        copy.kingSquares = original.kingSquares.clone();
+        copy.indexed = true;
         return copy;
     }
 
+    /**
+     * Flips the bits for a piece on a square in every bitboard and key that tracks it,
+     * and adds it to or removes it from the piece list
+     */
+    private void toggleBits(int square, ChessPiece piece) {
+        long bit = Bitboards.bit(square);
+        int color = piece.getTeamColor().ordinal();
+        int pieceIndex = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceBitboards[pieceIndex] ^= bit;
+        colorBitboards[color] ^= bit;
+        occupied ^= bit;
+        zobristKey ^= Zobrist.piece(piece, square);
+
+        if ((occupied & bit) != 0) {
+            pieceListIndex[square] = pieceCounts[color];
+            pieceSquares[color][pieceCounts[color]++] = square;
+        }
+        else {
+            int index = pieceListIndex[square];
+            int last = pieceSquares[color][--pieceCounts[color]];
+            pieceSquares[color][index] = last;
+            pieceListIndex[last] = index;
+        }
+
+        if (piece.getPieceType() == PieceType.KING) {
+            long kings = pieceBitboards[pieceIndex];
+            kingSquares[color] = kings == 0 ? -1 : Bitboards.lowestSquare(kings);
+        }
+    }
+
+    /**
+     * Builds the bitboards from the squares array if they have not been built yet
+     */
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        if (pieceBitboards == null) {
+            pieceBitboards = new long[12];
+            colorBitboards = new long[2];
+            pieceSquares = new int[2][64];
+            pieceCounts = new int[2];
+            pieceListIndex = new int[64];
+            kingSquares = new int[]{-1, -1};
+        }
+
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = this.getPiece(square);
+            if (piece != null) {
+                // Swap in the shared instance for pieces built by reflection
+                piece = ChessPiece.of(piece.getTeamColor(), piece.getPieceType());
+                squares[square >>> 3][square & 7] = piece;
+                this.toggleBits(square, piece);
+            }
+        }
+        indexed = true;
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -131,21 +367,15 @@ public class ChessBoard {
         }
 
         ChessBoard other = (ChessBoard) o;
-        
-        for (int i = 0; i < squares.length; i++) {
-            for (int j = 0; j < squares.length; j++) {
-                ChessPosition pos = new ChessPosition(i + 1, j + 1);
-                if (!Objects.equals(this.getPiece(pos), other.getPiece(pos))) {
-                    return false;
-                }
-            }
-        }
+        this.ensureIndexed();
+        other.ensureIndexed();
 
-        return true;
+        // Two boards hold the same pieces exactly when every piece bitboard matches
+        return Arrays.equals(this.pieceBitboards, other.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(this.getZobristKey());
     }
 }
@@ -1,7 +1,12 @@
 package chess;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import chess.ChessPiece.PieceType;
@@ -14,6 +19,14 @@ import chess.ChessPiece.PieceType;
  */
 public class ChessGame {
 
+    private static final int WHITE_KING_SIDE_ROOK = Bitboards.square(1, 8);
+    private static final int WHITE_QUEEN_SIDE_ROOK = Bitboards.square(1, 1);
+    private static final int BLACK_KING_SIDE_ROOK = Bitboards.square(8, 8);
+    private static final int BLACK_QUEEN_SIDE_ROOK = Bitboards.square(8, 1);
+
+    // Scratch list for the checks that only need to know whether a move exists
+    private static final ThreadLocal<MoveList> SCRATCH_MOVES = ThreadLocal.withInitial(MoveList::new);
+
     private ChessBoard board;
     private TeamColor currentTeam;
 
@@ -25,7 +38,32 @@ public class ChessGame {
 
     private ChessMove previousMove;
 
+    // Moves since the last capture or pawn move, and the number of the move being played
+    private int halfmoveClock;
+    private int fullmoveNumber;
+
+    // Every move made with makeMove, and the FEN the game started from if it was not the usual start
+    private List<ChessMove> moveHistory;
+    private String startingFen;
+
     private boolean gameOver;
+    // The team that resigned, if the game ended that way
+    private TeamColor resignedTeam;
+
+    // Undo stack for packed moves: the packed state of each move, the moved and
+    // captured piece of each move, and the previous move and halfmove clock before each move
+    private transient int[] undoStates;
+    private transient int[] undoClocks;
+    private transient ChessPiece[] undoPieces;
+    private transient ChessMove[] undoPreviousMoves;
+    private transient int undoSize;
+
+    // Status and legal moves of the position with the given key. Replaced as a whole
+    // so readers on other threads never see a half-built entry.
+    private record StatusCache(long key, GameStatus status, MoveList legalMoves) {
+    }
+
+    private transient volatile StatusCache statusCache;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -39,9 +77,82 @@ public class ChessGame {
 
         this.previousMove = null;
 
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+
+        this.moveHistory = new ArrayList<>();
+        this.startingFen = null;
+
         this.gameOver = false;
     }
 
+    private ChessGame(ChessBoard board, TeamColor currentTeam) {
+        this.board = board;
+        this.currentTeam = currentTeam;
+        this.fullmoveNumber = 1;
+        this.moveHistory = new ArrayList<>();
+    }
+
+    /**
+     * Sets up a game from Forsyth-Edwards Notation, for example
+     * {@code "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"}.
+     * The move counters may be left off, as they are in EPD.
+     *
+     * @param fen the position
+     * @return a game in that position
+     * @throws IllegalArgumentException if the text is not a valid FEN
+     */
+    public static ChessGame fromFen(CharSequence fen) {
+        ChessGame game = Fen.parse(fen);
+        String start = game.toFen();
+        game.startingFen = start.equals(Fen.INITIAL) ? null : start;
+        return game;
+    }
+
+    /**
+     * Writes the game in Forsyth-Edwards Notation
+     *
+     * @param out where to write it
+     * @throws IOException if the appendable does
+     */
+    public void toFen(Appendable out) throws IOException {
+        Fen.write(this, out);
+    }
+
+    /**
+     * @return the game in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        try {
+            Fen.write(this, fen);
+        }
+        catch (IOException ex) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(ex);
+        }
+        return fen.toString();
+    }
+
+    /**
+     * Copies the game so the copy can make and unmake moves without affecting this one.
+     * Pieces are immutable and shared, so this only copies the board's arrays.
+     *
+     * @return a copy of the position, turn, castling flags, previous move, move counters, history and game over flag
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame(ChessBoard.deepCopy(this.getBoard()), this.getTeamTurn());
+        copy.setCastlingFlags(this.getCastlingFlags());
+        copy.previousMove = this.previousMove;
+        copy.halfmoveClock = this.halfmoveClock;
+        copy.fullmoveNumber = this.fullmoveNumber;
+        copy.moveHistory = new ArrayList<>(this.getMoveHistory());
+        copy.startingFen = this.startingFen;
+        copy.gameOver = this.gameOver;
+        copy.resignedTeam = this.resignedTeam;
+        return copy;
+    }
+
     public TeamColor getTeamTurn() {
         return this.currentTeam;
     }
@@ -58,6 +169,57 @@ public class ChessGame {
         return this.previousMove;
     }
 
+    void setPreviousMove(ChessMove previousMove) {
+        this.previousMove = previousMove;
+    }
+
+    /**
+     * Gets the number of moves made by either team since the last capture or pawn move,
+     * which is what the fifty-move rule counts
+     *
+     * @return the halfmove clock
+     */
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Gets the number of the move being played. It starts at 1 and goes up after each of black's moves.
+     *
+     * @return the fullmove number
+     */
+    public int getFullmoveNumber() {
+        return this.fullmoveNumber;
+    }
+
+    void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Gets every move made with {@link #makeMove(ChessMove)}, in order. Moves made with
+     * {@code makeUncheckedMove} are not kept, since searches make millions of them.
+     *
+     * @return the moves of the game so far
+     */
+    public List<ChessMove> getMoveHistory() {
+        // Games stored before the history was kept have none
+        return this.moveHistory == null ? List.of() : Collections.unmodifiableList(this.moveHistory);
+    }
+
+    /**
+     * Gets the position the move history starts from
+     *
+     * @return the FEN the game was set up from, or null if it started from the usual position
+     */
+    public String getStartingFen() {
+        return this.startingFen;
+    }
+
     public enum TeamColor {
         WHITE,
         BLACK
@@ -79,6 +241,23 @@ public class ChessGame {
         this.gameOver = gameOver;
     }
 
+    /**
+     * Ends the game with a team resigning
+     *
+     * @param team the team that resigned
+     */
+    public void resign(TeamColor team) {
+        this.resignedTeam = team;
+        this.gameOver = true;
+    }
+
+    /**
+     * @return the team that resigned, or null if nobody did
+     */
+    public TeamColor getResignedTeam() {
+        return this.resignedTeam;
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -92,25 +271,28 @@ public class ChessGame {
             return null;
         }
 
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-        for (ChessMove possibleMove : requestedPiece.pieceMoves(this.board, startPosition)) {
-
-            // If the move is castling and we can't castle don't add the move
-            if (this.isMoveCastling(possibleMove) && !this.canCastle(possibleMove)) {
-                continue;
-            }
-
-            if (!isInCheckAftermove(possibleMove)) {
-                possibleMoves.add(possibleMove);
-            }
-         }
+        long fromMask = Bitboards.bit(Bitboards.square(startPosition));
+        return MoveGenerator.legalMoves(this, requestedPiece.getTeamColor(), fromMask);
+    }
 
-        ChessMove possibleEnPassantMove = getEnPassantMove(startPosition);
-        if (possibleEnPassantMove != null) {
-            possibleMoves.add(possibleEnPassantMove);
-        }
+    /**
+     * Gets every legal move for a team in one pass over its pieces
+     *
+     * @param teamColor the team to get moves for
+     * @return every legal move the team can make
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        return MoveGenerator.legalMoves(this, teamColor);
+    }
 
-        return possibleMoves;
+    /**
+     * Adds every legal move for the team to move to a list as packed moves,
+     * without allocating anything for the moves themselves
+     *
+     * @param moves the list to add the moves to; it is not cleared first
+     */
+    public void generateLegalMoves(MoveList moves) {
+        MoveGenerator.generateLegalMoves(this, this.getTeamTurn(), moves);
     }
 
     /**
@@ -120,48 +302,219 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        if (!isValidMove(move, this.getTeamTurn()) || getGameOver()) {
+        if (getGameOver() || !isValidMove(move, this.getTeamTurn())) {
             throw new InvalidMoveException();
         }
 
-        this.updateCastlingHasMoved(move);
+        this.makeUncheckedMove(move);
+        if (this.moveHistory == null) {
+            this.moveHistory = new ArrayList<>();
+        }
+        this.moveHistory.add(move);
+
+        // One legal move generation decides check, checkmate and stalemate, and is kept for later readers
+        if (this.getStatus().isGameOver()) {
+            setGameOver(true);
+        }
+    }
 
-        if (this.isMoveCastling(move)) {
-            this.getBoard().movePiece(move);
-            if (move.getEndPosition().getColumn() == 7) {
-                this.getBoard().movePiece(
-                    new ChessMove(
-                        new ChessPosition(move.getStartPosition().getRow(), 8), 
-                        new ChessPosition(move.getStartPosition().getRow(), 6), 
-                        null)
-                );
-            }
-            else {
-                this.getBoard().movePiece(
-                    new ChessMove(
-                        new ChessPosition(move.getStartPosition().getRow(), 1), 
-                        new ChessPosition(move.getStartPosition().getRow(), 4), 
-                        null)
-                );
-            }
+    /**
+     * Gets whether the team to move is in check, checkmate or stalemate. The status
+     * comes from a single legal move generation and is cached until the position
+     * changes, so repeated calls after a move cost only a key comparison.
+     * Resigning does not change the status; see {@link #getGameOver()} for that.
+     *
+     * @return the status of the team whose turn it is
+     */
+    public GameStatus getStatus() {
+        return this.statusCache().status();
+    }
+
+    /**
+     * Makes a move on the board in place without checking that it is valid.
+     * The returned record can be passed to {@link #unmakeMove(MoveUndo)} to restore
+     * the game to exactly how it was before the move.
+     *
+     * @param move chess move to perform
+     * @return the record needed to undo the move
+     */
+    public MoveUndo makeUncheckedMove(ChessMove move) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        ChessPiece movedPiece = this.getBoard().getPiece(from);
+        int capturedSquare = this.capturedSquare(movedPiece, from, to);
+        boolean castling = this.isMoveCastling(movedPiece, from, to);
+
+        MoveUndo undo = new MoveUndo(move, movedPiece, this.getBoard().getPiece(capturedSquare), capturedSquare,
+                this.getCastlingFlags(), this.previousMove, this.getTeamTurn(), castling, this.halfmoveClock);
+        this.applyMove(from, to, move.getPromotionPiece(), movedPiece, capturedSquare, castling, move);
+        return undo;
+    }
+
+    /**
+     * Takes back a move made with {@link #makeUncheckedMove(ChessMove)}.
+     * Moves must be undone in the reverse order they were made.
+     *
+     * @param undo the record returned when the move was made
+     */
+    public void unmakeMove(MoveUndo undo) {
+        int from = Bitboards.square(undo.move().getStartPosition());
+        int to = Bitboards.square(undo.move().getEndPosition());
+        this.revertMove(from, to, undo.movedPiece(), undo.capturedPiece(), undo.capturedSquare(), undo.castling());
+
+        this.setCastlingFlags(undo.castlingFlags());
+        this.previousMove = undo.previousMove();
+        this.halfmoveClock = undo.halfmoveClock();
+        this.setTeamTurn(undo.teamTurn());
+    }
+
+    /**
+     * Makes a packed move on the board in place without checking that it is valid.
+     * What is needed to undo it goes on a stack kept by the game, so making and
+     * unmaking packed moves does not allocate. Call {@link #unmakeMove()} to take
+     * the most recent one back.
+     *
+     * @param move the packed move to perform
+     */
+    public void makeUncheckedMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece movedPiece = this.getBoard().getPiece(from);
+        int capturedSquare = this.capturedSquare(movedPiece, from, to);
+        boolean castling = this.isMoveCastling(movedPiece, from, to);
+
+        if (this.undoPieces == null || this.undoSize == this.undoStates.length) {
+            this.growUndoStack();
+        }
+        this.undoStates[this.undoSize] = (move & ((1 << 19) - 1))
+            | (capturedSquare << 19)
+            | (this.getCastlingFlags() << 25)
+            | (this.getTeamTurn().ordinal() << 29)
+            | (castling ? 1 << 30 : 0);
+        this.undoPieces[this.undoSize * 2] = movedPiece;
+        this.undoPieces[this.undoSize * 2 + 1] = this.getBoard().getPiece(capturedSquare);
+        this.undoPreviousMoves[this.undoSize] = this.previousMove;
+        this.undoClocks[this.undoSize] = this.halfmoveClock;
+        this.undoSize++;
+
+        this.applyMove(from, to, Move.promotion(move), movedPiece, capturedSquare, castling, Move.toChessMove(move));
+    }
+
+    /**
+     * Takes back the most recent move made with {@link #makeUncheckedMove(int)}
+     */
+    public void unmakeMove() {
+        this.undoSize--;
+        int state = this.undoStates[this.undoSize];
+        ChessPiece movedPiece = this.undoPieces[this.undoSize * 2];
+        ChessPiece capturedPiece = this.undoPieces[this.undoSize * 2 + 1];
+        this.undoPieces[this.undoSize * 2] = null;
+        this.undoPieces[this.undoSize * 2 + 1] = null;
+
+        this.revertMove(Move.from(state), Move.to(state), movedPiece, capturedPiece, (state >>> 19) & 63,
+                (state & (1 << 30)) != 0);
+
+        this.setCastlingFlags((state >>> 25) & 15);
+        this.previousMove = this.undoPreviousMoves[this.undoSize];
+        this.undoPreviousMoves[this.undoSize] = null;
+        this.halfmoveClock = this.undoClocks[this.undoSize];
+        this.setTeamTurn(TeamColor.values()[(state >>> 29) & 1]);
+    }
+
+    /**
+     * Moves the pieces for a move and updates the castling flags, previous move, move counters and turn
+     */
+    private void applyMove(int from, int to, PieceType promotion, ChessPiece movedPiece, int capturedSquare,
+                           boolean castling, ChessMove move) {
+        ChessBoard board = this.getBoard();
+        TeamColor pieceColor = movedPiece.getTeamColor();
+
+        this.updateCastlingHasMoved(movedPiece, from, to);
+
+        if (movedPiece.getPieceType() == PieceType.PAWN || board.getPiece(capturedSquare) != null) {
+            this.halfmoveClock = 0;
+        }
+        else {
+            this.halfmoveClock++;
+        }
+        if (pieceColor == TeamColor.BLACK) {
+            this.fullmoveNumber++;
         }
-        else if (this.isEnPassantMove(move)) {
-            this.getBoard().movePiece(move);
-            this.getBoard().addPiece(this.previousMove.getEndPosition(), null);
+
+        board.setPiece(capturedSquare, null);
+        board.setPiece(from, null);
+        if (promotion != null) {
+            board.setPiece(to, ChessPiece.of(pieceColor, promotion));
         }
         else {
-            this.getBoard().movePiece(move);
+            board.setPiece(to, movedPiece);
+        }
+
+        // Bring the rook over to the other side of the king
+        if (castling) {
+            int row = Bitboards.row(from);
+            boolean kingSide = Bitboards.column(to) == 7;
+            int rookFrom = Bitboards.square(row, kingSide ? 8 : 1);
+            int rookTo = Bitboards.square(row, kingSide ? 6 : 4);
+            board.setPiece(rookTo, board.getPiece(rookFrom));
+            board.setPiece(rookFrom, null);
         }
 
         this.previousMove = move;
-        this.changeTeamTurn();
+        this.setTeamTurn(pieceColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
+    }
 
-        if (isInCheckmate(this.getTeamTurn())) {
-            setGameOver(true);
+    /**
+     * Puts the pieces back where they were before a move and winds the fullmove number back
+     */
+    private void revertMove(int from, int to, ChessPiece movedPiece, ChessPiece capturedPiece, int capturedSquare,
+                            boolean castling) {
+        ChessBoard board = this.getBoard();
+
+        if (movedPiece.getTeamColor() == TeamColor.BLACK) {
+            this.fullmoveNumber--;
         }
-        else if (isInStalemate(this.getTeamTurn())) {
-            setGameOver(true);
+
+        if (castling) {
+            int row = Bitboards.row(from);
+            boolean kingSide = Bitboards.column(to) == 7;
+            int rookFrom = Bitboards.square(row, kingSide ? 8 : 1);
+            int rookTo = Bitboards.square(row, kingSide ? 6 : 4);
+            board.setPiece(rookFrom, board.getPiece(rookTo));
+            board.setPiece(rookTo, null);
+        }
+
+        board.setPiece(to, null);
+        board.setPiece(from, movedPiece);
+        if (capturedPiece != null) {
+            board.setPiece(capturedSquare, capturedPiece);
+        }
+    }
+
+    /**
+     * Gets the square a move captures on. A pawn moving diagonally onto an empty
+     * square is capturing en passant, so the captured pawn is beside it instead.
+     */
+    private int capturedSquare(ChessPiece movedPiece, int from, int to) {
+        if (movedPiece.getPieceType() == PieceType.PAWN
+            && Bitboards.column(from) != Bitboards.column(to)
+            && this.getBoard().getPiece(to) == null) {
+            return Bitboards.square(Bitboards.row(from), Bitboards.column(to));
         }
+        return to;
+    }
+
+    /**
+     * Doubles the room on the packed move undo stack
+     */
+    private void growUndoStack() {
+        int capacity = this.undoStates == null ? 64 : this.undoStates.length * 2;
+        this.undoStates = this.undoStates == null ? new int[capacity] : Arrays.copyOf(this.undoStates, capacity);
+        this.undoPieces = this.undoPieces == null
+            ? new ChessPiece[capacity * 2] : Arrays.copyOf(this.undoPieces, capacity * 2);
+        this.undoPreviousMoves = this.undoPreviousMoves == null
+            ? new ChessMove[capacity] : Arrays.copyOf(this.undoPreviousMoves, capacity);
+        this.undoClocks = this.undoClocks == null ? new int[capacity] : Arrays.copyOf(this.undoClocks, capacity);
     }
 
     /**
@@ -182,24 +535,15 @@ public class ChessGame {
      * @return True if the specified team is in check on the given board
      */
     public boolean isInCheckGivenBoard(ChessBoard board, TeamColor teamColor) {
-         // Find the position of the king
-        ChessPosition kingPosition = this.findKing(board, teamColor);
+        int kingSquare = board.getKingSquare(teamColor);
+        if (kingSquare < 0) {
+            return false;
+        }
 
         TeamColor oppositeTeamColor = teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
 
-        // Loop through all of the oppenents pieces
-        for (ChessPosition opponentPosition : this.findAllPositionsOfPieces(board, oppositeTeamColor)) {
-            ChessPiece opponentPiece = board.getPiece(opponentPosition);
-            
-            // Loop through all of the moves to determine if they match the king's position
-            for (ChessMove move : opponentPiece.pieceMoves(board, opponentPosition)) {
-                if (move.getEndPosition().equals(kingPosition)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        // Look outward from the king for any opponent piece that attacks it
+        return Attacks.isAttacked(board, kingSquare, oppositeTeamColor);
     }
 
     /**
@@ -208,13 +552,11 @@ public class ChessGame {
      * @return whether they will be in check or not
      */
     public boolean isInCheckAftermove(ChessMove move) {
-        TeamColor pieceColor= this.getBoard().getPiece(move.getStartPosition()).getTeamColor();
-        ChessBoard copiedBoard = ChessBoard.deepCopy(this.getBoard());
-        copiedBoard.movePiece(move);
-        if (!this.isInCheckGivenBoard(copiedBoard, pieceColor)) {
-            return false;
-        }
-        return true;
+        TeamColor pieceColor = this.getBoard().getPiece(move.getStartPosition()).getTeamColor();
+        MoveUndo undo = this.makeUncheckedMove(move);
+        boolean inCheck = this.isInCheck(pieceColor);
+        this.unmakeMove(undo);
+        return inCheck;
     }
 
     /**
@@ -224,19 +566,10 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (this.isInCheck(teamColor)) {
-            
-            // Loop through all of the team's pieces on the board   
-            for (ChessPosition piecePosition : this.findAllPositionsOfPieces(this.getBoard(), teamColor)) {
-                
-                // If any piece has a valid move then the king is not in checkmate
-                if (!this.validMoves(piecePosition).isEmpty()) {
-                    return false;
-                }
-            }
-            return true;
+        if (teamColor == this.getTeamTurn()) {
+            return this.getStatus() == GameStatus.CHECKMATE;
         }
-        return false;
+        return this.isInCheck(teamColor) && !this.hasLegalMove(teamColor);
     }
 
     /**
@@ -247,19 +580,10 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-         if (!this.isInCheck(teamColor)) {
-            
-            // Loop through all of the team's pieces on the board   
-            for (ChessPosition piecePosition : this.findAllPositionsOfPieces(this.getBoard(), teamColor)) {
-                
-                // If any piece has a valid move then the king is not in checkmate
-                if (!this.validMoves(piecePosition).isEmpty()) {
-                    return false;
-                }
-            }
-            return true;
+        if (teamColor == this.getTeamTurn()) {
+            return this.getStatus() == GameStatus.STALEMATE;
         }
-        return false;
+        return !this.isInCheck(teamColor) && !this.hasLegalMove(teamColor);
     }
 
     /**
@@ -288,15 +612,7 @@ public class ChessGame {
      * @return the king or null if it doesn't exist
      */
     public ChessPosition findKing(ChessBoard board, TeamColor teamColor) {
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(i, j));
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == PieceType.KING) {
-                    return new ChessPosition(i, j);
-                }
-            }
-        }
-        return null;
+        return board.getKingPosition(teamColor);
     }
 
     /**
@@ -307,21 +623,36 @@ public class ChessGame {
      * @return the list of positions
      */
     public Collection<ChessPosition> findAllPositionsOfPieces(ChessBoard board, TeamColor teamColor) {
-        Collection<ChessPosition> positions = new ArrayList<ChessPosition>();
-
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(i, j));
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    positions.add(new ChessPosition(i, j));
-                }
+        return board.getPiecePositions(teamColor);
+    }
+
+
+    /**
+     * Gets the Zobrist key of the position: the pieces, the side to move, the
+     * castling flags and the en passant file. The piece part is maintained by the
+     * board as pieces move, so this is a handful of XORs rather than a board scan.
+     * En passant only counts when a pawn is actually able to make the capture, so
+     * positions that play the same get the same key.
+     *
+     * @return the 64-bit key of the position
+     */
+    public long positionKey() {
+        long key = this.getBoard().getZobristKey()
+            ^ Zobrist.sideToMove(this.getTeamTurn())
+            ^ Zobrist.castling(this.getCastlingFlags());
+
+        int enPassantSquare = this.getEnPassantSquare();
+        if (enPassantSquare >= 0) {
+            TeamColor opponent = this.getTeamTurn() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+            long capturers = Attacks.pawn(opponent, enPassantSquare)
+                & this.getBoard().getBitboard(this.getTeamTurn(), PieceType.PAWN);
+            if (capturers != 0) {
+                key ^= Zobrist.enPassant(Bitboards.column(enPassantSquare));
             }
         }
-
-        return positions;
+        return key;
     }
 
-
     /**
      * Determines if a move is valid
      * 
@@ -331,21 +662,73 @@ public class ChessGame {
      */
     public boolean isValidMove(ChessMove move, TeamColor teamcolor) {
         ChessPiece piece = this.getBoard().getPiece(move.getStartPosition());
-        if (piece != null && piece.getTeamColor() == teamcolor && this.validMoves(move.getStartPosition()).contains(move)) {
-            return true;
+        if (piece == null || piece.getTeamColor() != teamcolor) {
+            return false;
         }
-        return false;
+        if (teamcolor == this.getTeamTurn()) {
+            return this.statusCache().legalMoves().contains(Move.of(move));
+        }
+
+        MoveList moves = SCRATCH_MOVES.get();
+        moves.clear();
+        long fromMask = Bitboards.bit(Bitboards.square(move.getStartPosition()));
+        MoveGenerator.generateLegalMoves(this, teamcolor, fromMask, moves);
+        return moves.contains(Move.of(move));
     }
 
     /**
-     * Updates whether the pieces have moved that determine if the king can castle
+     * Gets the status and legal moves of the current position, generating them
+     * if the position has changed since they were last cached. The cache is keyed
+     * by the position key, so it also notices changes made directly to the board.
+     */
+    private StatusCache statusCache() {
+        long key = this.positionKey();
+        StatusCache cache = this.statusCache;
+        if (cache != null && cache.key() == key) {
+            return cache;
+        }
+
+        TeamColor teamColor = this.getTeamTurn();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(this, teamColor, moves);
+
+        GameStatus status;
+        if (this.isInCheck(teamColor)) {
+            status = moves.isEmpty() ? GameStatus.CHECKMATE : GameStatus.CHECK;
+        }
+        else {
+            status = moves.isEmpty() ? GameStatus.STALEMATE : GameStatus.ONGOING;
+        }
+
+        cache = new StatusCache(key, status, moves);
+        this.statusCache = cache;
+        return cache;
+    }
+
+    /**
+     * Determines if a team has at least one legal move
+     *
+     * @param teamColor the team to check
+     * @return True if the team can move
+     */
+    private boolean hasLegalMove(TeamColor teamColor) {
+        MoveList moves = SCRATCH_MOVES.get();
+        moves.clear();
+        MoveGenerator.generateLegalMoves(this, teamColor, moves);
+        return !moves.isEmpty();
+    }
+
+    /**
+     * Updates whether the pieces have moved that determine if the king can castle.
+     * Capturing a rook on its starting square also takes away that side's castle.
      * 
-     * @param move
+     * @param piece the piece being moved
+     * @param from the start square of the move
+     * @param to the end square of the move
      */
-    private void updateCastlingHasMoved(ChessMove move) {
-        ChessPiece piece = this.getBoard().getPiece(move.getStartPosition());
+    private void updateCastlingHasMoved(ChessPiece piece, int from, int to) {
         if (piece.getPieceType() == PieceType.KING) {
-            if (this.getTeamTurn() == TeamColor.WHITE) {
+            if (piece.getTeamColor() == TeamColor.WHITE) {
                 this.whiteKingSideCastlingHasMoved = true;
                 this.whiteQueenSideCastlingHasMoved = true;
             }
@@ -354,128 +737,110 @@ public class ChessGame {
                 this.blackQueenSideCastlingHasMoved = true;
             }
         }
-        else if (piece.getPieceType() == PieceType.ROOK) {
-            if (move.getStartPosition().equals(new ChessPosition(1, 8)) && this.getTeamTurn() == TeamColor.WHITE) {
-                this.whiteKingSideCastlingHasMoved = true;
-            }
-            else if (move.getStartPosition().equals(new ChessPosition(1, 1)) && this.getTeamTurn() == TeamColor.WHITE) {
-                this.whiteQueenSideCastlingHasMoved = true;
-            }
-            else if (move.getStartPosition().equals(new ChessPosition(8, 8)) && this.getTeamTurn() == TeamColor.BLACK) {
-                this.blackKingSideCastlingHasMoved = true;
-            }
-            else if (move.getStartPosition().equals(new ChessPosition(8, 1)) && this.getTeamTurn() == TeamColor.BLACK) {
-                this.blackQueenSideCastlingHasMoved = true;
-            }
-        }
+        this.updateCastlingHasMoved(from);
+        this.updateCastlingHasMoved(to);
     }
 
-
     /**
-     * Checks if a move is considered castling
+     * Marks a rook as moved if a move starts or ends on that rook's starting square
      * 
-     * @param move
-     * @return
+     * @param square the start or end of a move
      */
-    private boolean isMoveCastling(ChessMove move) {
-        int row = board.getPiece(move.getStartPosition()).getTeamColor() == TeamColor.WHITE ? 1 : 8;
-        if (this.getBoard().getPiece(move.getStartPosition()).getPieceType() == PieceType.KING
-            && move.getStartPosition().equals(new ChessPosition(row, 5))
-            && Math.abs(move.getEndPosition().getColumn() - move.getStartPosition().getColumn()) == 2) {
-                return true;
-            }
-        return false;
+    private void updateCastlingHasMoved(int square) {
+        ChessPiece piece = this.getBoard().getPiece(square);
+        if (piece == null || piece.getPieceType() != PieceType.ROOK) {
+            return;
+        }
+
+        if (square == WHITE_KING_SIDE_ROOK && piece.getTeamColor() == TeamColor.WHITE) {
+            this.whiteKingSideCastlingHasMoved = true;
+        }
+        else if (square == WHITE_QUEEN_SIDE_ROOK && piece.getTeamColor() == TeamColor.WHITE) {
+            this.whiteQueenSideCastlingHasMoved = true;
+        }
+        else if (square == BLACK_KING_SIDE_ROOK && piece.getTeamColor() == TeamColor.BLACK) {
+            this.blackKingSideCastlingHasMoved = true;
+        }
+        else if (square == BLACK_QUEEN_SIDE_ROOK && piece.getTeamColor() == TeamColor.BLACK) {
+            this.blackQueenSideCastlingHasMoved = true;
+        }
     }
 
     /**
-     * Determins if we can castle based if a move is considered castling
-     * and if the side's pieces have not moved. 
+     * Packs the castling flags into the low four bits of an int
      * 
-     * @param move
-     * @return
+     * @return the packed flags
      */
-    private boolean canCastle(ChessMove move) {
-        TeamColor pieceTeamColor = this.getBoard().getPiece(move.getStartPosition()).getTeamColor();
-        if (isMoveCastling(move) && !isInCheck(pieceTeamColor)) {
-            if (move.getEndPosition().getColumn() == 7
-                && !isInCheckAftermove(new ChessMove(move.getStartPosition(), new ChessPosition(move.getStartPosition().getRow(), 6), null))
-            ) {
-                if (pieceTeamColor == TeamColor.WHITE) {
-                    return !this.whiteKingSideCastlingHasMoved;
-                }
-                return !this.blackKingSideCastlingHasMoved;
-            }
-            else if (move.getEndPosition().getColumn() == 3
-                && !isInCheckAftermove(new ChessMove(move.getStartPosition(), new ChessPosition(move.getStartPosition().getRow(), 4), null))
-            ) {
-                if (pieceTeamColor == TeamColor.WHITE) {
-                    return !this.whiteQueenSideCastlingHasMoved;
-                }
-                return !this.blackQueenSideCastlingHasMoved;
-            }
-        }
-        return false;
+    int getCastlingFlags() {
+        return (this.whiteKingSideCastlingHasMoved ? 1 : 0)
+            | (this.whiteQueenSideCastlingHasMoved ? 2 : 0)
+            | (this.blackKingSideCastlingHasMoved ? 4 : 0)
+            | (this.blackQueenSideCastlingHasMoved ? 8 : 0);
     }
 
     /**
-     * Determines if the piece at the given position can do an en passant move
-     * @param pos
-     * @return
+     * Restores castling flags packed by {@link #getCastlingFlags()}
+     * 
+     * @param flags the packed flags
      */
-    private boolean canDoEnPassant(ChessPosition pos) {
-        // Check if the piece is a pawn and is on the correct row
-        ChessPiece pawn = this.getBoard().getPiece(pos);
-        if (pawn == null) {
-            return false;
-        }
+    void setCastlingFlags(int flags) {
+        this.whiteKingSideCastlingHasMoved = (flags & 1) != 0;
+        this.whiteQueenSideCastlingHasMoved = (flags & 2) != 0;
+        this.blackKingSideCastlingHasMoved = (flags & 4) != 0;
+        this.blackQueenSideCastlingHasMoved = (flags & 8) != 0;
+    }
 
-        int row = pawn.getTeamColor() == TeamColor.WHITE ? 5 : 4;
-        if (pawn.getPieceType() == PieceType.PAWN && pos.getRow() == row) {
-            // Check if the last move was performed by a pawn and that they moved 2 spaces
-            ChessPiece opponentPawn = this.getBoard().getPiece(this.previousMove.getEndPosition());
-            if (opponentPawn.getPieceType() == PieceType.PAWN 
-                && Math.abs(this.previousMove.getStartPosition().getRow() - this.previousMove.getEndPosition().getRow()) == 2) {
 
-                // Check if the pawns are right next to eachother
-                if (Math.abs(pos.getColumn() - this.previousMove.getEndPosition().getColumn()) == 1) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    /**
+     * Checks if a move is considered castling
+     * 
+     * @param piece the piece being moved
+     * @param from the start square of the move
+     * @param to the end square of the move
+     * @return whether the king is castling
+     */
+    private boolean isMoveCastling(ChessPiece piece, int from, int to) {
+        int row = piece.getTeamColor() == TeamColor.WHITE ? 1 : 8;
+        return piece.getPieceType() == PieceType.KING
+            && from == Bitboards.square(row, 5)
+            && Math.abs(Bitboards.column(to) - Bitboards.column(from)) == 2;
     }
 
     /**
-     * Gets the move for a valid enpassant move returns null if there is not a valid move
-     * @param move 
-     * @return
+     * Determines if neither the king nor the rook on one side has moved,
+     * so the team still has the right to castle on that side
+     * 
+     * @param teamColor the team to check
+     * @param kingSide true for the king's side, false for the queen's side
+     * @return whether that castle is still allowed
      */
-    private ChessMove getEnPassantMove(ChessPosition pos) {
-
-        if (canDoEnPassant(pos)) {
-            ChessPiece pawn = this.getBoard().getPiece(pos);
-            int newRow = pawn.getTeamColor() == TeamColor.WHITE ? 6 : 3;
-            return new ChessMove(
-                    pos, 
-                    new ChessPosition(newRow, this.previousMove.getEndPosition().getColumn()), 
-                    null
-            );
+    boolean canCastle(TeamColor teamColor, boolean kingSide) {
+        if (teamColor == TeamColor.WHITE) {
+            return kingSide ? !this.whiteKingSideCastlingHasMoved : !this.whiteQueenSideCastlingHasMoved;
         }
-     
-        return null;
+        return kingSide ? !this.blackKingSideCastlingHasMoved : !this.blackQueenSideCastlingHasMoved;
     }
 
     /**
-     * Determines if a move is an en passant move or not
-     * @param move the move to check
-     * @return
+     * Gets the square a pawn skipped over if the previous move was a pawn moving two
+     * spaces. That is the square an en passant capture lands on.
+     * 
+     * @return the square index, or -1 if en passant is not possible
      */
-    private boolean isEnPassantMove(ChessMove move) {
-        if (Objects.equals(getEnPassantMove(move.getStartPosition()), (move))) {
-            return true;
+    int getEnPassantSquare() {
+        if (this.previousMove == null) {
+            return -1;
+        }
+
+        ChessPosition start = this.previousMove.getStartPosition();
+        ChessPosition end = this.previousMove.getEndPosition();
+        ChessPiece pawn = this.getBoard().getPiece(end);
+        if (pawn == null || pawn.getPieceType() != PieceType.PAWN
+            || start.getColumn() != end.getColumn() || Math.abs(start.getRow() - end.getRow()) != 2) {
+            return -1;
         }
-        return false;
 
+        return Bitboards.square((start.getRow() + end.getRow()) / 2, end.getColumn());
     }
 
     @Override
@@ -1,9 +1,7 @@
 package chess;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Objects;
 
 import chess.ChessGame.TeamColor;
 
@@ -15,8 +13,8 @@ import chess.ChessGame.TeamColor;
  */
 public class ChessPiece {
 
-    private ChessGame.TeamColor pieceColor;
-    private ChessPiece.PieceType type;
+    private final ChessGame.TeamColor pieceColor;
+    private final ChessPiece.PieceType type;
 
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
@@ -45,6 +43,29 @@ public class ChessPiece {
             PieceType.ROOK
     };
 
+    // One shared instance of each piece, indexed by Bitboards.pieceIndex
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (TeamColor color : TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    /**
+     * Gets the shared piece of a color and type. Pieces are immutable, so one
+     * instance of each can sit on any number of squares and boards.
+     *
+     * @param pieceColor the color of the piece
+     * @param type the type of the piece
+     * @return the shared piece
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[Bitboards.pieceIndex(pieceColor, type)];
+    }
+
     /**
      * @return Which team this chess piece belongs to
      */
@@ -59,12 +80,6 @@ public class ChessPiece {
         return type;
     }
     
-    public void promotePawn(PieceType promotion) {
-        if (Arrays.asList(PROMOTIONS).contains(promotion)) {
-            this.type = promotion;
-        }
-    }
-
     /**
      * Calculates all the positions a chess piece can move to
      * Does not take into account moves that are illegal due to leaving the king in
@@ -103,39 +118,41 @@ public class ChessPiece {
     public Collection<ChessMove> pawnMoves(ChessBoard board, ChessPosition position) {
         Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
 
+        int from = Bitboards.square(position);
         int direction = this.getTeamColor() == TeamColor.WHITE ? 1 : -1;
         int forwardOne = position.getRow() + direction;
         int gameStartRow = this.getTeamColor() == TeamColor.WHITE ? 2 : 7;
 
-        if (1 <= forwardOne && forwardOne <= 8) {
+        if (forwardOne < 1 || forwardOne > 8) {
+            return possibleMoves;
+        }
 
-            // Get possible promotions
-            PieceType[] possiblePromotions = (forwardOne == 8 || forwardOne == 1) ? PROMOTIONS : new PieceType[]{ null };
-            
-            for (PieceType promotion : possiblePromotions) {
+        long occupied = board.getOccupancy();
+        long targets = Attacks.pawn(this.getTeamColor(), from) & board.getOccupancy(opposite(this.getTeamColor()));
 
-                // Moving forward once 
-                if (board.getPiece(new ChessPosition(forwardOne, position.getColumn())) == null) {
-                    possibleMoves.add(new ChessMove(position, new ChessPosition(forwardOne, position.getColumn()), promotion));
-                }
+        // Moving forward once, and twice from the starting row
+        int oneStep = from + 8 * direction;
+        if ((occupied & Bitboards.bit(oneStep)) == 0) {
+            targets |= Bitboards.bit(oneStep);
+            int twoSteps = oneStep + 8 * direction;
+            if (position.getRow() == gameStartRow && (occupied & Bitboards.bit(twoSteps)) == 0) {
+                targets |= Bitboards.bit(twoSteps);
+            }
+        }
 
-                // Check diagonals
-                if (position.getColumn() + 1 <= 8 
-                    && board.getPiece(new ChessPosition(forwardOne, position.getColumn() + 1)) != null
-                    && board.getPiece(new ChessPosition(forwardOne, position.getColumn() + 1)).pieceColor != this.pieceColor) {
-                    possibleMoves.add(new ChessMove(position, new ChessPosition(forwardOne, position.getColumn() + 1), promotion));
-                }
-                else if (position.getColumn() - 1 >= 1 
-                    && board.getPiece(new ChessPosition(forwardOne, position.getColumn() - 1)) != null
-                    && board.getPiece(new ChessPosition(forwardOne, position.getColumn() - 1)).pieceColor != this.pieceColor) {
-                    possibleMoves.add(new ChessMove(position, new ChessPosition(forwardOne, position.getColumn() - 1), promotion));
+        boolean promotes = forwardOne == 8 || forwardOne == 1;
+        while (targets != 0) {
+            ChessPosition endPosition = Bitboards.position(Bitboards.lowestSquare(targets));
+            targets &= targets - 1;
+
+            if (promotes) {
+                for (PieceType promotion : PROMOTIONS) {
+                    possibleMoves.add(new ChessMove(position, endPosition, promotion));
                 }
             }
-        }
-        if (position.getRow() == gameStartRow 
-        && board.getPiece(new ChessPosition(forwardOne, position.getColumn())) == null 
-        && board.getPiece(new ChessPosition(forwardOne + direction, position.getColumn())) == null) {
-            possibleMoves.add(new ChessMove(position, new ChessPosition(forwardOne + direction, position.getColumn()), null));
+            else {
+                possibleMoves.add(new ChessMove(position, endPosition, null));
+            }
         }
 
         return possibleMoves;
@@ -147,14 +164,8 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> rookMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-
-        possibleMoves.addAll(getMovesInDirection(board, position, 1, 0));
-        possibleMoves.addAll(getMovesInDirection(board, position, -1, 0));
-        possibleMoves.addAll(getMovesInDirection(board, position, 0, 1));
-        possibleMoves.addAll(getMovesInDirection(board, position, 0, -1));
-
-        return possibleMoves;
+        int from = Bitboards.square(position);
+        return movesToTargets(board, position, Attacks.rook(from, board.getOccupancy()));
     }
 
     /**
@@ -163,26 +174,7 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> knightMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-
-        ChessPosition[] endPositions = {
-            // UP - Right and Left
-            new ChessPosition(position.getRow() + 2, position.getColumn() + 1),
-            new ChessPosition(position.getRow() + 2, position.getColumn() - 1),
-            // RIGHT - Up and Down
-            new ChessPosition(position.getRow() + 1, position.getColumn() + 2),
-            new ChessPosition(position.getRow() - 1, position.getColumn() + 2),
-            // DOWN - Right and Left
-            new ChessPosition(position.getRow() - 2, position.getColumn() + 1),
-            new ChessPosition(position.getRow() - 2, position.getColumn() - 1),
-            // LEFT - Up and Down
-            new ChessPosition(position.getRow() + 1, position.getColumn() - 2),
-            new ChessPosition(position.getRow() - 1, position.getColumn() - 2),
-        };
-
-        possibleMoves.addAll(extractChessMovesFromPositions(board, position, endPositions));
-
-        return possibleMoves;
+        return movesToTargets(board, position, Attacks.knight(Bitboards.square(position)));
     }
 
     /**
@@ -191,14 +183,8 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> bishopMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-
-        possibleMoves.addAll(getMovesInDirection(board, position, 1, 1));
-        possibleMoves.addAll(getMovesInDirection(board, position, -1, 1));
-        possibleMoves.addAll(getMovesInDirection(board, position, 1, -1));
-        possibleMoves.addAll(getMovesInDirection(board, position, -1, -1));
-
-        return possibleMoves;
+        int from = Bitboards.square(position);
+        return movesToTargets(board, position, Attacks.bishop(from, board.getOccupancy()));
     }
 
     
@@ -208,12 +194,8 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> queenMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-
-        possibleMoves.addAll(rookMoves(board, position));
-        possibleMoves.addAll(bishopMoves(board, position));
-
-        return possibleMoves;
+        int from = Bitboards.square(position);
+        return movesToTargets(board, position, Attacks.queen(from, board.getOccupancy()));
     }
 
     /**
@@ -222,87 +204,48 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> kingMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-
-        ChessPosition[] endPositions = {
-            new ChessPosition(position.getRow() + 1, position.getColumn()),
-            new ChessPosition(position.getRow() + 1, position.getColumn() + 1),
-            new ChessPosition(position.getRow(), position.getColumn() + 1),
-            new ChessPosition(position.getRow() - 1, position.getColumn() + 1),
-            new ChessPosition(position.getRow() - 1, position.getColumn()),
-            new ChessPosition(position.getRow() - 1, position.getColumn() - 1),
-            new ChessPosition(position.getRow(), position.getColumn() - 1),
-            new ChessPosition(position.getRow() + 1, position.getColumn() - 1),
-        };
-
-        possibleMoves.addAll(extractChessMovesFromPositions(board, position, endPositions));
+        Collection<ChessMove> possibleMoves = movesToTargets(board, position, Attacks.king(Bitboards.square(position)));
 
         // Check castling conditions
-        int row = board.getPiece(position).pieceColor == TeamColor.WHITE ? 1 : 8;
+        int row = this.getTeamColor() == TeamColor.WHITE ? 1 : 8;
         // King must be in position to castle
-        if (position.equals(new ChessPosition(row, 5))) {
-            // Rook must be in position to king-side castle
-            ChessPiece kingSideRook = board.getPiece(new ChessPosition(row, 8));
-            if (kingSideRook != null && kingSideRook.getPieceType() == PieceType.ROOK) {
-                // There cannot be any pieces in between
-                if (board.getPiece(new ChessPosition(row, 6)) == null && board.getPiece(new ChessPosition(row, 7)) == null) {
-                    possibleMoves.add(new ChessMove(position, new ChessPosition(row, 7), null));
-                }
+        if (position.getRow() == row && position.getColumn() == 5) {
+            long occupied = board.getOccupancy();
+            long rooks = board.getBitboard(this.getTeamColor(), PieceType.ROOK);
+
+            // Rook must be in position to king-side castle and there cannot be any pieces in between
+            if ((rooks & Bitboards.bit(Bitboards.square(row, 8))) != 0
+                && (occupied & (Bitboards.bit(Bitboards.square(row, 6)) | Bitboards.bit(Bitboards.square(row, 7)))) == 0) {
+                possibleMoves.add(new ChessMove(position, ChessPosition.of(row, 7), null));
             }
-            // Rook must be in position to queen-side castle
-            ChessPiece queenSideRook = board.getPiece(new ChessPosition(row, 1));
-            if (queenSideRook != null && queenSideRook.getPieceType() == PieceType.ROOK) {
-                // There cannot be any pieces in between
-                if (board.getPiece(new ChessPosition(row, 2)) == null 
-                    && board.getPiece(new ChessPosition(row, 3)) == null 
-                    && board.getPiece(new ChessPosition(row, 4)) == null
-                ) {
-                    possibleMoves.add(new ChessMove(position, new ChessPosition(row, 3), null));
-                }
+            // Rook must be in position to queen-side castle and there cannot be any pieces in between
+            long queenSideBetween = Bitboards.bit(Bitboards.square(row, 2))
+                | Bitboards.bit(Bitboards.square(row, 3))
+                | Bitboards.bit(Bitboards.square(row, 4));
+            if ((rooks & Bitboards.bit(Bitboards.square(row, 1))) != 0 && (occupied & queenSideBetween) == 0) {
+                possibleMoves.add(new ChessMove(position, ChessPosition.of(row, 3), null));
             }
         }
 
         return possibleMoves;
     }
-    
 
-    private Collection<ChessMove> getMovesInDirection(ChessBoard board, ChessPosition pos, int rowChange, int colChange) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-
-        int row = pos.getRow() + rowChange;
-        int col = pos.getColumn() + colChange;
+    /**
+     * Turns a set of attacked squares into moves, dropping squares held by the piece's own team
+     */
+    private Collection<ChessMove> movesToTargets(ChessBoard board, ChessPosition startPosition, long attacks) {
+        long targets = attacks & ~board.getOccupancy(this.getTeamColor());
+        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>(Bitboards.count(targets) + 2);
 
-        while (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
-            ChessPosition newPos = new ChessPosition(row, col);
-            if (board.getPiece(newPos) != null) {
-                if (board.getPiece(newPos).pieceColor != this.pieceColor) {
-                    possibleMoves.add(new ChessMove(pos, newPos, null));
-                }
-                break;
-            }
-            else {
-                possibleMoves.add(new ChessMove(pos, newPos, null));
-            }
-            row += rowChange;
-            col += colChange;
+        while (targets != 0) {
+            possibleMoves.add(new ChessMove(startPosition, Bitboards.position(Bitboards.lowestSquare(targets)), null));
+            targets &= targets - 1;
         }
-
         return possibleMoves;
     }
 
-    private Collection<ChessMove> extractChessMovesFromPositions(ChessBoard board, ChessPosition startPosition, ChessPosition[] positions) {
-        Collection<ChessMove> possibleMoves = new ArrayList<ChessMove>();
-        for (ChessPosition chessPosition : positions) {
-            if (1 <= chessPosition.getRow() && chessPosition.getRow() <= 8
-            && 1 <= chessPosition.getColumn() && chessPosition.getColumn() <= 8
-            ) {
-                ChessPiece boardPiece = board.getPiece(chessPosition);
-                if (boardPiece == null || boardPiece.pieceColor != this.getTeamColor()) {
-                    possibleMoves.add(new ChessMove(startPosition, chessPosition, null));
-                }
-            }
-        }
-        return possibleMoves;
+    private static TeamColor opposite(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
 
@@ -321,6 +264,6 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return pieceColor.ordinal() * 6 + type.ordinal();
     }
 }
@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -10,14 +8,48 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
-    private int row;
-    private int col;
+    // One shared instance for each square, indexed the same way as Bitboards
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
+
+    private final int row;
+    private final int col;
 
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
+    /**
+     * Gets the shared position for a row and column. Positions are immutable, so
+     * callers on hot paths should use this instead of the constructor.
+     *
+     * @param row the row (1 - 8)
+     * @param col the column (1 - 8)
+     * @return the shared position, or a new one if it is off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[(row - 1) * 8 + (col - 1)];
+    }
+
+    /**
+     * Gets the shared position for a square index
+     *
+     * @param square the square index (0 - 63)
+     * @return the shared position
+     */
+    public static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -48,6 +80,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.row, this.col);
+        // Same value as Objects.hash(row, col) without boxing the fields
+        return 31 * (31 + this.row) + this.col;
     }
 }
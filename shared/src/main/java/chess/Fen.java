@@ -0,0 +1,285 @@
+package chess;
+
+import java.io.IOException;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Reads and writes games in Forsyth-Edwards Notation, the one-line position format
+ * used by perft suites, engines and most chess sites:
+ * <pre>
+ *   rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1
+ * </pre>
+ * The fields are the pieces from a8 to h1, the side to move, the castling rights,
+ * the en passant target square, the halfmove clock and the fullmove number.
+ * <p>
+ * The parser walks the text once with an index instead of splitting it, so reading
+ * a position creates nothing but the game itself. Games only remember the previous
+ * move, so an en passant target is read back as the double pawn push that made it.
+ */
+final class Fen {
+
+    static final String INITIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private final CharSequence text;
+    private int index;
+
+    private Fen(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Sets up a game from a FEN. The move counters may be left off, as they are in EPD.
+     *
+     * @param fen the position
+     * @return a game in that position
+     * @throws IllegalArgumentException if the text is not a valid FEN
+     */
+    static ChessGame parse(CharSequence fen) {
+        return new Fen(fen).read();
+    }
+
+    /**
+     * Writes a game as a FEN
+     *
+     * @param game the game to write
+     * @param out where to write it
+     * @throws IOException if the appendable does
+     */
+    static void write(ChessGame game, Appendable out) throws IOException {
+        ChessBoard board = game.getBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int column = 1; column <= 8; column++) {
+                ChessPiece piece = board.getPiece(Bitboards.square(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(letter(piece));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                out.append('/');
+            }
+        }
+
+        out.append(game.getTeamTurn() == TeamColor.WHITE ? " w " : " b ");
+
+        boolean anyCastle = false;
+        if (game.canCastle(TeamColor.WHITE, true)) {
+            out.append('K');
+            anyCastle = true;
+        }
+        if (game.canCastle(TeamColor.WHITE, false)) {
+            out.append('Q');
+            anyCastle = true;
+        }
+        if (game.canCastle(TeamColor.BLACK, true)) {
+            out.append('k');
+            anyCastle = true;
+        }
+        if (game.canCastle(TeamColor.BLACK, false)) {
+            out.append('q');
+            anyCastle = true;
+        }
+        if (!anyCastle) {
+            out.append('-');
+        }
+
+        int enPassantSquare = game.getEnPassantSquare();
+        out.append(' ');
+        if (enPassantSquare >= 0) {
+            out.append((char) ('a' + Bitboards.column(enPassantSquare) - 1));
+            out.append((char) ('0' + Bitboards.row(enPassantSquare)));
+        }
+        else {
+            out.append('-');
+        }
+
+        out.append(' ').append(Integer.toString(game.getHalfmoveClock()));
+        out.append(' ').append(Integer.toString(game.getFullmoveNumber()));
+    }
+
+    private ChessGame read() {
+        this.skipSpaces();
+
+        ChessBoard board = new ChessBoard();
+        for (int row = 8; row >= 1; row--) {
+            int column = 1;
+            while (column <= 8) {
+                char c = this.next();
+                if (c >= '1' && c <= '8') {
+                    column += c - '0';
+                }
+                else {
+                    board.setPiece(Bitboards.square(row, column), this.piece(c));
+                    column++;
+                }
+            }
+            if (column != 9) {
+                throw this.error("rank " + row + " has more than 8 squares");
+            }
+            if (row > 1 && this.next() != '/') {
+                throw this.error("expected '/' after rank " + row);
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+
+        this.space();
+        char side = this.next();
+        if (side != 'w' && side != 'b') {
+            throw this.error("the side to move must be 'w' or 'b'");
+        }
+        game.setTeamTurn(side == 'w' ? TeamColor.WHITE : TeamColor.BLACK);
+
+        // A castle that is missing from the field counts as already moved
+        this.space();
+        int castlingFlags = 15;
+        if (this.peek() == '-') {
+            this.index++;
+        }
+        else {
+            do {
+                castlingFlags &= ~switch (this.next()) {
+                    case 'K' -> 1;
+                    case 'Q' -> 2;
+                    case 'k' -> 4;
+                    case 'q' -> 8;
+                    default -> throw this.error("castling rights must be '-' or some of 'KQkq'");
+                };
+            } while (this.peek() != ' ' && this.peek() != 0);
+        }
+        game.setCastlingFlags(castlingFlags);
+
+        this.space();
+        if (this.peek() == '-') {
+            this.index++;
+        }
+        else {
+            game.setPreviousMove(this.doublePush(board, game.getTeamTurn()));
+        }
+
+        // The counters are optional, but come as a pair
+        this.skipSpaces();
+        if (this.peek() != 0) {
+            game.setHalfmoveClock(this.number());
+            this.space();
+            game.setFullmoveNumber(this.number());
+            this.skipSpaces();
+            if (this.peek() != 0) {
+                throw this.error("unexpected text after the fullmove number");
+            }
+        }
+
+        return game;
+    }
+
+    /**
+     * Reads an en passant target square and works out the double push that made it
+     */
+    private ChessMove doublePush(ChessBoard board, TeamColor turn) {
+        char file = this.next();
+        char rank = this.next();
+        // The pawn that pushed belongs to the side that just moved
+        int targetRow = turn == TeamColor.WHITE ? 6 : 3;
+        if (file < 'a' || file > 'h' || rank != (char) ('0' + targetRow)) {
+            throw this.error("the en passant target must be on rank " + targetRow);
+        }
+
+        int column = file - 'a' + 1;
+        int direction = turn == TeamColor.WHITE ? -1 : 1;
+        TeamColor pusher = turn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        ChessPosition end = ChessPosition.of(targetRow + direction, column);
+        ChessPosition start = ChessPosition.of(targetRow - direction, column);
+        if (board.getPiece(end) != ChessPiece.of(pusher, PieceType.PAWN) || board.getPiece(start) != null
+            || board.getPiece(ChessPosition.of(targetRow, column)) != null) {
+            throw this.error("no pawn could have just moved past " + file + rank);
+        }
+        return new ChessMove(start, end, null);
+    }
+
+    private ChessPiece piece(char c) {
+        TeamColor color = Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK;
+        PieceType type = switch (Character.toLowerCase(c)) {
+            case 'p' -> PieceType.PAWN;
+            case 'n' -> PieceType.KNIGHT;
+            case 'b' -> PieceType.BISHOP;
+            case 'r' -> PieceType.ROOK;
+            case 'q' -> PieceType.QUEEN;
+            case 'k' -> PieceType.KING;
+            default -> throw this.error("'" + c + "' is not a piece");
+        };
+        return ChessPiece.of(color, type);
+    }
+
+    private static char letter(ChessPiece piece) {
+        char letter = switch (piece.getPieceType()) {
+            case PAWN -> 'p';
+            case KNIGHT -> 'n';
+            case BISHOP -> 'b';
+            case ROOK -> 'r';
+            case QUEEN -> 'q';
+            case KING -> 'k';
+        };
+        return piece.getTeamColor() == TeamColor.WHITE ? Character.toUpperCase(letter) : letter;
+    }
+
+    private int number() {
+        int start = this.index;
+        int value = 0;
+        while (this.peek() >= '0' && this.peek() <= '9') {
+            value = value * 10 + (this.next() - '0');
+            if (value > 100_000) {
+                throw this.error("move counter out of range");
+            }
+        }
+        if (this.index == start) {
+            throw this.error("expected a number");
+        }
+        return value;
+    }
+
+    /**
+     * Reads the spaces between two fields, of which there must be at least one
+     */
+    private void space() {
+        if (this.peek() != ' ') {
+            throw this.error("expected a space");
+        }
+        this.skipSpaces();
+    }
+
+    private void skipSpaces() {
+        while (this.peek() == ' ') {
+            this.index++;
+        }
+    }
+
+    /**
+     * @return the next character without reading it, or 0 at the end of the text
+     */
+    private char peek() {
+        return this.index < this.text.length() ? this.text.charAt(this.index) : 0;
+    }
+
+    private char next() {
+        if (this.index >= this.text.length()) {
+            throw this.error("the FEN ends too soon");
+        }
+        return this.text.charAt(this.index++);
+    }
+
+    private IllegalArgumentException error(String reason) {
+        return new IllegalArgumentException("Bad FEN at character %d (%s): %s".formatted(this.index, reason, this.text));
+    }
+}
@@ -0,0 +1,30 @@
+package chess;
+
+/**
+ * The state of a game from the point of view of the team whose turn it is
+ */
+public enum GameStatus {
+    /**
+     * The team to move is not in check and has a legal move
+     */
+    ONGOING,
+    /**
+     * The team to move is in check but can get out of it
+     */
+    CHECK,
+    /**
+     * The team to move is in check and has no legal move
+     */
+    CHECKMATE,
+    /**
+     * The team to move is not in check but has no legal move
+     */
+    STALEMATE;
+
+    /**
+     * @return whether the game cannot continue
+     */
+    public boolean isGameOver() {
+        return this == CHECKMATE || this == STALEMATE;
+    }
+}
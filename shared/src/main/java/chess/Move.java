@@ -0,0 +1,154 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+
+/**
+ * Helpers for moves packed into a single int, so move generation does not
+ * allocate an object per move.
+ * <p>
+ * The bits of a packed move are laid out as follows:
+ * <pre>
+ *  0 -  5  start square (0 - 63)
+ *  6 - 11  end square (0 - 63)
+ * 12 - 14  promotion piece (0 for none, otherwise the PieceType ordinal + 1)
+ * 15 - 18  flags (capture, en passant, castling, double pawn push)
+ * </pre>
+ * Two packed moves describe the same {@link ChessMove} when their low 15 bits match.
+ * {@link ChessMove} stays the public type; packed moves are converted only at that
+ * boundary, and the conversion hands back a shared instance for each distinct move.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_CAPTURE = 1 << 15;
+    public static final int FLAG_EN_PASSANT = 1 << 16;
+    public static final int FLAG_CASTLING = 1 << 17;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 18;
+
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    // ChessMove instances are immutable, so each distinct move is only ever built once
+    private static final ChessMove[] CHESS_MOVES = new ChessMove[1 << 15];
+
+    private Move() {
+    }
+
+    /**
+     * Packs a move without a promotion
+     *
+     * @param from the start square
+     * @param to the end square
+     * @param flags any of the FLAG constants
+     * @return the packed move
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | flags;
+    }
+
+    /**
+     * Packs a move
+     *
+     * @param from the start square
+     * @param to the end square
+     * @param promotion the piece to promote to, or null
+     * @param flags any of the FLAG constants
+     * @return the packed move
+     */
+    public static int of(int from, int to, PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << 12) | flags;
+    }
+
+    /**
+     * Packs a ChessMove. No flags are set since they depend on the board.
+     *
+     * @param move the move to pack
+     * @return the packed move
+     */
+    public static int of(ChessMove move) {
+        return of(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    /**
+     * @return the start square of a packed move
+     */
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * @return the end square of a packed move
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the promotion piece of a packed move, or null if it does not promote
+     */
+    public static PieceType promotion(int move) {
+        int bits = (move >>> 12) & 7;
+        return bits == 0 ? null : TYPES[bits - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & FLAG_CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & FLAG_EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & FLAG_CASTLING) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (7 << 12)) != 0;
+    }
+
+    /**
+     * @return whether two packed moves have the same start, end and promotion, ignoring flags
+     */
+    public static boolean sameMove(int a, int b) {
+        return (a & MOVE_MASK) == (b & MOVE_MASK);
+    }
+
+    /**
+     * Converts a packed move to the public move type
+     *
+     * @param move the packed move
+     * @return the equivalent ChessMove
+     */
+    public static ChessMove toChessMove(int move) {
+        int index = move & MOVE_MASK;
+        ChessMove chessMove = CHESS_MOVES[index];
+        if (chessMove == null) {
+            chessMove = new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+            CHESS_MOVES[index] = chessMove;
+        }
+        return chessMove;
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        StringBuilder builder = new StringBuilder(5);
+        builder.append((char) ('a' + Bitboards.column(from(move)) - 1)).append(Bitboards.row(from(move)));
+        builder.append((char) ('a' + Bitboards.column(to(move)) - 1)).append(Bitboards.row(to(move)));
+        PieceType promotion = promotion(move);
+        if (promotion != null) {
+            builder.append(switch (promotion) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                default -> 'n';
+            });
+        }
+        return builder.toString();
+    }
+}
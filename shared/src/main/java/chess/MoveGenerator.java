@@ -0,0 +1,284 @@
+package chess;
+
+import java.util.Collection;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Generates fully legal moves for a position in a single pass.
+ * <p>
+ * Instead of trying each move and then looking for attacks on the king, the
+ * checking pieces and the pinned pieces are found once up front. From those:
+ * <ul>
+ *     <li>a check mask limits non-king moves to capturing the checker or blocking it</li>
+ *     <li>a pinned piece may only move along the line between its king and the pinner</li>
+ *     <li>the king may only step to squares the opponent does not attack</li>
+ * </ul>
+ * En passant is the one move that can uncover an attack through two squares at once,
+ * so it is checked against the occupancy after the capture.
+ */
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Gets every legal move for a team
+     *
+     * @param game the game to generate moves for
+     * @param teamColor the team to move
+     * @return every legal move
+     */
+    public static Collection<ChessMove> legalMoves(ChessGame game, TeamColor teamColor) {
+        return legalMoves(game, teamColor, Bitboards.FULL);
+    }
+
+    /**
+     * Gets the legal moves for the pieces of a team on a set of squares
+     *
+     * @param game the game to generate moves for
+     * @param teamColor the team to move
+     * @param fromMask the squares whose pieces should be moved
+     * @return every legal move that starts in the mask
+     */
+    public static Collection<ChessMove> legalMoves(ChessGame game, TeamColor teamColor, long fromMask) {
+        MoveList moves = new MoveList();
+        generateLegalMoves(game, teamColor, fromMask, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Adds every legal move for a team to a list as packed moves
+     *
+     * @param game the game to generate moves for
+     * @param teamColor the team to move
+     * @param moves the list to add the moves to; it is not cleared first
+     */
+    public static void generateLegalMoves(ChessGame game, TeamColor teamColor, MoveList moves) {
+        generateLegalMoves(game, teamColor, Bitboards.FULL, moves);
+    }
+
+    /**
+     * Adds the legal moves for the pieces of a team on a set of squares to a list as packed moves
+     *
+     * @param game the game to generate moves for
+     * @param teamColor the team to move
+     * @param fromMask the squares whose pieces should be moved
+     * @param moves the list to add the moves to; it is not cleared first
+     */
+    public static void generateLegalMoves(ChessGame game, TeamColor teamColor, long fromMask, MoveList moves) {
+        generate(game, teamColor, fromMask, false, moves);
+    }
+
+    /**
+     * Adds only the legal captures for a team to a list as packed moves, including
+     * en passant and capturing promotions. Quiet moves and castling are skipped.
+     *
+     * @param game the game to generate moves for
+     * @param teamColor the team to move
+     * @param moves the list to add the moves to; it is not cleared first
+     */
+    public static void generateLegalCaptures(ChessGame game, TeamColor teamColor, MoveList moves) {
+        generate(game, teamColor, Bitboards.FULL, true, moves);
+    }
+
+    private static void generate(ChessGame game, TeamColor teamColor, long fromMask, boolean capturesOnly,
+                                 MoveList moves) {
+        ChessBoard board = game.getBoard();
+        TeamColor opponent = teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        long occupied = board.getOccupancy();
+        long own = board.getOccupancy(teamColor);
+        long enemies = board.getOccupancy(opponent);
+        long king = board.getBitboard(teamColor, PieceType.KING);
+
+        long targetMask = capturesOnly ? enemies : Bitboards.FULL;
+        long checkMask = Bitboards.FULL;
+        long pinned = 0;
+        int kingSquare = board.getKingSquare(teamColor);
+
+        if (kingSquare >= 0) {
+            long checkers = Attacks.attackersTo(board, kingSquare, opponent, occupied);
+
+            if ((fromMask & king) != 0) {
+                addKingMoves(game, board, teamColor, opponent, kingSquare, checkers, targetMask, moves);
+            }
+
+            // With two checkers only the king can move
+            if (Bitboards.count(checkers) > 1) {
+                return;
+            }
+            if (checkers != 0) {
+                checkMask = checkers | Attacks.between(kingSquare, Bitboards.lowestSquare(checkers));
+            }
+            pinned = pinnedPieces(board, kingSquare, opponent, own, occupied);
+        }
+
+        long pieces = own & ~king & fromMask;
+        while (pieces != 0) {
+            int from = Bitboards.lowestSquare(pieces);
+            pieces &= pieces - 1;
+
+            PieceType type = board.getPiece(from).getPieceType();
+            long targets;
+            if (type == PieceType.PAWN) {
+                targets = pawnTargets(teamColor, from, occupied, enemies);
+            }
+            else {
+                targets = Attacks.of(type, teamColor, from, occupied) & ~own;
+            }
+
+            targets &= checkMask & targetMask;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                targets &= Attacks.line(kingSquare, from);
+            }
+
+            addMoves(from, targets, type == PieceType.PAWN, enemies, moves);
+        }
+
+        addEnPassantMoves(game, board, teamColor, opponent, kingSquare, fromMask, moves);
+    }
+
+    /**
+     * Gets the squares a pawn can move to by pushing forward or capturing
+     */
+    private static long pawnTargets(TeamColor teamColor, int from, long occupied, long enemies) {
+        int row = Bitboards.row(from);
+        int forwardOne = teamColor == TeamColor.WHITE ? row + 1 : row - 1;
+        if (forwardOne < 1 || forwardOne > 8) {
+            return 0;
+        }
+
+        long targets = Attacks.pawn(teamColor, from) & enemies;
+
+        int step = teamColor == TeamColor.WHITE ? 8 : -8;
+        int gameStartRow = teamColor == TeamColor.WHITE ? 2 : 7;
+        int oneStep = from + step;
+        if ((occupied & Bitboards.bit(oneStep)) == 0) {
+            targets |= Bitboards.bit(oneStep);
+            if (row == gameStartRow && (occupied & Bitboards.bit(oneStep + step)) == 0) {
+                targets |= Bitboards.bit(oneStep + step);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the pieces of a team that are the only thing between their king and
+     * an enemy rook, bishop or queen
+     */
+    private static long pinnedPieces(ChessBoard board, int kingSquare, TeamColor opponent, long own, long occupied) {
+        long queens = board.getBitboard(opponent, PieceType.QUEEN);
+        long snipers = (Attacks.rook(kingSquare, 0) & (board.getBitboard(opponent, PieceType.ROOK) | queens))
+            | (Attacks.bishop(kingSquare, 0) & (board.getBitboard(opponent, PieceType.BISHOP) | queens));
+
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Bitboards.lowestSquare(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = Attacks.between(kingSquare, sniper) & occupied;
+            if (Bitboards.count(blockers) == 1) {
+                pinned |= blockers & own;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Adds the king's steps to unattacked squares and any castling moves
+     */
+    private static void addKingMoves(ChessGame game, ChessBoard board, TeamColor teamColor, TeamColor opponent,
+                                     int kingSquare, long checkers, long targetMask, MoveList moves) {
+        long occupied = board.getOccupancy();
+        // Take the king off the board so it cannot hide behind itself along a checking ray
+        long withoutKing = occupied ^ Bitboards.bit(kingSquare);
+
+        long targets = Attacks.king(kingSquare) & ~board.getOccupancy(teamColor) & targetMask;
+        while (targets != 0) {
+            int to = Bitboards.lowestSquare(targets);
+            targets &= targets - 1;
+            if (Attacks.attackersTo(board, to, opponent, withoutKing) == 0) {
+                moves.add(Move.of(kingSquare, to, (board.getOccupancy(opponent) & Bitboards.bit(to)) != 0
+                    ? Move.FLAG_CAPTURE : 0));
+            }
+        }
+
+        // A king cannot castle out of check, and castling never captures
+        int row = teamColor == TeamColor.WHITE ? 1 : 8;
+        if (checkers != 0 || kingSquare != Bitboards.square(row, 5) || targetMask != Bitboards.FULL) {
+            return;
+        }
+
+        long rooks = board.getBitboard(teamColor, PieceType.ROOK);
+        if (game.canCastle(teamColor, true)
+            && (rooks & Bitboards.bit(Bitboards.square(row, 8))) != 0
+            && (occupied & Attacks.between(kingSquare, Bitboards.square(row, 8))) == 0
+            && !Attacks.isAttacked(board, Bitboards.square(row, 6), opponent)
+            && !Attacks.isAttacked(board, Bitboards.square(row, 7), opponent)) {
+            moves.add(Move.of(kingSquare, Bitboards.square(row, 7), Move.FLAG_CASTLING));
+        }
+        if (game.canCastle(teamColor, false)
+            && (rooks & Bitboards.bit(Bitboards.square(row, 1))) != 0
+            && (occupied & Attacks.between(kingSquare, Bitboards.square(row, 1))) == 0
+            && !Attacks.isAttacked(board, Bitboards.square(row, 4), opponent)
+            && !Attacks.isAttacked(board, Bitboards.square(row, 3), opponent)) {
+            moves.add(Move.of(kingSquare, Bitboards.square(row, 3), Move.FLAG_CASTLING));
+        }
+    }
+
+    /**
+     * Adds en passant captures, checking each one against the board as it will be
+     * after both pawns have left their squares
+     */
+    private static void addEnPassantMoves(ChessGame game, ChessBoard board, TeamColor teamColor, TeamColor opponent,
+                                          int kingSquare, long fromMask, MoveList moves) {
+        int target = game.getEnPassantSquare();
+        if (target < 0 || Bitboards.row(target) != (teamColor == TeamColor.WHITE ? 6 : 3)) {
+            return;
+        }
+
+        int capturedSquare = teamColor == TeamColor.WHITE ? target - 8 : target + 8;
+        long capturers = Attacks.pawn(opponent, target) & board.getBitboard(teamColor, PieceType.PAWN) & fromMask;
+        while (capturers != 0) {
+            int from = Bitboards.lowestSquare(capturers);
+            capturers &= capturers - 1;
+
+            if (kingSquare >= 0) {
+                long occupiedAfter = (board.getOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(capturedSquare))
+                    | Bitboards.bit(target);
+                long attackers = Attacks.attackersTo(board, kingSquare, opponent, occupiedAfter)
+                    & ~Bitboards.bit(capturedSquare);
+                if (attackers != 0) {
+                    continue;
+                }
+            }
+            moves.add(Move.of(from, target, Move.FLAG_CAPTURE | Move.FLAG_EN_PASSANT));
+        }
+    }
+
+    /**
+     * Adds a move to each target square, expanding pawn moves onto the last row into promotions
+     */
+    private static void addMoves(int from, long targets, boolean pawn, long enemies, MoveList moves) {
+        while (targets != 0) {
+            int to = Bitboards.lowestSquare(targets);
+            targets &= targets - 1;
+
+            int flags = (enemies & Bitboards.bit(to)) != 0 ? Move.FLAG_CAPTURE : 0;
+            if (pawn) {
+                int row = Bitboards.row(to);
+                if (row == 8 || row == 1) {
+                    for (PieceType promotion : ChessPiece.PROMOTIONS) {
+                        moves.add(Move.of(from, to, promotion, flags));
+                    }
+                    continue;
+                }
+                if (Math.abs(to - from) == 16) {
+                    flags |= Move.FLAG_DOUBLE_PUSH;
+                }
+            }
+            moves.add(Move.of(from, to, flags));
+        }
+    }
+}
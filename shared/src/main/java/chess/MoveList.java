@@ -0,0 +1,123 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A growable list of packed moves backed by an int array.
+ * <p>
+ * A list can be cleared and filled again without allocating, so a search can keep
+ * one list per ply and reuse it for every node at that ply.
+ */
+public final class MoveList {
+
+    // No legal chess position has more than 218 moves
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+    }
+
+    /**
+     * Adds a packed move to the end of the list
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            int[] grown = new int[moves.length * 2];
+            System.arraycopy(moves, 0, grown, 0, size);
+            moves = grown;
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * @return the packed move at an index
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return moves[index];
+    }
+
+    /**
+     * Replaces the packed move at an index
+     */
+    public void set(int index, int move) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        moves[index] = move;
+    }
+
+    /**
+     * Swaps the moves at two indexes, for ordering moves in place
+     */
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the list while keeping its storage
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Determines if the list holds a move with the same start, end and promotion
+     *
+     * @param move the packed move to look for; its flags are ignored
+     * @return True if a matching move is in the list
+     */
+    public boolean contains(int move) {
+        return this.indexOf(move) >= 0;
+    }
+
+    /**
+     * Finds a move with the same start, end and promotion
+     *
+     * @param move the packed move to look for; its flags are ignored
+     * @return the index of the matching move, or -1 if there is none
+     */
+    public int indexOf(int move) {
+        for (int i = 0; i < size; i++) {
+            if (Move.sameMove(moves[i], move)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts the list to the public move type
+     *
+     * @return a new collection holding the equivalent ChessMoves
+     */
+    public Collection<ChessMove> toChessMoves() {
+        Collection<ChessMove> chessMoves = new ArrayList<ChessMove>(size);
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(Move.toChessMove(moves[i]));
+        }
+        return chessMoves;
+    }
+}
@@ -0,0 +1,35 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+
+/**
+ * Everything needed to take back a move made with {@link ChessGame#makeUncheckedMove(ChessMove)}
+ *
+ * @param move the move that was made
+ * @param movedPiece the piece that moved, as it was before any promotion
+ * @param capturedPiece the piece that was captured, or null if nothing was captured
+ * @param capturedSquare the square the captured piece was on (differs from the end square for en passant)
+ * @param castlingFlags the castling flags of the game before the move
+ * @param previousMove the game's previous move before this move was made
+ * @param teamTurn whose turn it was before the move
+ * @param castling whether the move was a castling move
+ * @param halfmoveClock the halfmove clock of the game before the move
+ */
+public record MoveUndo(
+        ChessMove move,
+        ChessPiece movedPiece,
+        ChessPiece capturedPiece,
+        int capturedSquare,
+        int castlingFlags,
+        ChessMove previousMove,
+        TeamColor teamTurn,
+        boolean castling,
+        int halfmoveClock) {
+
+    /**
+     * @return whether the move promoted a pawn
+     */
+    public boolean promotion() {
+        return move.getPromotionPiece() != null;
+    }
+}
@@ -0,0 +1,239 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree ("perft") of a game.
+ * <p>
+ * Perft is the standard way to check a move generator: the node counts of a few
+ * well-known positions are published, and any bug in castling, en passant,
+ * promotion, pins or checks changes the count. The same positions double as a
+ * nodes-per-second baseline for benchmarks.
+ */
+public final class Perft {
+
+    /**
+     * Well-known perft positions along with their published node counts
+     */
+    public enum Position {
+        INITIAL("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                20, 400, 8902, 197281, 4865609, 119060324),
+        KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                48, 2039, 97862, 4085603, 193690690),
+        POSITION_3("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                14, 191, 2812, 43238, 674624, 11030083),
+        POSITION_4("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                6, 264, 9467, 422333, 15833292),
+        POSITION_5("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                44, 1486, 62379, 2103487, 89941194),
+        POSITION_6("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                46, 2079, 89890, 3894594, 164075551);
+
+        private final String fen;
+        private final long[] nodes;
+
+        Position(String fen, long... nodes) {
+            this.fen = fen;
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return the position in Forsyth-Edwards Notation
+         */
+        public String getFen() {
+            return this.fen;
+        }
+
+        /**
+         * @return the deepest depth with a published node count
+         */
+        public int getMaxDepth() {
+            return this.nodes.length;
+        }
+
+        /**
+         * @param depth the depth to get the count for (1 or more)
+         * @return the published number of leaf nodes at that depth
+         */
+        public long getExpectedNodes(int depth) {
+            return this.nodes[depth - 1];
+        }
+
+        /**
+         * @return a new game set up in this position
+         */
+        public ChessGame createGame() {
+            return ChessGame.fromFen(this.fen);
+        }
+    }
+
+    // Below this depth a subtree is counted on one thread; splitting smaller trees costs more than it saves
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree to a given depth. The game is
+     * left exactly as it was found.
+     *
+     * @param game the game to count from
+     * @param depth how many moves deep to look
+     * @return the number of leaf nodes
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(game, depth, newMoveLists(depth));
+    }
+
+    /**
+     * Counts the leaf nodes under each root move separately. Comparing a divide
+     * against a trusted engine narrows a wrong perft down to the move at fault.
+     *
+     * @param game the game to count from
+     * @param depth how many moves deep to look, including the root move (1 or more)
+     * @return the number of leaf nodes under each legal root move
+     * @throws IllegalArgumentException if the depth is less than 1
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        checkDivideDepth(depth);
+        MoveList[] moveLists = newMoveLists(depth);
+        MoveList rootMoves = moveLists[depth - 1];
+        game.generateLegalMoves(rootMoves);
+
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            game.makeUncheckedMove(move);
+            counts.put(Move.toChessMove(move), depth > 1 ? perft(game, depth - 1, moveLists) : 1);
+            game.unmakeMove();
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree on every core of a pool. The tree
+     * is split on the root moves, and on the moves below them while the remaining
+     * depth is large, with each branch counted on a copy of the game.
+     *
+     * @param game the game to count from; it is left unchanged
+     * @param depth how many moves deep to look
+     * @param pool the pool to count on
+     * @return the number of leaf nodes
+     */
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return pool.invoke(new PerftTask(game.copy(), depth));
+    }
+
+    /**
+     * Counts the leaf nodes under each root move separately, with each root move
+     * counted as its own task on a pool
+     *
+     * @param game the game to count from; it is left unchanged
+     * @param depth how many moves deep to look, including the root move (1 or more)
+     * @param pool the pool to count on
+     * @return the number of leaf nodes under each legal root move
+     * @throws IllegalArgumentException if the depth is less than 1
+     */
+    public static Map<ChessMove, Long> parallelDivide(ChessGame game, int depth, ForkJoinPool pool) {
+        checkDivideDepth(depth);
+        MoveList rootMoves = new MoveList();
+        game.generateLegalMoves(rootMoves);
+
+        List<PerftTask> tasks = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            ChessGame child = game.copy();
+            child.makeUncheckedMove(rootMoves.get(i));
+            tasks.add(new PerftTask(child, depth - 1));
+        }
+        return pool.submit(() -> {
+            RecursiveTask.invokeAll(tasks);
+            Map<ChessMove, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                counts.put(Move.toChessMove(rootMoves.get(i)), tasks.get(i).join());
+            }
+            return counts;
+        }).join();
+    }
+
+    /**
+     * Counts leaf nodes using one reusable move list per remaining depth
+     */
+    private static long perft(ChessGame game, int depth, MoveList[] moveLists) {
+        MoveList moves = moveLists[depth - 1];
+        moves.clear();
+        game.generateLegalMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeUncheckedMove(moves.get(i));
+            nodes += perft(game, depth - 1, moveLists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts one branch of the tree, splitting it into a task per move while it is deep
+     */
+    private static final class PerftTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int depth;
+
+        private PerftTask(ChessGame game, int depth) {
+            this.game = game;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (this.depth <= SEQUENTIAL_DEPTH) {
+                return perft(this.game, this.depth);
+            }
+
+            MoveList moves = new MoveList();
+            this.game.generateLegalMoves(moves);
+            List<PerftTask> tasks = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                ChessGame child = this.game.copy();
+                child.makeUncheckedMove(moves.get(i));
+                tasks.add(new PerftTask(child, this.depth - 1));
+            }
+            invokeAll(tasks);
+
+            long nodes = 0;
+            for (PerftTask task : tasks) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    // A divide splits on the root moves, so there must be at least one move to split on
+    private static void checkDivideDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("a divide needs a depth of at least 1, not " + depth);
+        }
+    }
+
+    private static MoveList[] newMoveLists(int depth) {
+        MoveList[] moveLists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return moveLists;
+    }
+}
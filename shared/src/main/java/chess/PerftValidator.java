@@ -0,0 +1,217 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Checks the move generator against a large set of positions with known perft counts.
+ * <p>
+ * Each line of a suite is a FEN, optionally followed by moves to play from it, and
+ * then the expected count at one or more depths:
+ * <pre>
+ *   rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 moves e2e4 c7c5 ;D1 29 ;D2 631
+ * </pre>
+ * Moves are written in long algebraic notation ("e7e8q"). This is the EPD layout
+ * perft suites are usually published in, with the "moves" list borrowed from UCI.
+ * Blank lines and lines starting with '#' are skipped.
+ * <p>
+ * Cases are counted in parallel on a fork/join pool, so a suite of many positions
+ * uses every core. Lines are read as they are needed, so suites of any size can be
+ * streamed from disk. The stream of cases should be sequential.
+ */
+public final class PerftValidator {
+
+    /**
+     * One expected count
+     *
+     * @param line the line of the suite the case came from, starting at 1
+     * @param fen the starting position
+     * @param moves the moves to play from the starting position, in long algebraic notation
+     * @param depth how many moves deep to count from there
+     * @param expectedNodes the expected number of leaf nodes
+     */
+    public record TestCase(int line, String fen, List<String> moves, int depth, long expectedNodes) {}
+
+    /**
+     * A case that did not count what it should have
+     *
+     * @param testCase the case
+     * @param actualNodes the count the move generator gave, or -1 if the case could not be set up
+     * @param error why the case could not be set up, or null
+     */
+    public record Mismatch(TestCase testCase, long actualNodes, String error) {}
+
+    /**
+     * The outcome of checking a suite
+     *
+     * @param cases how many cases were checked
+     * @param nodes how many leaf nodes were counted in all
+     * @param elapsedMillis how long the check took
+     * @param mismatches every case that failed, in suite order
+     */
+    public record Report(int cases, long nodes, long elapsedMillis, List<Mismatch> mismatches) {
+
+        /**
+         * @return whether every case counted what it should have
+         */
+        public boolean passed() {
+            return mismatches.isEmpty();
+        }
+
+        /**
+         * @return the number of leaf nodes counted per second across all threads
+         */
+        public long nodesPerSecond() {
+            return elapsedMillis == 0 ? nodes * 1000 : nodes * 1000 / elapsedMillis;
+        }
+    }
+
+    private PerftValidator() {
+    }
+
+    /**
+     * Turns the lines of a suite into cases, one per expected count
+     *
+     * @param lines the lines of the suite, in order
+     * @return the cases, read lazily as the lines are
+     */
+    public static Stream<TestCase> parse(Stream<String> lines) {
+        AtomicInteger lineNumber = new AtomicInteger();
+        return lines.flatMap(line -> parseLine(lineNumber.incrementAndGet(), line).stream());
+    }
+
+    /**
+     * Counts every case and compares it with the expected count
+     *
+     * @param cases the cases to check
+     * @param pool the pool to count on
+     * @return what was checked and what failed
+     */
+    public static Report validate(Stream<TestCase> cases, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        LongAdder nodes = new LongAdder();
+        int count = 0;
+        List<Mismatch> mismatches = new ArrayList<>();
+
+        // The cases are read in order on this thread and counted on the pool, with only
+        // a few per thread waiting at a time so a huge suite is never held in memory
+        int maxPending = pool.getParallelism() * 4;
+        ArrayDeque<ForkJoinTask<Mismatch>> pending = new ArrayDeque<>();
+        Iterator<TestCase> iterator = cases.iterator();
+        while (iterator.hasNext()) {
+            TestCase testCase = iterator.next();
+            count++;
+            pending.add(pool.submit(() -> check(testCase, nodes)));
+            if (pending.size() >= maxPending) {
+                addMismatch(mismatches, pending.remove().join());
+            }
+        }
+        while (!pending.isEmpty()) {
+            addMismatch(mismatches, pending.remove().join());
+        }
+
+        return new Report(count, nodes.sum(), (System.nanoTime() - start) / 1_000_000, mismatches);
+    }
+
+    /**
+     * Checks a suite file: {@code PerftValidator <suite> [max depth]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PerftValidator <suite> [max depth]");
+            System.exit(1);
+        }
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+
+        Report report;
+        try (Stream<String> lines = Files.lines(Path.of(args[0]))) {
+            report = validate(parse(lines).filter(testCase -> testCase.depth() <= maxDepth), ForkJoinPool.commonPool());
+        }
+
+        for (Mismatch mismatch : report.mismatches()) {
+            TestCase testCase = mismatch.testCase();
+            System.out.printf("line %d depth %d: expected %d, got %s%n", testCase.line(), testCase.depth(),
+                testCase.expectedNodes(), mismatch.error() != null ? mismatch.error() : mismatch.actualNodes());
+        }
+        System.out.printf("%d cases, %d failed, %d nodes in %d ms (%d nodes/s)%n", report.cases(),
+            report.mismatches().size(), report.nodes(), report.elapsedMillis(), report.nodesPerSecond());
+        System.exit(report.passed() ? 0 : 1);
+    }
+
+    private static void addMismatch(List<Mismatch> mismatches, Mismatch mismatch) {
+        if (mismatch != null) {
+            mismatches.add(mismatch);
+        }
+    }
+
+    private static List<TestCase> parseLine(int lineNumber, String line) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return List.of();
+        }
+
+        String[] parts = trimmed.split(";");
+        String position = parts[0].strip();
+        List<String> moves = List.of();
+        int movesStart = position.indexOf(" moves ");
+        if (movesStart >= 0) {
+            moves = List.of(position.substring(movesStart + 7).strip().split("\\s+"));
+            position = position.substring(0, movesStart).strip();
+        }
+
+        List<TestCase> cases = new ArrayList<>();
+        for (int i = 1; i < parts.length; i++) {
+            String[] count = parts[i].strip().split("\\s+");
+            if (count.length != 2 || !count[0].startsWith("D")) {
+                throw new IllegalArgumentException("Line %d: not a depth and count: %s".formatted(lineNumber, parts[i]));
+            }
+            cases.add(new TestCase(lineNumber, position, moves, Integer.parseInt(count[0].substring(1)),
+                Long.parseLong(count[1])));
+        }
+        return cases;
+    }
+
+    /**
+     * @return the mismatch, or null if the case counted what it should have
+     */
+    private static Mismatch check(TestCase testCase, LongAdder totalNodes) {
+        ChessGame game;
+        try {
+            game = ChessGame.fromFen(testCase.fen());
+            for (String move : testCase.moves()) {
+                game.makeUncheckedMove(findMove(game, move));
+            }
+        }
+        catch (RuntimeException | InvalidMoveException ex) {
+            return new Mismatch(testCase, -1, ex.getMessage());
+        }
+
+        long nodes = Perft.perft(game, testCase.depth());
+        totalNodes.add(nodes);
+        return nodes == testCase.expectedNodes() ? null : new Mismatch(testCase, nodes, null);
+    }
+
+    /**
+     * Finds the legal move written in long algebraic notation
+     */
+    private static int findMove(ChessGame game, String text) throws InvalidMoveException {
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.toString(moves.get(i)).equals(text)) {
+                return moves.get(i);
+            }
+        }
+        throw new InvalidMoveException("Illegal move: " + text);
+    }
+}
@@ -0,0 +1,249 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation, the notation of PGN files
+ * and most chess books ("e4", "Nbd7", "exd6", "O-O", "e8=Q+").
+ * <p>
+ * SAN names only as much of a move as is needed to tell it apart from the other
+ * legal moves, so it can only be read against a position. Moves are matched
+ * against the legal moves of the game rather than rebuilt from the text, so the
+ * result always carries the right capture, castling and en passant flags.
+ */
+public final class San {
+
+    private San() {
+    }
+
+    /**
+     * Finds the legal move a SAN token names in a game
+     *
+     * @param game the game the move is played in
+     * @param san the move, with or without check marks and annotations
+     * @return the packed move
+     * @throws InvalidMoveException if the token is malformed, or names no legal move or more than one
+     */
+    public static int parse(ChessGame game, CharSequence san) throws InvalidMoveException {
+        int end = san.length();
+        // Drop check marks and annotations such as "+", "#", "!?"
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end < 2) {
+            throw new InvalidMoveException("Not a move: " + san);
+        }
+
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(moves);
+
+        char first = san.charAt(0);
+        if (first == 'O' || first == '0') {
+            boolean queenSide = end >= 5;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Move.isCastling(move) && (Move.to(move) & 7) == (queenSide ? 2 : 6)) {
+                    return move;
+                }
+            }
+            throw new InvalidMoveException("Cannot castle: " + san);
+        }
+
+        PieceType promotion = null;
+        if (end >= 2 && isPieceLetter(san.charAt(end - 1))) {
+            promotion = pieceType(san.charAt(end - 1));
+            end -= san.charAt(end - 2) == '=' ? 2 : 1;
+        }
+
+        int start = 0;
+        PieceType type = PieceType.PAWN;
+        if (isPieceLetter(first) && first != 'P') {
+            type = pieceType(first);
+            start = 1;
+        }
+
+        if (end - start < 2) {
+            throw new InvalidMoveException("Not a move: " + san);
+        }
+        int toColumn = san.charAt(end - 2) - 'a';
+        int toRow = san.charAt(end - 1) - '1';
+        if (toColumn < 0 || toColumn > 7 || toRow < 0 || toRow > 7) {
+            throw new InvalidMoveException("Not a move: " + san);
+        }
+        int to = toRow * 8 + toColumn;
+
+        // Whatever sits between the piece letter and the target square narrows down the start square
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            }
+            else if (c >= '1' && c <= '8') {
+                fromRow = c - '1';
+            }
+            else if (c != 'x' && c != '-') {
+                throw new InvalidMoveException("Not a move: " + san);
+            }
+        }
+
+        ChessBoard board = game.getBoard();
+        int found = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to || Move.isCastling(move)
+                || board.getPiece(from).getPieceType() != type
+                || Move.promotion(move) != promotion
+                || (fromColumn >= 0 && (from & 7) != fromColumn)
+                || (fromRow >= 0 && (from >>> 3) != fromRow)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                throw new InvalidMoveException("Ambiguous move: " + san);
+            }
+            found = move;
+        }
+        if (found == Move.NONE) {
+            throw new InvalidMoveException("Illegal move: " + san);
+        }
+        return found;
+    }
+
+    /**
+     * Writes a legal move of a game in SAN, naming the start square only as far as
+     * needed to tell it apart and marking check and checkmate
+     *
+     * @param game the game the move is played in; it is left as it was
+     * @param move the packed move; its flags are not needed
+     * @return the move in SAN
+     * @throws InvalidMoveException if the move is not legal in the game
+     */
+    public static String format(ChessGame game, int move) throws InvalidMoveException {
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(moves);
+        int legal = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            if (Move.sameMove(moves.get(i), move)) {
+                legal = moves.get(i);
+                break;
+            }
+        }
+        if (legal == Move.NONE) {
+            throw new InvalidMoveException("Illegal move: " + Move.toString(move));
+        }
+
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(legal);
+        int to = Move.to(legal);
+        if (Move.isCastling(legal)) {
+            san.append((to & 7) == 6 ? "O-O" : "O-O-O");
+        }
+        else {
+            ChessBoard board = game.getBoard();
+            PieceType type = board.getPiece(from).getPieceType();
+            if (type == PieceType.PAWN) {
+                if (Move.isCapture(legal)) {
+                    san.append((char) ('a' + (from & 7)));
+                }
+            }
+            else {
+                san.append(letter(type));
+                appendDisambiguation(san, board, moves, legal, type);
+            }
+            if (Move.isCapture(legal)) {
+                san.append('x');
+            }
+            san.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+            if (Move.promotion(legal) != null) {
+                san.append('=').append(letter(Move.promotion(legal)));
+            }
+        }
+
+        game.makeUncheckedMove(legal);
+        GameStatus status = game.getStatus();
+        game.unmakeMove();
+        if (status == GameStatus.CHECKMATE) {
+            san.append('#');
+        }
+        else if (status == GameStatus.CHECK) {
+            san.append('+');
+        }
+        return san.toString();
+    }
+
+    /**
+     * Writes a legal move of a game in SAN
+     *
+     * @param game the game the move is played in; it is left as it was
+     * @param move the move
+     * @return the move in SAN
+     * @throws InvalidMoveException if the move is not legal in the game
+     */
+    public static String format(ChessGame game, ChessMove move) throws InvalidMoveException {
+        return format(game, Move.of(move));
+    }
+
+    /**
+     * Adds the file, rank or both of the start square when another piece of the
+     * same type could also move to the end square. The file is preferred.
+     */
+    private static void appendDisambiguation(StringBuilder san, ChessBoard board, MoveList moves, int move,
+                                             PieceType type) {
+        int from = Move.from(move);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < moves.size(); i++) {
+            int other = moves.get(i);
+            int otherFrom = Move.from(other);
+            if (Move.to(other) != Move.to(move) || otherFrom == from
+                || board.getPiece(otherFrom).getPieceType() != type) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= (otherFrom & 7) == (from & 7);
+            sameRank |= (otherFrom >>> 3) == (from >>> 3);
+        }
+
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append((char) ('a' + (from & 7)));
+        }
+        else if (!sameRank) {
+            san.append((char) ('1' + (from >>> 3)));
+        }
+        else {
+            san.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+        }
+    }
+
+    private static char letter(PieceType type) {
+        return switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case PAWN -> 'P';
+        };
+    }
+
+    private static boolean isPieceLetter(char c) {
+        return "KQRBNP".indexOf(c) >= 0;
+    }
+
+    private static PieceType pieceType(char c) {
+        return switch (c) {
+            case 'K' -> PieceType.KING;
+            case 'Q' -> PieceType.QUEEN;
+            case 'R' -> PieceType.ROOK;
+            case 'B' -> PieceType.BISHOP;
+            case 'N' -> PieceType.KNIGHT;
+            default -> PieceType.PAWN;
+        };
+    }
+}
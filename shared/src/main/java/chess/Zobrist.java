@@ -0,0 +1,87 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Random keys for Zobrist hashing of chess positions.
+ * <p>
+ * A position's key is the XOR of one key per piece on its square plus keys for the
+ * side to move, the castling rights and the en passant file. Because XOR undoes
+ * itself, adding or removing a piece updates the key with a single XOR instead of
+ * hashing the whole board again. The keys come from a fixed seed, so a position
+ * has the same key in every JVM.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED240L);
+        for (long[] keys : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+
+        // Each castling right gets a key and a set of rights hashes to the XOR of its members
+        long[] rights = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        for (int flags = 0; flags < 16; flags++) {
+            for (int right = 0; right < 4; right++) {
+                if ((flags & (1 << right)) != 0) {
+                    CASTLING[flags] ^= rights[right];
+                }
+            }
+        }
+
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return the key for a piece standing on a square
+     */
+    public static long piece(ChessPiece piece, int square) {
+        return piece(piece.getTeamColor(), piece.getPieceType(), square);
+    }
+
+    /**
+     * @return the key for a kind of piece standing on a square
+     */
+    public static long piece(TeamColor color, PieceType type, int square) {
+        return PIECE_SQUARE[Bitboards.pieceIndex(color, type)][square];
+    }
+
+    /**
+     * @param flags castling flags packed the way {@link ChessGame} packs them
+     * @return the key for that set of castling flags
+     */
+    public static long castling(int flags) {
+        return CASTLING[flags & 15];
+    }
+
+    /**
+     * @param column the column (1 - 8) of the en passant square
+     * @return the key for en passant being possible on that column
+     */
+    public static long enPassant(int column) {
+        return EN_PASSANT_FILE[column - 1];
+    }
+
+    /**
+     * @return the key for the side to move
+     */
+    public static long sideToMove(TeamColor teamColor) {
+        return teamColor == TeamColor.BLACK ? BLACK_TO_MOVE : 0;
+    }
+}
@@ -0,0 +1,12 @@
+package chess.book;
+
+import chess.ChessMove;
+
+/**
+ * One move an opening book knows for a position
+ *
+ * @param move the move
+ * @param weight how strongly the book recommends it; two points for each game won with it and one for each draw
+ * @param games how many games of the corpus played it
+ */
+public record BookMove(ChessMove move, int weight, int games) {}
@@ -0,0 +1,169 @@
+package chess.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * A read-only opening book, looked up straight from a memory-mapped file.
+ * <p>
+ * The file is a short header followed by fixed-size entries sorted by position
+ * key, so finding the moves for a position is a binary search over the mapping.
+ * Opening a book reads nothing but the header, and every JVM on the machine that
+ * opens the same file shares its pages through the operating system's page cache.
+ * <p>
+ * The layout, all big-endian:
+ * <pre>
+ *   header  int magic ("CBK1"), int version, long entry count
+ *   entry   long position key, short move, short weight, int games
+ * </pre>
+ * A move is packed like the low 15 bits of {@link Move}: start square, end square
+ * and promotion. Entries of one position are ordered by weight, highest first.
+ * Books are written by {@link OpeningBookBuilder}.
+ * <p>
+ * Lookups only use absolute reads, so one book can be shared by any number of threads.
+ */
+public final class OpeningBook {
+
+    static final int MAGIC = 0x43424B31;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    private static final int MOVE_MASK = (1 << 15) - 1;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file into memory. The mapping stays valid after the file is
+     * closed and is released once the book is garbage collected.
+     *
+     * @param path the book file
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            long count = header.getLong(8);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                || count < 0 || length != HEADER_BYTES + count * ENTRY_BYTES) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            if (count * ENTRY_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Opening book is too large to map: " + path);
+            }
+            ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, count * ENTRY_BYTES);
+            return new OpeningBook(entries, (int) count);
+        }
+    }
+
+    /**
+     * @return the number of position and move pairs in the book
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the book moves for the position of a game. Entries that are not legal in
+     * the game, which can only happen if two positions share a key, are left out.
+     *
+     * @param game the game to look up
+     * @return the book moves, highest weight first; empty if the position is not in the book
+     */
+    public List<BookMove> lookup(ChessGame game) {
+        long key = game.positionKey();
+        int index = this.firstEntry(key);
+        if (index == this.size || this.key(index) != key) {
+            return List.of();
+        }
+
+        MoveList legalMoves = new MoveList();
+        game.generateLegalMoves(legalMoves);
+
+        List<BookMove> moves = new ArrayList<>();
+        for (; index < this.size && this.key(index) == key; index++) {
+            int offset = index * ENTRY_BYTES;
+            int packed = this.entries.getShort(offset + 8) & MOVE_MASK;
+            int weight = this.entries.getShort(offset + 10) & 0xFFFF;
+            int games = this.entries.getInt(offset + 12);
+            for (int i = 0; i < legalMoves.size(); i++) {
+                if (Move.sameMove(legalMoves.get(i), packed)) {
+                    moves.add(new BookMove(Move.toChessMove(packed), weight, games));
+                    break;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Picks a book move at random, in proportion to the weights
+     *
+     * @param game the game to pick a move for
+     * @param random where the randomness comes from
+     * @return the move, or null if the book has no move with any weight for the position
+     */
+    public ChessMove pickMove(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = this.lookup(game);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return null;
+        }
+
+        int pick = random.nextInt(total);
+        for (BookMove move : moves) {
+            pick -= move.weight();
+            if (pick < 0) {
+                return move.move();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the index of the first entry whose key is not less than the given key
+     */
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.key(middle) < key) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return this.entries.getLong(index * ENTRY_BYTES);
+    }
+}
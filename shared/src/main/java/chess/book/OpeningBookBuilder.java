@@ -0,0 +1,227 @@
+package chess.book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.San;
+import chess.pgn.GameRecord;
+import chess.pgn.PgnReader;
+
+/**
+ * Builds an {@link OpeningBook} file from a corpus of games.
+ * <p>
+ * Games are read one at a time and only the first few moves of each are kept, so
+ * the corpus itself can be far larger than memory. Every move played from a
+ * position is counted, and weighted by how the game ended for the side that
+ * played it: two points for a win and one for a draw.
+ */
+public class OpeningBookBuilder {
+
+    private static final int WRITE_BUFFER_ENTRIES = 4096;
+
+    private final int maxPly;
+    private final int minGames;
+    // Keyed by position and move; the value holds the weight and the number of games
+    private final Map<BookKey, int[]> counts = new HashMap<>();
+    private long games;
+
+    public OpeningBookBuilder() {
+        this(24, 1);
+    }
+
+    /**
+     * @param maxPly how many half moves of each game go into the book
+     * @param minGames how many games must play a move before the book keeps it
+     */
+    public OpeningBookBuilder(int maxPly, int minGames) {
+        if (maxPly < 1 || minGames < 1) {
+            throw new IllegalArgumentException("maxPly and minGames must be at least 1");
+        }
+        this.maxPly = maxPly;
+        this.minGames = minGames;
+    }
+
+    /**
+     * Adds the opening of one game. If a move cannot be read the game is cut off
+     * there, and the moves before it are still counted.
+     *
+     * @param sanMoves the moves of the game from the initial position, in SAN
+     * @param result the PGN result of the game: "1-0", "0-1", "1/2-1/2" or "*"
+     * @return whether every move that was needed could be read
+     */
+    public boolean addGame(List<? extends CharSequence> sanMoves, String result) {
+        this.games++;
+        ChessGame game = new ChessGame();
+        int plies = Math.min(sanMoves.size(), this.maxPly);
+        for (int ply = 0; ply < plies; ply++) {
+            int move;
+            try {
+                move = San.parse(game, sanMoves.get(ply));
+            }
+            catch (InvalidMoveException ex) {
+                return false;
+            }
+
+            int[] count = this.counts.computeIfAbsent(new BookKey(game.positionKey(), move & BookKey.MOVE_MASK),
+                key -> new int[2]);
+            count[0] += points(result, game.getTeamTurn());
+            count[1]++;
+            game.makeUncheckedMove(move);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the opening of one game read from PGN. If a move could not be read the
+     * game is cut off there, and the moves before it are still counted.
+     *
+     * @param record the game
+     * @return whether every move that was needed could be read
+     */
+    public boolean addGame(GameRecord record) {
+        this.games++;
+        ChessGame game;
+        try {
+            game = record.startingPosition();
+        }
+        catch (IllegalArgumentException ex) {
+            return false;
+        }
+
+        int plies = Math.min(record.moves().size(), this.maxPly);
+        for (int ply = 0; ply < plies; ply++) {
+            int move = Move.of(record.moves().get(ply));
+            int[] count = this.counts.computeIfAbsent(new BookKey(game.positionKey(), move & BookKey.MOVE_MASK),
+                key -> new int[2]);
+            count[0] += points(record.result(), game.getTeamTurn());
+            count[1]++;
+            game.makeUncheckedMove(move);
+        }
+        return record.isComplete() || record.moves().size() >= this.maxPly;
+    }
+
+    /**
+     * Adds every game of a PGN archive. Only the main line of each game is read;
+     * comments, variations and annotations are skipped.
+     *
+     * @param channel the PGN archive; it is read to the end but not closed
+     * @return the number of games read
+     * @throws IOException if the channel fails
+     */
+    public int addPgn(ReadableByteChannel channel) throws IOException {
+        PgnReader reader = new PgnReader(channel);
+        int gamesRead = 0;
+        try {
+            while (reader.hasNext()) {
+                this.addGame(reader.next());
+                gamesRead++;
+            }
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return gamesRead;
+    }
+
+    /**
+     * @return how many games have been added
+     */
+    public long getGames() {
+        return this.games;
+    }
+
+    /**
+     * Writes the book. Moves played by fewer than the minimum number of games are left out.
+     *
+     * @param path the file to write, replacing any file already there
+     * @return the number of entries written
+     * @throws IOException if the file cannot be written
+     */
+    public int write(Path path) throws IOException {
+        List<Map.Entry<BookKey, int[]>> entries = new ArrayList<>();
+        for (Map.Entry<BookKey, int[]> entry : this.counts.entrySet()) {
+            if (entry.getValue()[1] >= this.minGames) {
+                entries.add(entry);
+            }
+        }
+        entries.sort((a, b) -> {
+            int byKey = Long.compare(a.getKey().position(), b.getKey().position());
+            return byKey != 0 ? byKey : Integer.compare(b.getValue()[0], a.getValue()[0]);
+        });
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.ENTRY_BYTES * WRITE_BUFFER_ENTRIES);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putLong(entries.size());
+            for (Map.Entry<BookKey, int[]> entry : entries) {
+                if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(entry.getKey().position())
+                    .putShort((short) entry.getKey().move())
+                    .putShort((short) Math.min(entry.getValue()[0], 0xFFFF))
+                    .putInt(entry.getValue()[1]);
+            }
+            writeFully(channel, buffer);
+        }
+        return entries.size();
+    }
+
+    /**
+     * Builds a book from PGN files: {@code OpeningBookBuilder <book> <pgn>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: OpeningBookBuilder <book> <pgn>...");
+            System.exit(1);
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        long start = System.nanoTime();
+        for (int i = 1; i < args.length; i++) {
+            try (FileChannel channel = FileChannel.open(Path.of(args[i]))) {
+                builder.addPgn(channel);
+            }
+        }
+        int entries = builder.write(Path.of(args[0]));
+        System.out.printf("%d games, %d entries in %d ms%n", builder.getGames(), entries,
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static int points(String result, TeamColor mover) {
+        return switch (result) {
+            case "1-0" -> mover == TeamColor.WHITE ? 2 : 0;
+            case "0-1" -> mover == TeamColor.BLACK ? 2 : 0;
+            case "1/2-1/2" -> 1;
+            default -> 0;
+        };
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * A position and a move packed the way the book file stores it
+     */
+    private record BookKey(long position, int move) {
+        static final int MOVE_MASK = (1 << 15) - 1;
+    }
+}
@@ -0,0 +1,104 @@
+package chess.pgn;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.GameStatus;
+import chess.InvalidMoveException;
+
+/**
+ * One game of a PGN archive: its tags, the moves of its main line and its result
+ *
+ * @param tags the tag pairs in the order they were written, such as "White" and "Result"
+ * @param moves the main line from the starting position; if a move could not be read, the moves before it
+ * @param result "1-0", "0-1", "1/2-1/2" or "*" for an unknown result
+ * @param error why the moves stop early, or null if every move was read
+ */
+public record GameRecord(Map<String, String> tags, List<ChessMove> moves, String result, String error) {
+
+    public static final String UNKNOWN_RESULT = "*";
+
+    public GameRecord {
+        if (tags == null || moves == null || result == null) {
+            throw new IllegalArgumentException("a game record needs tags, moves and a result");
+        }
+    }
+
+    /**
+     * Describes a game so it can be written as PGN. The moves come from the game's
+     * history, and a game that did not start from the usual position gets the
+     * SetUp and FEN tags that say where it did start. A game that ended in
+     * checkmate, stalemate or resignation gets that result in place of the Result tag.
+     *
+     * @param tags the tags to write, such as "Event", "White" and "Black"
+     * @param game the game
+     * @return the record of the game
+     */
+    public static GameRecord of(Map<String, String> tags, ChessGame game) {
+        String result = tags.getOrDefault("Result", UNKNOWN_RESULT);
+        GameStatus status = game.getStatus();
+        if (status == GameStatus.CHECKMATE) {
+            result = game.getTeamTurn() == TeamColor.WHITE ? "0-1" : "1-0";
+        }
+        else if (status == GameStatus.STALEMATE) {
+            result = "1/2-1/2";
+        }
+        else if (game.getResignedTeam() != null) {
+            result = game.getResignedTeam() == TeamColor.WHITE ? "0-1" : "1-0";
+        }
+
+        Map<String, String> allTags = new LinkedHashMap<>(tags);
+        allTags.put("Result", result);
+        if (game.getStartingFen() != null) {
+            allTags.put("SetUp", "1");
+            allTags.put("FEN", game.getStartingFen());
+        }
+        return new GameRecord(allTags, game.getMoveHistory(), result, null);
+    }
+
+    /**
+     * @param name the name of the tag
+     * @return the value of the tag, or null if the game does not have it
+     */
+    public String tag(String name) {
+        return this.tags.get(name);
+    }
+
+    /**
+     * @return whether every move of the game could be read
+     */
+    public boolean isComplete() {
+        return this.error == null;
+    }
+
+    /**
+     * @return a new game in the position the moves start from, which the FEN tag sets if present
+     * @throws IllegalArgumentException if the FEN tag is not a valid FEN
+     */
+    public ChessGame startingPosition() {
+        return startingPositionOf(this.tags);
+    }
+
+    /**
+     * Plays the moves out, so the game can be stored and continued
+     *
+     * @return the game after its last move, with the moves in its history
+     * @throws InvalidMoveException if a move is not legal
+     */
+    public ChessGame toGame() throws InvalidMoveException {
+        ChessGame game = this.startingPosition();
+        for (ChessMove move : this.moves) {
+            game.makeMove(move);
+        }
+        return game;
+    }
+
+    static ChessGame startingPositionOf(Map<String, String> tags) {
+        String fen = tags.get("FEN");
+        return fen == null ? new ChessGame() : ChessGame.fromFen(fen);
+    }
+}
@@ -0,0 +1,346 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.San;
+
+/**
+ * Reads the games of a PGN archive one at a time.
+ * <p>
+ * The archive is read through one buffer that is refilled as it empties, and a game
+ * is handed out as soon as its last move is read, so memory use stays the same however
+ * large the archive is. Each move is checked by playing it on a live game, and games
+ * that start from a FEN tag are played from there. Comments, variations and numeric
+ * annotations are skipped. A game with a move that cannot be played keeps the moves
+ * before it and says what went wrong, and reading carries on with the next game.
+ * <p>
+ * The reader is an iterator, or a stream through {@link #stream()}. Read failures of
+ * the channel are thrown as {@link UncheckedIOException}.
+ */
+public class PgnReader implements Iterator<GameRecord>, Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int EOF = -1;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    // Reused for every token and tag value
+    private final StringBuilder token = new StringBuilder(32);
+    private byte[] value = new byte[64];
+
+    private boolean started;
+    private GameRecord next;
+
+    public PgnReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel the archive; a blocking channel, which the reader closes when it is closed
+     * @param bufferSize how many bytes to read from the channel at a time
+     */
+    public PgnReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize).flip();
+    }
+
+    /**
+     * @return the remaining games as a stream that closes the reader when it is closed
+     */
+    public Stream<GameRecord> stream() {
+        Spliterator<GameRecord> games = Spliterators.spliteratorUnknownSize(this,
+            Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(games, false).onClose(() -> {
+            try {
+                this.close();
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next == null) {
+            try {
+                this.next = this.readGame();
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public GameRecord next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GameRecord game = this.next;
+        this.next = null;
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * @return the next game, or null at the end of the archive
+     */
+    private GameRecord readGame() throws IOException {
+        if (!this.started) {
+            this.started = true;
+            this.skipByteOrderMark();
+        }
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        this.skipSpace();
+        while (this.peek() == '[') {
+            this.read();
+            this.readTag(tags);
+            this.skipSpace();
+        }
+
+        List<ChessMove> moves = new ArrayList<>();
+        String result = null;
+        String error = null;
+        ChessGame game = null;
+        try {
+            game = GameRecord.startingPositionOf(tags);
+        }
+        catch (IllegalArgumentException ex) {
+            error = ex.getMessage();
+        }
+
+        while (result == null) {
+            this.skipSpace();
+            int c = this.peek();
+            // A tag here starts the next game, so this one had no result
+            if (c == EOF || c == '[') {
+                break;
+            }
+            this.read();
+            switch (c) {
+                case '{' -> this.skipPast('}');
+                case ';' -> this.skipPast('\n');
+                case '(' -> this.skipVariation();
+                case ')' -> {
+                }
+                case '$' -> this.readToken();
+                default -> {
+                    this.token.setLength(0);
+                    this.token.append((char) c);
+                    this.readToken();
+                    if (isResult(this.token)) {
+                        result = this.token.toString();
+                    }
+                    else if (error == null && stripMoveNumber(this.token)) {
+                        try {
+                            int move = San.parse(game, this.token);
+                            moves.add(Move.toChessMove(move));
+                            game.makeUncheckedMove(move);
+                        }
+                        catch (InvalidMoveException ex) {
+                            error = "Move %d: %s".formatted(moves.size() + 1, ex.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+
+        if (tags.isEmpty() && moves.isEmpty() && result == null && error == null) {
+            return null;
+        }
+        if (result == null) {
+            result = tags.getOrDefault("Result", GameRecord.UNKNOWN_RESULT);
+        }
+        return new GameRecord(Collections.unmodifiableMap(tags), Collections.unmodifiableList(moves), result, error);
+    }
+
+    /**
+     * Reads a tag pair such as {@code [White "Carlsen, Magnus"]} after its opening bracket
+     */
+    private void readTag(Map<String, String> tags) throws IOException {
+        this.skipSpace();
+        this.token.setLength(0);
+        int c = this.peek();
+        while (c != EOF && c != '"' && c != ']' && !isSpace(c)) {
+            this.token.append((char) this.read());
+            c = this.peek();
+        }
+        this.skipSpace();
+        if (this.peek() != '"') {
+            this.skipPast(']');
+            return;
+        }
+        this.read();
+
+        // Tag values are the only text kept, and may be UTF-8
+        int length = 0;
+        c = this.read();
+        while (c != EOF && c != '"') {
+            if (c == '\\') {
+                c = this.read();
+                if (c == EOF) {
+                    break;
+                }
+            }
+            if (length == this.value.length) {
+                this.value = Arrays.copyOf(this.value, length * 2);
+            }
+            this.value[length++] = (byte) c;
+            c = this.read();
+        }
+        this.skipPast(']');
+
+        if (!this.token.isEmpty()) {
+            tags.put(this.token.toString(), new String(this.value, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Adds the rest of a move or result to the token
+     */
+    private void readToken() throws IOException {
+        int c = this.peek();
+        while (c != EOF && !isSpace(c) && "{};()[]$".indexOf(c) < 0) {
+            this.token.append((char) this.read());
+            c = this.peek();
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = this.read();
+            if (c == EOF) {
+                return;
+            }
+            if (c == '(') {
+                depth++;
+            }
+            else if (c == ')') {
+                depth--;
+            }
+            else if (c == '{') {
+                this.skipPast('}');
+            }
+            else if (c == ';') {
+                this.skipPast('\n');
+            }
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        int c = this.read();
+        while (c != EOF && c != end) {
+            c = this.read();
+        }
+    }
+
+    private void skipSpace() throws IOException {
+        int c = this.peek();
+        while (c != EOF && (isSpace(c) || c == '%')) {
+            // A line starting with '%' is an escape for other programs
+            if (c == '%') {
+                this.skipPast('\n');
+            }
+            else {
+                this.read();
+            }
+            c = this.peek();
+        }
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        if (this.peek() == 0xEF) {
+            this.read();
+            this.read();
+            this.read();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (!this.buffer.hasRemaining() && !this.fill()) {
+            return EOF;
+        }
+        return this.buffer.get(this.buffer.position()) & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if (!this.buffer.hasRemaining() && !this.fill()) {
+            return EOF;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    /**
+     * @return whether more bytes were read
+     */
+    private boolean fill() throws IOException {
+        this.buffer.clear();
+        int read = this.channel.read(this.buffer);
+        while (read == 0) {
+            read = this.channel.read(this.buffer);
+        }
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    private static boolean isResult(CharSequence token) {
+        return "1-0".contentEquals(token) || "0-1".contentEquals(token) || "1/2-1/2".contentEquals(token)
+            || GameRecord.UNKNOWN_RESULT.contentEquals(token);
+    }
+
+    /**
+     * Drops a move number written against the move ("1.e4", "12...Nf6")
+     *
+     * @return whether a move is left
+     */
+    private static boolean stripMoveNumber(StringBuilder token) {
+        int start = 0;
+        while (start < token.length() && Character.isDigit(token.charAt(start))) {
+            start++;
+        }
+        if (start < token.length() && token.charAt(start) == '.') {
+            while (start < token.length() && token.charAt(start) == '.') {
+                start++;
+            }
+            token.delete(0, start);
+        }
+        else if (start == token.length()) {
+            // A move number on its own without the dot
+            token.setLength(0);
+        }
+        return !token.isEmpty();
+    }
+}
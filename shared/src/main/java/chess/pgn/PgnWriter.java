@@ -0,0 +1,130 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.San;
+
+/**
+ * Writes games as PGN that {@link PgnReader} and other chess programs can read.
+ * <p>
+ * Games are written one at a time straight to the output, with tags first and the
+ * moves in SAN wrapped at 80 columns, so exporting an archive of any size only keeps
+ * one game in memory. To write to a channel, wrap it with
+ * {@link java.nio.channels.Channels#newWriter}.
+ */
+public class PgnWriter implements Closeable, Flushable {
+
+    private static final int LINE_LENGTH = 80;
+
+    private final Appendable out;
+    private int column;
+
+    /**
+     * @param out where to write the games; it is flushed and closed with the writer if it can be
+     */
+    public PgnWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a game and the blank line after it
+     *
+     * @param game the game to write
+     * @throws IOException if the output fails
+     * @throws InvalidMoveException if a move of the game is not legal
+     */
+    public void write(GameRecord game) throws IOException, InvalidMoveException {
+        for (Map.Entry<String, String> tag : game.tags().entrySet()) {
+            this.out.append('[').append(tag.getKey()).append(" \"");
+            String value = tag.getValue();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    this.out.append('\\');
+                }
+                this.out.append(c);
+            }
+            this.out.append("\"]\n");
+        }
+        if (!game.tags().isEmpty()) {
+            this.out.append('\n');
+        }
+
+        this.column = 0;
+        ChessGame position = game.startingPosition();
+        boolean first = true;
+        for (ChessMove chessMove : game.moves()) {
+            int move = Move.of(chessMove);
+            if (position.getTeamTurn() == TeamColor.WHITE) {
+                this.word(position.getFullmoveNumber() + ".");
+            }
+            else if (first) {
+                this.word(position.getFullmoveNumber() + "...");
+            }
+            this.word(San.format(position, move));
+            position.makeUncheckedMove(move);
+            first = false;
+        }
+        this.word(game.result());
+        this.out.append("\n\n");
+    }
+
+    /**
+     * Writes a game and the blank line after it
+     *
+     * @param tags the tags to write, such as "Event", "White" and "Black"
+     * @param game the game, whose history holds the moves
+     * @throws IOException if the output fails
+     * @throws InvalidMoveException if a move of the game's history is not legal
+     */
+    public void write(Map<String, String> tags, ChessGame game) throws IOException, InvalidMoveException {
+        this.write(GameRecord.of(tags, game));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.out instanceof Flushable flushable) {
+            flushable.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        if (this.out instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            }
+            catch (IOException | RuntimeException ex) {
+                throw ex;
+            }
+            catch (Exception ex) {
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Writes a word of the movetext, starting a new line if it would not fit
+     */
+    private void word(String word) throws IOException {
+        if (this.column > 0 && this.column + 1 + word.length() > LINE_LENGTH) {
+            this.out.append('\n');
+            this.column = 0;
+        }
+        if (this.column > 0) {
+            this.out.append(' ');
+            this.column++;
+        }
+        this.out.append(word);
+        this.column += word.length();
+    }
+}
@@ -0,0 +1,92 @@
+package chess.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * The longs behind a {@link TranspositionTable}, either on the heap or off it
+ */
+interface EntryStore {
+
+    long get(long index);
+
+    void set(long index, long value);
+
+    void clear();
+
+    /**
+     * Keeps the longs in one long[]. The garbage collector sees a single object no
+     * matter how many entries it holds.
+     */
+    final class Heap implements EntryStore {
+
+        private final long[] longs;
+
+        Heap(long size) {
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("table is too large for the heap; use off-heap memory");
+            }
+            this.longs = new long[(int) size];
+        }
+
+        @Override
+        public long get(long index) {
+            return this.longs[(int) index];
+        }
+
+        @Override
+        public void set(long index, long value) {
+            this.longs[(int) index] = value;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(this.longs, 0);
+        }
+    }
+
+    /**
+     * Keeps the longs in direct buffers outside the heap, so a large table adds
+     * nothing to heap size or garbage collection work. A direct buffer holds at most
+     * 2 GB, so larger tables are split into chunks.
+     */
+    final class OffHeap implements EntryStore {
+
+        private static final int CHUNK_SHIFT = 26;
+        private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+        private final LongBuffer[] chunks;
+
+        OffHeap(long size) {
+            int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+            this.chunks = new LongBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long longs = Math.min(size - ((long) i << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+                this.chunks[i] = ByteBuffer.allocateDirect((int) longs * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+            }
+        }
+
+        @Override
+        public long get(long index) {
+            return this.chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+        }
+
+        @Override
+        public void set(long index, long value) {
+            this.chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+        }
+
+        @Override
+        public void clear() {
+            for (LongBuffer chunk : this.chunks) {
+                for (int i = 0; i < chunk.capacity(); i++) {
+                    chunk.put(i, 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package chess.search;
+
+import chess.ChessPiece.PieceType;
+
+/**
+ * The numbers behind {@link IncrementalEvaluator}. Each score has a middlegame and
+ * an endgame weight, blended by how much material is left on the board.
+ * <p>
+ * Per-piece arrays are indexed by {@link PieceType} ordinal. Piece-square tables
+ * are written from white's side with a8 first and h1 last, the way a board is
+ * usually printed, and are mirrored for black.
+ *
+ * @param middlegameValues the value of each piece type in the middlegame
+ * @param endgameValues the value of each piece type in the endgame
+ * @param middlegameTables the middlegame bonus of each piece type on each square
+ * @param endgameTables the endgame bonus of each piece type on each square
+ * @param doubledPawn the middlegame and endgame penalty for each pawn behind another of its color
+ * @param isolatedPawn the middlegame and endgame penalty for a pawn with no pawns of its color beside it
+ * @param passedPawnMiddlegame the middlegame bonus for a passed pawn on each rank (1 - 8), from its own side
+ * @param passedPawnEndgame the endgame bonus for a passed pawn on each rank (1 - 8), from its own side
+ */
+public record EvaluationWeights(
+        int[] middlegameValues,
+        int[] endgameValues,
+        int[][] middlegameTables,
+        int[][] endgameTables,
+        int[] doubledPawn,
+        int[] isolatedPawn,
+        int[] passedPawnMiddlegame,
+        int[] passedPawnEndgame) {
+
+    private static final int[] PAWN_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0,
+    };
+    private static final int[] PAWN_ENDGAME_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         80,  80,  80,  80,  80,  80,  80,  80,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         30,  30,  30,  30,  30,  30,  30,  30,
+         20,  20,  20,  20,  20,  20,  20,  20,
+         10,  10,  10,  10,  10,  10,  10,  10,
+         10,  10,  10,  10,  10,  10,  10,  10,
+          0,   0,   0,   0,   0,   0,   0,   0,
+    };
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] ROOK_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0,
+    };
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+    };
+    private static final int[] KING_TABLE = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20,
+    };
+    private static final int[] KING_ENDGAME_TABLE = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+
+    /**
+     * Hand-picked weights that play sensibly without any tuning
+     */
+    public static final EvaluationWeights DEFAULT = new EvaluationWeights(
+            byType(0, 900, 330, 320, 500, 100),
+            byType(0, 940, 300, 280, 520, 120),
+            byType(KING_TABLE, QUEEN_TABLE, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE, PAWN_TABLE),
+            byType(KING_ENDGAME_TABLE, QUEEN_TABLE, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE, PAWN_ENDGAME_TABLE),
+            new int[]{10, 20},
+            new int[]{10, 15},
+            new int[]{0, 5, 10, 15, 25, 40, 60, 0},
+            new int[]{0, 10, 20, 35, 60, 90, 130, 0});
+
+    public EvaluationWeights {
+        if (middlegameValues.length != 6 || endgameValues.length != 6
+            || middlegameTables.length != 6 || endgameTables.length != 6) {
+            throw new IllegalArgumentException("weights need an entry for each of the 6 piece types");
+        }
+        for (int type = 0; type < 6; type++) {
+            if (middlegameTables[type].length != 64 || endgameTables[type].length != 64) {
+                throw new IllegalArgumentException("piece-square tables need 64 squares");
+            }
+        }
+        if (doubledPawn.length != 2 || isolatedPawn.length != 2
+            || passedPawnMiddlegame.length != 8 || passedPawnEndgame.length != 8) {
+            throw new IllegalArgumentException("pawn weights have the wrong length");
+        }
+    }
+
+    private static int[][] byType(int[] king, int[] queen, int[] bishop, int[] knight, int[] rook, int[] pawn) {
+        int[][] tables = new int[6][];
+        tables[PieceType.KING.ordinal()] = king;
+        tables[PieceType.QUEEN.ordinal()] = queen;
+        tables[PieceType.BISHOP.ordinal()] = bishop;
+        tables[PieceType.KNIGHT.ordinal()] = knight;
+        tables[PieceType.ROOK.ordinal()] = rook;
+        tables[PieceType.PAWN.ordinal()] = pawn;
+        return tables;
+    }
+
+    private static int[] byType(int king, int queen, int bishop, int knight, int rook, int pawn) {
+        int[] values = new int[6];
+        values[PieceType.KING.ordinal()] = king;
+        values[PieceType.QUEEN.ordinal()] = queen;
+        values[PieceType.BISHOP.ordinal()] = bishop;
+        values[PieceType.KNIGHT.ordinal()] = knight;
+        values[PieceType.ROOK.ordinal()] = rook;
+        values[PieceType.PAWN.ordinal()] = pawn;
+        return values;
+    }
+}
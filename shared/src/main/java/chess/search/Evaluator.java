@@ -0,0 +1,30 @@
+package chess.search;
+
+import chess.ChessGame;
+
+/**
+ * Scores positions at the leaves of a search.
+ * <p>
+ * A search only ever asks for scores through this interface, so weights can be
+ * swapped without touching move generation or the search itself.
+ */
+public interface Evaluator {
+
+    /**
+     * Scores a position from the point of view of the team whose turn it is
+     *
+     * @param game the position to score
+     * @return the score in centipawns; positive is good for the team to move
+     */
+    int evaluate(ChessGame game);
+
+    /**
+     * Called once before a search starts with the game it is about to search.
+     * Evaluators that keep running totals can start listening to its board here;
+     * the default does nothing.
+     *
+     * @param game the game the search will make and unmake moves on
+     */
+    default void attach(ChessGame game) {
+    }
+}
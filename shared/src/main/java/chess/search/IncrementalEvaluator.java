@@ -0,0 +1,181 @@
+package chess.search;
+
+import chess.BoardListener;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.Zobrist;
+
+/**
+ * Scores positions with material, piece-square tables and pawn structure, tapered
+ * between middlegame and endgame weights by the material left on the board.
+ * <p>
+ * Once attached to a game, the evaluator listens to its board and adjusts running
+ * totals as each piece is placed or taken off, so making and unmaking a move costs
+ * a handful of additions and evaluating costs nothing more than a blend. Pawn
+ * structure depends only on the pawns, so it is scored from the pawn bitboards and
+ * cached by the pawns' own Zobrist key.
+ * <p>
+ * An evaluator keeps state for one board at a time, so each search thread needs its own.
+ */
+public class IncrementalEvaluator implements Evaluator, BoardListener {
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final int MAX_PHASE = 24;
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    private final EvaluationWeights weights;
+    private final PawnHashTable pawnTable;
+
+    private ChessBoard board;
+    private int middlegame;
+    private int endgame;
+    private int phase;
+    private long pawnKey;
+
+    public IncrementalEvaluator() {
+        this(EvaluationWeights.DEFAULT);
+    }
+
+    public IncrementalEvaluator(EvaluationWeights weights) {
+        this(weights, 1 << 14);
+    }
+
+    /**
+     * @param weights the numbers to score with
+     * @param pawnEntries how many pawn formations to cache
+     */
+    public IncrementalEvaluator(EvaluationWeights weights, int pawnEntries) {
+        this.weights = weights;
+        this.pawnTable = new PawnHashTable(pawnEntries);
+    }
+
+    /**
+     * Starts keeping running totals for a game's board, replacing any board
+     * this evaluator was attached to before
+     *
+     * @param game the game to follow
+     */
+    @Override
+    public void attach(ChessGame game) {
+        if (this.board != null) {
+            this.board.setListener(null);
+        }
+        this.board = game.getBoard();
+        this.middlegame = 0;
+        this.endgame = 0;
+        this.phase = 0;
+        this.pawnKey = 0;
+        for (TeamColor color : TeamColor.values()) {
+            for (int i = 0; i < this.board.getPieceCount(color); i++) {
+                int square = this.board.getPieceSquare(color, i);
+                this.pieceAdded(square, this.board.getPiece(square));
+            }
+        }
+        this.board.setListener(this);
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        if (game.getBoard() != this.board) {
+            this.attach(game);
+        }
+
+        long pawns = this.pawnStructure();
+        int mg = this.middlegame + PawnHashTable.middlegame(pawns);
+        int eg = this.endgame + PawnHashTable.endgame(pawns);
+        int gamePhase = Math.min(this.phase, MAX_PHASE);
+        int score = (mg * gamePhase + eg * (MAX_PHASE - gamePhase)) / MAX_PHASE;
+        return game.getTeamTurn() == TeamColor.WHITE ? score : -score;
+    }
+
+    @Override
+    public void pieceAdded(int square, ChessPiece piece) {
+        this.update(square, piece, 1);
+    }
+
+    @Override
+    public void pieceRemoved(int square, ChessPiece piece) {
+        this.update(square, piece, -1);
+    }
+
+    private void update(int square, ChessPiece piece, int direction) {
+        int type = piece.getPieceType().ordinal();
+        boolean white = piece.getTeamColor() == TeamColor.WHITE;
+        // The tables are written from white's side with a8 first, so white flips the rows
+        int index = white ? square ^ 56 : square;
+        int sign = white ? direction : -direction;
+
+        this.middlegame += sign * (this.weights.middlegameValues()[type] + this.weights.middlegameTables()[type][index]);
+        this.endgame += sign * (this.weights.endgameValues()[type] + this.weights.endgameTables()[type][index]);
+        this.phase += direction * PHASE_WEIGHTS[type];
+        if (piece.getPieceType() == PieceType.PAWN) {
+            this.pawnKey ^= Zobrist.piece(piece, square);
+        }
+    }
+
+    /**
+     * @return the packed pawn-structure scores for white minus black, from the cache if possible
+     */
+    private long pawnStructure() {
+        long entry = this.pawnTable.probe(this.pawnKey);
+        if (entry != PawnHashTable.MISSING) {
+            return entry;
+        }
+
+        long white = this.board.getBitboard(TeamColor.WHITE, PieceType.PAWN);
+        long black = this.board.getBitboard(TeamColor.BLACK, PieceType.PAWN);
+        long whiteScore = this.scorePawns(white, black, true);
+        long blackScore = this.scorePawns(black, white, false);
+        int mg = PawnHashTable.middlegame(whiteScore) - PawnHashTable.middlegame(blackScore);
+        int eg = PawnHashTable.endgame(whiteScore) - PawnHashTable.endgame(blackScore);
+        this.pawnTable.store(this.pawnKey, mg, eg);
+        return PawnHashTable.pack(mg, eg);
+    }
+
+    /**
+     * Scores doubled, isolated and passed pawns for one side
+     */
+    private long scorePawns(long own, long enemy, boolean white) {
+        int mg = 0;
+        int eg = 0;
+
+        for (int column = 0; column < 8; column++) {
+            int count = Long.bitCount(own & (FILE_A << column));
+            if (count > 1) {
+                mg -= (count - 1) * this.weights.doubledPawn()[0];
+                eg -= (count - 1) * this.weights.doubledPawn()[1];
+            }
+        }
+
+        long pawns = own;
+        while (pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int column = square & 7;
+            int row = square >>> 3;
+
+            long file = FILE_A << column;
+            long neighbours = (column > 0 ? file >>> 1 : 0) | (column < 7 ? file << 1 : 0);
+            if ((own & neighbours) == 0) {
+                mg -= this.weights.isolatedPawn()[0];
+                eg -= this.weights.isolatedPawn()[1];
+            }
+
+            long ahead = white ? (row == 7 ? 0 : -1L << ((row + 1) * 8)) : (1L << (row * 8)) - 1;
+            if ((enemy & (file | neighbours) & ahead) == 0) {
+                int rank = white ? row : 7 - row;
+                mg += this.weights.passedPawnMiddlegame()[rank];
+                eg += this.weights.passedPawnEndgame()[rank];
+            }
+        }
+        return PawnHashTable.pack(mg, eg);
+    }
+
+    PawnHashTable getPawnTable() {
+        return this.pawnTable;
+    }
+}
@@ -0,0 +1,27 @@
+package chess.search;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Scores a position by counting material from the board's bitboards
+ */
+public class MaterialEvaluator implements Evaluator {
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int score = 0;
+        for (PieceType type : PieceType.values()) {
+            int difference = Long.bitCount(board.getBitboard(TeamColor.WHITE, type))
+                - Long.bitCount(board.getBitboard(TeamColor.BLACK, type));
+            score += difference * PIECE_VALUES[type.ordinal()];
+        }
+        return game.getTeamTurn() == TeamColor.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,191 @@
+package chess.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import chess.ChessGame;
+
+/**
+ * Searches one position on several threads at once ("Lazy SMP").
+ * <p>
+ * Every worker runs its own {@link Search} over the whole tree, and they cooperate
+ * only through a shared lock-free {@link TranspositionTable}: whatever one worker
+ * learns, the others find in the table and skip. Helper workers search staggered
+ * depths so they get ahead of the main worker and fill the table with deeper
+ * results. The main worker runs on the calling thread and decides when to stop.
+ * Then every worker is stopped through one shared flag, and the answer comes from
+ * the worker that finished the deepest iteration.
+ * <p>
+ * The thread count is chosen per call, so a single analysis can use every core
+ * while ordinary hints search on one. An instance can serve many calls at once,
+ * and they share a fixed pool of helper threads, so concurrent searches cannot
+ * start more threads than the pool holds; a call never gets more helpers than that.
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable table;
+    private final Supplier<Evaluator> evaluators;
+    private final int helperThreads;
+    // Null if there are no helper threads
+    private final ExecutorService helpers;
+
+    /**
+     * Makes a search with a helper thread for every core but the caller's
+     *
+     * @param table the table shared by every worker of every search
+     */
+    public ParallelSearch(TranspositionTable table) {
+        this(table, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * @param table the table shared by every worker of every search
+     * @param helperThreads how many helper threads all searches share
+     */
+    public ParallelSearch(TranspositionTable table, int helperThreads) {
+        this(table, IncrementalEvaluator::new, helperThreads);
+    }
+
+    /**
+     * @param table the table shared by every worker of every search
+     * @param evaluators creates an evaluator for each worker, since evaluators may keep state
+     * @param helperThreads how many helper threads all searches share
+     */
+    public ParallelSearch(TranspositionTable table, Supplier<Evaluator> evaluators, int helperThreads) {
+        if (helperThreads < 0) {
+            throw new IllegalArgumentException("the helper thread count cannot be negative");
+        }
+        this.table = table;
+        this.evaluators = evaluators;
+        this.helperThreads = helperThreads;
+
+        if (helperThreads > 0) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.helpers = Executors.newFixedThreadPool(helperThreads, runnable -> {
+                Thread thread = new Thread(runnable, "search-helper-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        else {
+            this.helpers = null;
+        }
+    }
+
+    /**
+     * Searches a game for the best move of the team whose turn it is
+     *
+     * @param game the game to search; it is copied and left unchanged
+     * @param limits when to stop; a node limit is split evenly between the workers
+     * @param threads how many threads to search with, including the calling thread; at most
+     * one more than the helper threads are used
+     * @return the best move found, with the nodes of every worker added together
+     * @throws IllegalStateException if a helper failed
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, int threads) {
+        return this.search(game, limits, threads, new AtomicBoolean());
+    }
+
+    /**
+     * Searches a game for the best move of the team whose turn it is. Setting the stop
+     * flag or interrupting the calling thread ends the search early with the best move
+     * found so far.
+     *
+     * @param game the game to search; it is copied and left unchanged
+     * @param limits when to stop; a node limit is split evenly between the workers
+     * @param threads how many threads to search with, including the calling thread; at most
+     * one more than the helper threads are used
+     * @param stop a flag the caller can set to stop the search
+     * @return the best move found, with the nodes of every worker added together
+     * @throws IllegalStateException if a helper failed
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, int threads, AtomicBoolean stop) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("a search needs at least one thread");
+        }
+        int workers = Math.min(threads, this.helperThreads + 1);
+
+        SearchLimits workerLimits = limits.nodes() == 0 ? limits
+            : new SearchLimits(limits.depth(), limits.timeMillis(), Math.max(1, limits.nodes() / workers));
+        ChessGame position = game.copy();
+
+        List<Future<SearchResult>> helperResults = new ArrayList<>(workers - 1);
+        for (int workerId = 1; workerId < workers; workerId++) {
+            int id = workerId;
+            helperResults.add(this.helpers.submit(() -> this.newSearch().search(position, workerLimits, id, stop)));
+        }
+
+        SearchResult best;
+        try {
+            best = this.newSearch().search(position, workerLimits, 0, stop);
+        }
+        finally {
+            stop.set(true);
+        }
+
+        // Helpers have been told to stop and finish within a few thousand nodes, so wait
+        // for them even if interrupted, and restore the interrupt afterwards
+        long nodes = best.nodes();
+        boolean interrupted = Thread.interrupted();
+        IllegalStateException failure = null;
+        for (Future<SearchResult> helperResult : helperResults) {
+            SearchResult result = null;
+            while (true) {
+                try {
+                    result = helperResult.get();
+                    break;
+                }
+                catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+                catch (ExecutionException ex) {
+                    // Keep waiting for the others, so no helper outlives the search
+                    if (failure == null) {
+                        failure = new IllegalStateException("a search helper failed", ex.getCause());
+                    }
+                    else {
+                        failure.addSuppressed(ex.getCause());
+                    }
+                    break;
+                }
+            }
+            if (result == null) {
+                continue;
+            }
+            nodes += result.nodes();
+            if (result.depth() > best.depth()
+                || (result.depth() == best.depth() && result.score() > best.score())) {
+                best = result;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, best.elapsedMillis(),
+                best.principalVariation());
+    }
+
+    /**
+     * Stops the helper threads. Searches already running finish on the calling thread alone.
+     */
+    public void shutdown() {
+        if (this.helpers != null) {
+            this.helpers.shutdownNow();
+        }
+    }
+
+    private Search newSearch() {
+        return new Search(this.evaluators.get(), this.table);
+    }
+}
@@ -0,0 +1,77 @@
+package chess.search;
+
+/**
+ * Remembers the pawn-structure score of recent pawn formations.
+ * <p>
+ * Pawns move far less often than the other pieces, so the same formation comes
+ * up again and again during a search. Each entry stores the Zobrist key of the
+ * pawns alongside their middlegame and endgame scores packed into one long.
+ * A later formation with the same slot simply replaces the earlier one.
+ */
+class PawnHashTable {
+
+    static final long MISSING = Long.MIN_VALUE;
+
+    private final long[] keys;
+    private final long[] values;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param entries the number of formations to remember, rounded up to a power of two
+     */
+    PawnHashTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("a pawn table needs at least one entry");
+        }
+        int size = Integer.highestOneBit(entries);
+        if (size < entries) {
+            size <<= 1;
+        }
+        this.keys = new long[size];
+        this.values = new long[size];
+        this.mask = size - 1;
+        // An empty slot holds key 0 with a score of 0, which is right for a board with no pawns
+    }
+
+    /**
+     * @param key the Zobrist key of the pawns
+     * @return the packed scores stored for the key, or {@link #MISSING}
+     */
+    long probe(long key) {
+        int index = (int) key & this.mask;
+        if (this.keys[index] == key) {
+            this.hits++;
+            return this.values[index];
+        }
+        this.misses++;
+        return MISSING;
+    }
+
+    void store(long key, int middlegame, int endgame) {
+        int index = (int) key & this.mask;
+        this.keys[index] = key;
+        this.values[index] = pack(middlegame, endgame);
+    }
+
+    static long pack(int middlegame, int endgame) {
+        return ((long) middlegame << 32) | (endgame & 0xFFFFFFFFL);
+    }
+
+    static int middlegame(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int endgame(long entry) {
+        return (int) entry;
+    }
+
+    long getHits() {
+        return this.hits;
+    }
+
+    long getMisses() {
+        return this.misses;
+    }
+}
@@ -0,0 +1,582 @@
+package chess.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.ChessPiece.PieceType;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+/**
+ * Picks a move for a position with an alpha-beta search.
+ * <p>
+ * The search is negamax with iterative deepening: it searches one move deep, then
+ * two, and so on until a limit is reached, and answers with the best move of the
+ * deepest iteration that finished. Leaves are extended with a quiescence search over
+ * captures so the score is not taken in the middle of an exchange. Moves are tried
+ * in order of the previous iteration's best move, captures by most valuable victim
+ * and least valuable attacker, killer moves, and then the history heuristic.
+ * <p>
+ * Results are kept in an optional {@link TranspositionTable}, which gives a best
+ * move to try first and cuts off positions already searched deeply enough.
+ * <p>
+ * The deadline is a hard one: the clock is read every {@value #TIME_CHECK_INTERVAL}
+ * nodes and the search unwinds as soon as it has passed. A search runs on its own
+ * copy of the game, so the caller's game is never touched. One instance keeps its
+ * tables between searches and must only be used by one thread at a time; call
+ * {@link #stop()} or interrupt the searching thread to cut a search short.
+ */
+public class Search {
+
+    public static final int MATE = 32000;
+    public static final int MAX_PLY = 128;
+
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+    private static final int INFINITY = MATE + 1;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final long[] NO_KEYS = new long[0];
+
+    // Move ordering scores, from tried first to tried last
+    private static final int ORDER_BEST = 4_000_000;
+    private static final int ORDER_CAPTURE = 2_000_000;
+    private static final int ORDER_QUEEN_PROMOTION = 1_500_000;
+    private static final int ORDER_KILLER = 1_000_000;
+    private static final int HISTORY_MAX = 500_000;
+
+    // How much an attacker is worth for ordering captures, indexed by PieceType ordinal
+    private static final int[] ATTACKER_RANK = {6, 5, 3, 2, 4, 1};
+
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][256];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[] history = new int[2 * 64 * 64];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final long[] pathKeys = new long[MAX_PLY + 1];
+    // The positions the game went through before the root, oldest first
+    private long[] gameKeys = NO_KEYS;
+
+    private ChessGame position;
+    private int rootBestMove;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    // Set by stop(), from any thread, and cleared when a search starts
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    // The flag shared by the workers of a parallel search, or null
+    private AtomicBoolean sharedStop;
+
+    public Search() {
+        this(new IncrementalEvaluator());
+    }
+
+    public Search(Evaluator evaluator) {
+        this(evaluator, null);
+    }
+
+    /**
+     * @param evaluator scores the leaves of the search
+     * @param table the table to keep results in, or null to search without one
+     */
+    public Search(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+        for (int i = 0; i < MAX_PLY; i++) {
+            this.moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches a game for the best move of the team whose turn it is
+     *
+     * @param game the game to search; it is copied and left unchanged
+     * @param limits when to stop
+     * @return the best move found along with its score and search statistics
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return this.search(game, limits, 0, null);
+    }
+
+    /**
+     * Searches as one worker of a parallel search. Workers other than the first skip
+     * every other depth, offset by their id, so that between them the workers fill the
+     * shared table with different depths.
+     *
+     * @param game the game to search; it is copied and left unchanged
+     * @param limits when to stop
+     * @param workerId 0 for the main worker, otherwise a helper
+     * @param stop a flag shared by every worker of the search; setting it stops them all.
+     * Null if this is not part of a parallel search.
+     * @return the best move of the deepest iteration this worker finished
+     */
+    SearchResult search(ChessGame game, SearchLimits limits, int workerId, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        this.position = game.copy();
+        this.evaluator.attach(this.position);
+        this.nodes = 0;
+        this.aborted = false;
+        this.stopRequested.set(false);
+        this.sharedStop = stop;
+        this.nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        this.deadline = limits.timeMillis() > 0 ? start + limits.timeMillis() * 1_000_000 : Long.MAX_VALUE;
+        int maxDepth = limits.depth() > 0 ? Math.min(limits.depth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+        this.clearOrdering();
+        if (this.table != null && workerId == 0) {
+            this.table.newSearch();
+        }
+        this.pathKeys[0] = this.position.positionKey();
+        this.gameKeys = repeatablePositions(game);
+
+        MoveList rootMoves = new MoveList();
+        this.position.generateLegalMoves(rootMoves);
+        if (rootMoves.isEmpty()) {
+            int score = this.position.isInCheck(this.position.getTeamTurn()) ? -MATE : 0;
+            return new SearchResult(null, score, 0, 0, elapsedMillis(start), List.of());
+        }
+
+        // Until an iteration finishes, fall back on any legal move
+        this.rootBestMove = rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        List<ChessMove> principalVariation = List.of(Move.toChessMove(this.rootBestMove));
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (workerId > 0 && depth > 1 && depth < maxDepth && (depth + workerId) % 2 == 0) {
+                continue;
+            }
+
+            int score = this.negamax(depth, 0, -INFINITY, INFINITY);
+            if (this.aborted) {
+                break;
+            }
+
+            completedDepth = depth;
+            bestScore = score;
+            this.rootBestMove = this.pvTable[0][0];
+            principalVariation = this.principalVariation();
+
+            // A forced mate inside the search horizon will not change with more depth
+            if (isMateScore(score) && MATE - Math.abs(score) <= depth) {
+                break;
+            }
+            // The next iteration takes longer than all of the previous ones together
+            if (this.deadline != Long.MAX_VALUE && System.nanoTime() - start > (this.deadline - start) / 2) {
+                break;
+            }
+        }
+
+        return new SearchResult(Move.toChessMove(this.rootBestMove), bestScore, completedDepth, this.nodes,
+                elapsedMillis(start), principalVariation);
+    }
+
+    /**
+     * Asks the running search to stop. It finishes with the best move found so far.
+     * May be called from any thread; a call made before a search starts has no effect on it.
+     */
+    public void stop() {
+        this.stopRequested.set(true);
+    }
+
+    /**
+     * @return the number of nodes visited by the current or last search
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return whether a score means one side can force mate
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) >= MATE_BOUND;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        this.pvLength[ply] = ply;
+        if (this.visitNode()) {
+            return 0;
+        }
+
+        if (ply > 0) {
+            if (this.isRepetition(ply)) {
+                return 0;
+            }
+            // No line from here can beat a mate that has already been found closer to the root
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) {
+                return alpha;
+            }
+        }
+
+        long key = this.pathKeys[ply];
+        int tableMove = Move.NONE;
+        if (this.table != null) {
+            long entry = this.table.probe(key);
+            if (entry != 0) {
+                tableMove = TranspositionTable.move(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        TeamColor side = this.position.getTeamTurn();
+        boolean inCheck = this.position.isInCheck(side);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return this.quiescence(ply, alpha, beta);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return this.evaluator.evaluate(this.position);
+        }
+
+        MoveList moves = this.moveLists[ply];
+        moves.clear();
+        this.position.generateLegalMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        this.scoreMoves(ply, moves, ply == 0 ? this.rootBestMove : tableMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = tableMove;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = this.pickNext(ply, moves, i);
+
+            this.position.makeUncheckedMove(move);
+            this.pathKeys[ply + 1] = this.position.positionKey();
+            int score = -this.negamax(depth - 1, ply + 1, -beta, -alpha);
+            this.position.unmakeMove();
+            if (this.aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    this.updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        this.recordCutoff(ply, side, move, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (this.table != null) {
+            int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+            this.table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Searches captures only until the position is quiet, so a leaf is never scored
+     * halfway through an exchange. When in check every evasion is searched instead.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        this.pvLength[ply] = ply;
+        if (this.visitNode()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return this.evaluator.evaluate(this.position);
+        }
+
+        TeamColor side = this.position.getTeamTurn();
+        MoveList moves = this.moveLists[ply];
+        moves.clear();
+
+        int bestScore;
+        if (this.position.isInCheck(side)) {
+            MoveGenerator.generateLegalMoves(this.position, side, moves);
+            if (moves.isEmpty()) {
+                return -MATE + ply;
+            }
+            bestScore = -INFINITY;
+        }
+        else {
+            // Standing pat: the side to move does not have to capture
+            bestScore = this.evaluator.evaluate(this.position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+            MoveGenerator.generateLegalCaptures(this.position, side, moves);
+        }
+        this.scoreMoves(ply, moves, Move.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = this.pickNext(ply, moves, i);
+
+            this.position.makeUncheckedMove(move);
+            int score = -this.quiescence(ply + 1, -beta, -alpha);
+            this.position.unmakeMove();
+            if (this.aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    this.updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * Counts a node and checks the limits
+     *
+     * @return whether the search has to stop
+     */
+    private boolean visitNode() {
+        this.nodes++;
+        if (this.nodes >= this.nodeLimit || this.stopRequested.get()
+            || (this.sharedStop != null && this.sharedStop.get())) {
+            this.aborted = true;
+        }
+        else if ((this.nodes & (TIME_CHECK_INTERVAL - 1)) == 0
+            && (System.nanoTime() >= this.deadline || Thread.currentThread().isInterrupted())) {
+            this.aborted = true;
+        }
+        return this.aborted;
+    }
+
+    /**
+     * Determines if the position at a ply already came up earlier on the path from the root,
+     * or earlier in the game, with the same side to move. Repeating a position is scored as a draw.
+     */
+    private boolean isRepetition(int ply) {
+        long key = this.pathKeys[ply];
+        for (int i = ply - 2; i >= 0; i -= 2) {
+            if (this.pathKeys[i] == key) {
+                return true;
+            }
+        }
+        // The last game position is one ply before the root
+        for (int i = this.gameKeys.length - 2 + ply % 2; i >= 0; i -= 2) {
+            if (this.gameKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives a key for everything a search of a game depends on: its position and the
+     * earlier positions of the game that the search could repeat. Two games with the
+     * same key get the same search result, so it can key a cache of results.
+     *
+     * @param game the game to be searched
+     * @return the key
+     */
+    public static long resultKey(ChessGame game) {
+        long key = game.positionKey();
+        for (long earlier : repeatablePositions(game)) {
+            key = key * 0x9E3779B97F4A7C15L + earlier;
+        }
+        return key;
+    }
+
+    /**
+     * Replays a game's move history to find the positions that came before its current one.
+     * Only those since the last capture or pawn move can come up again. A history that
+     * does not lead to the game's position, as when the board was set directly, is ignored.
+     *
+     * @param game the game
+     * @return the keys of those positions, oldest first
+     */
+    private static long[] repeatablePositions(ChessGame game) {
+        List<ChessMove> moves = game.getMoveHistory();
+        int count = Math.min(game.getHalfmoveClock(), moves.size());
+        if (count == 0) {
+            return NO_KEYS;
+        }
+
+        long[] keys = new long[count];
+        ChessGame replay = game.getStartingFen() == null ? new ChessGame() : ChessGame.fromFen(game.getStartingFen());
+        int first = moves.size() - count;
+        for (int i = 0; i < moves.size(); i++) {
+            if (replay.getBoard().getPiece(moves.get(i).getStartPosition()) == null) {
+                return NO_KEYS;
+            }
+            if (i >= first) {
+                keys[i - first] = replay.positionKey();
+            }
+            replay.makeUncheckedMove(moves.get(i));
+        }
+        return replay.positionKey() == game.positionKey() ? keys : NO_KEYS;
+    }
+
+    /**
+     * Gives each move an ordering score; the highest scoring moves are searched first
+     */
+    private void scoreMoves(int ply, MoveList moves, int bestMove) {
+        ChessBoard board = this.position.getBoard();
+        int side = this.position.getTeamTurn().ordinal();
+        int[] scores = this.moveScores[ply];
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (bestMove != Move.NONE && Move.sameMove(move, bestMove)) {
+                score = ORDER_BEST;
+            }
+            else if (Move.isCapture(move)) {
+                PieceType victim = Move.isEnPassant(move) ? PieceType.PAWN
+                    : board.getPiece(Move.to(move)).getPieceType();
+                PieceType attacker = board.getPiece(Move.from(move)).getPieceType();
+                score = ORDER_CAPTURE + MaterialEvaluator.PIECE_VALUES[victim.ordinal()] * 10
+                    - ATTACKER_RANK[attacker.ordinal()];
+            }
+            else if (Move.promotion(move) == PieceType.QUEEN) {
+                score = ORDER_QUEEN_PROMOTION;
+            }
+            else if (Move.sameMove(move, this.killers[ply][0])) {
+                score = ORDER_KILLER + 1;
+            }
+            else if (Move.sameMove(move, this.killers[ply][1])) {
+                score = ORDER_KILLER;
+            }
+            else {
+                score = this.history[historyIndex(side, move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the highest scoring move not yet tried into slot i and returns it
+     */
+    private int pickNext(int ply, MoveList moves, int i) {
+        int[] scores = this.moveScores[ply];
+        int best = i;
+        for (int j = i + 1; j < moves.size(); j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            moves.swap(i, best);
+            int score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(i);
+    }
+
+    /**
+     * Remembers a quiet move that caused a beta cutoff so it is tried early in sibling nodes
+     */
+    private void recordCutoff(int ply, TeamColor side, int move, int depth) {
+        if (Move.isCapture(move) || Move.isPromotion(move)) {
+            return;
+        }
+
+        if (!Move.sameMove(move, this.killers[ply][0])) {
+            this.killers[ply][1] = this.killers[ply][0];
+            this.killers[ply][0] = move;
+        }
+
+        int index = historyIndex(side.ordinal(), move);
+        this.history[index] += depth * depth;
+        if (this.history[index] > HISTORY_MAX) {
+            for (int i = 0; i < this.history.length; i++) {
+                this.history[i] /= 2;
+            }
+        }
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        this.pvTable[ply][ply] = move;
+        int childLength = this.pvLength[ply + 1];
+        for (int i = ply + 1; i < childLength; i++) {
+            this.pvTable[ply][i] = this.pvTable[ply + 1][i];
+        }
+        this.pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private List<ChessMove> principalVariation() {
+        List<ChessMove> line = new ArrayList<>(this.pvLength[0]);
+        for (int i = 0; i < this.pvLength[0]; i++) {
+            line.add(Move.toChessMove(this.pvTable[0][i]));
+        }
+        return line;
+    }
+
+    /**
+     * Forgets the killers of the last search and fades its history, which still
+     * says something about the position the next search most likely starts from
+     */
+    private void clearOrdering() {
+        for (int[] killer : this.killers) {
+            killer[0] = Move.NONE;
+            killer[1] = Move.NONE;
+        }
+        for (int i = 0; i < this.history.length; i++) {
+            this.history[i] /= 8;
+        }
+    }
+
+    /**
+     * Mate scores count plies from the root, but a table entry can be reached at any
+     * ply, so they are stored as distances from the entry's own position instead
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private static int historyIndex(int side, int move) {
+        return side * 4096 + Move.from(move) * 64 + Move.to(move);
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
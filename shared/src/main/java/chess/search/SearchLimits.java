@@ -0,0 +1,41 @@
+package chess.search;
+
+/**
+ * How long a search may run. A search stops as soon as any limit is reached.
+ *
+ * @param depth the deepest iteration to search, or 0 for no depth limit
+ * @param timeMillis the hard deadline in milliseconds from the start of the search, or 0 for no deadline
+ * @param nodes the most nodes to visit, or 0 for no node limit
+ */
+public record SearchLimits(int depth, long timeMillis, long nodes) {
+
+    public SearchLimits {
+        if (depth < 0 || timeMillis < 0 || nodes < 0) {
+            throw new IllegalArgumentException("search limits cannot be negative");
+        }
+        if (depth == 0 && timeMillis == 0 && nodes == 0) {
+            throw new IllegalArgumentException("a search needs at least one limit");
+        }
+    }
+
+    /**
+     * @return limits that search to a fixed depth
+     */
+    public static SearchLimits ofDepth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    /**
+     * @return limits that search until a deadline
+     */
+    public static SearchLimits ofTime(long timeMillis) {
+        return new SearchLimits(0, timeMillis, 0);
+    }
+
+    /**
+     * @return limits that search until a number of nodes have been visited
+     */
+    public static SearchLimits ofNodes(long nodes) {
+        return new SearchLimits(0, 0, nodes);
+    }
+}
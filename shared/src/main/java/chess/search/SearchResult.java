@@ -0,0 +1,31 @@
+package chess.search;
+
+import java.util.List;
+
+import chess.ChessMove;
+
+/**
+ * The outcome of a search
+ *
+ * @param bestMove the move to play, or null if the side to move has no legal move
+ * @param score the score of the best move in centipawns for the side to move; see {@link Search#isMateScore(int)}
+ * @param depth the deepest iteration that completed
+ * @param nodes the number of positions visited, including quiescence
+ * @param elapsedMillis how long the search ran
+ * @param principalVariation the expected line of play, starting with the best move
+ */
+public record SearchResult(
+        ChessMove bestMove,
+        int score,
+        int depth,
+        long nodes,
+        long elapsedMillis,
+        List<ChessMove> principalVariation) {
+
+    /**
+     * @return the number of positions visited per second
+     */
+    public long nodesPerSecond() {
+        return elapsedMillis == 0 ? nodes * 1000 : nodes * 1000 / elapsedMillis;
+    }
+}
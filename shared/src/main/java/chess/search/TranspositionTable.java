@@ -0,0 +1,231 @@
+package chess.search;
+
+import chess.Move;
+
+/**
+ * A fixed-size hash table of search results that any number of threads can share
+ * without locking.
+ * <p>
+ * The table is a power-of-two number of buckets. Each bucket holds
+ * {@value #BUCKET_ENTRIES} entries, 64 bytes in all, so a probe touches about one
+ * cache line; the buckets are not aligned to cache lines, so some span two. Each
+ * entry is two longs: the position key XORed with the data, and the data. Reading
+ * both and XORing them back gives the key only if both halves come from the same
+ * write. An entry torn by two threads writing at once therefore reads as a miss
+ * instead of as wrong data. The data long packs the best move, score, depth, bound
+ * and the generation of the search that wrote it.
+ * <p>
+ * The longs can be kept on the heap or in direct memory outside it; see {@link Memory}.
+ */
+public class TranspositionTable {
+
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    /**
+     * Where the table keeps its entries
+     */
+    public enum Memory {
+        /**
+         * A single long[] on the heap
+         */
+        HEAP,
+        /**
+         * Direct byte buffers outside the heap, for tables too big to keep the garbage collector happy
+         */
+        OFF_HEAP
+    }
+
+    /**
+     * What happens when a position has to go in a full bucket
+     */
+    public enum Replacement {
+        /**
+         * The new result always goes in, over the least useful entry of the bucket
+         */
+        ALWAYS,
+        /**
+         * The new result is dropped if every entry in the bucket comes from the current
+         * search and was searched deeper
+         */
+        DEPTH_PREFERRED
+    }
+
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_LONGS = BUCKET_ENTRIES * 2;
+    private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+
+    private final EntryStore store;
+    private final Replacement replacement;
+    private final long bucketMask;
+    private volatile int generation;
+
+    /**
+     * Creates an on-heap table with depth-preferred replacement
+     *
+     * @param megabytes the size of the table
+     */
+    public TranspositionTable(int megabytes) {
+        this(megabytes, Memory.HEAP, Replacement.DEPTH_PREFERRED);
+    }
+
+    /**
+     * Creates a table that uses about the given amount of memory. The number of
+     * buckets is rounded down to a power of two.
+     *
+     * @param megabytes the size of the table
+     * @param memory where to keep the entries
+     * @param replacement what to do when a bucket is full
+     */
+    public TranspositionTable(long megabytes, Memory memory, Replacement replacement) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("a transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(megabytes * 1024 * 1024 / BUCKET_BYTES);
+        long longs = buckets * BUCKET_LONGS;
+
+        this.store = memory == Memory.HEAP ? new EntryStore.Heap(longs) : new EntryStore.OffHeap(longs);
+        this.replacement = replacement;
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position key
+     * @return the packed data stored for the position, or 0 if there is none
+     */
+    public long probe(long key) {
+        long base = (key & this.bucketMask) * BUCKET_LONGS;
+        for (int i = 0; i < BUCKET_LONGS; i += 2) {
+            long data = this.store.get(base + i + 1);
+            if (data != 0 && (this.store.get(base + i) ^ data) == key) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of searching a position. An existing entry for the same
+     * position keeps its best move if the new result has none.
+     *
+     * @param key the position key
+     * @param move the best move found, or {@link Move#NONE}
+     * @param score the score, already adjusted for mate distance
+     * @param depth the depth searched
+     * @param bound whether the score is exact, a lower bound or an upper bound
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long base = (key & this.bucketMask) * BUCKET_LONGS;
+        int generation = this.generation;
+
+        int victim = 0;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_LONGS; i += 2) {
+            long data = this.store.get(base + i + 1);
+            if (data != 0 && (this.store.get(base + i) ^ data) == key) {
+                if (move == Move.NONE) {
+                    move = move(data);
+                }
+                if (this.replacement == Replacement.DEPTH_PREFERRED && bound != BOUND_EXACT
+                    && generation(data) == generation && depth(data) > depth) {
+                    return;
+                }
+                this.write(base + i, key, move, score, depth, bound, generation);
+                return;
+            }
+
+            // Empty slots go first, then results of older searches, then the shallowest
+            int worth = data == 0 ? -1 : (generation(data) == generation ? 256 : 0) + depth(data);
+            if (worth < victimWorth) {
+                victim = i;
+                victimWorth = worth;
+            }
+        }
+
+        if (this.replacement == Replacement.DEPTH_PREFERRED && victimWorth > 256 + depth) {
+            return;
+        }
+        this.write(base + victim, key, move, score, depth, bound, generation);
+    }
+
+    /**
+     * Marks the start of a new search, so the entries of earlier searches are
+     * replaced first
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    /**
+     * Estimates how full the table is by sampling its first thousand entries
+     *
+     * @return the number of entries per thousand that hold a result of the current search
+     */
+    public int hashfull() {
+        int sampled = (int) Math.min(1000, (this.bucketMask + 1) * BUCKET_ENTRIES);
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = this.store.get(i * 2L + 1);
+            if (data != 0 && generation(data) == this.generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        this.store.clear();
+    }
+
+    private void write(long index, long key, int move, int score, int depth, int bound, int generation) {
+        long data = pack(move, score, depth, bound, generation);
+        this.store.set(index, key ^ data);
+        this.store.set(index + 1, data);
+    }
+
+    static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0x7FFFL)
+            | ((score & 0xFFFFL) << 16)
+            | ((long) Math.min(depth, 255) << 32)
+            | ((long) bound << 40)
+            | ((long) generation << 42);
+    }
+
+    /**
+     * @return the best move of packed data, without its flags
+     */
+    public static int move(long data) {
+        return (int) (data & 0x7FFF);
+    }
+
+    /**
+     * @return the score of packed data
+     */
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    /**
+     * @return the depth of packed data
+     */
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    /**
+     * @return the bound of packed data: exact, lower or upper
+     */
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+}
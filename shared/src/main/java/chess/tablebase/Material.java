@@ -0,0 +1,215 @@
+package chess.tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessBoard;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+
+/**
+ * The set of pieces a tablebase covers, named the usual way: the white king and
+ * white's other pieces, then the black king and black's ("KQK", "KRKP").
+ * <p>
+ * The order of the pieces in the name is also the order they are indexed in, so
+ * each piece of the name is a slot holding one square. A table is only built for
+ * the canonical side of a piece set, the one where white is at least as strong;
+ * positions with the colors the other way around are looked up with the board
+ * mirrored.
+ */
+public final class Material {
+
+    // The order pieces are named in, strongest first
+    private static final String ORDER = "QRBNP";
+
+    private final String name;
+    private final ChessPiece[] pieces;
+
+    private Material(String name, ChessPiece[] pieces) {
+        this.name = name;
+        this.pieces = pieces;
+    }
+
+    /**
+     * @param name a piece set such as "KQK"; the letters after each king may be in any order
+     * @return the piece set
+     * @throws IllegalArgumentException if the name is not two kings with other pieces after them
+     */
+    public static Material of(String name) {
+        int blackKing = name.indexOf('K', 1);
+        if (name.isEmpty() || name.charAt(0) != 'K' || blackKing < 0 || name.indexOf('K', blackKing + 1) >= 0) {
+            throw new IllegalArgumentException("Not a piece set: " + name);
+        }
+        String white = sorted(name.substring(1, blackKing));
+        String black = sorted(name.substring(blackKing + 1));
+        return build(white, black);
+    }
+
+    /**
+     * @param board the board to read
+     * @return the pieces on a board
+     */
+    public static Material of(ChessBoard board) {
+        return build(side(board, TeamColor.WHITE), side(board, TeamColor.BLACK));
+    }
+
+    /**
+     * @return the name, such as "KQK"
+     */
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * @return the number of pieces, kings included
+     */
+    public int size() {
+        return this.pieces.length;
+    }
+
+    /**
+     * @param slot the position of the piece in the name
+     * @return the piece
+     */
+    public ChessPiece piece(int slot) {
+        return this.pieces[slot];
+    }
+
+    /**
+     * @return the number of entries a table of this piece set has: every square for
+     *     every piece, for each side to move
+     */
+    public long positions() {
+        return 2L << (6 * this.pieces.length);
+    }
+
+    /**
+     * @return the same pieces with the colors swapped
+     */
+    public Material flipped() {
+        int blackKing = this.name.indexOf('K', 1);
+        return build(this.name.substring(blackKing + 1), this.name.substring(1, blackKing));
+    }
+
+    /**
+     * @return whether white is at least as strong as black, so that this set has a table of its own
+     */
+    public boolean isCanonical() {
+        int blackKing = this.name.indexOf('K', 1);
+        String white = this.name.substring(1, blackKing);
+        String black = this.name.substring(blackKing + 1);
+        if (white.length() != black.length()) {
+            return white.length() > black.length();
+        }
+        for (int i = 0; i < white.length(); i++) {
+            int difference = ORDER.indexOf(white.charAt(i)) - ORDER.indexOf(black.charAt(i));
+            if (difference != 0) {
+                return difference < 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return this set or its flipped form, whichever has a table
+     */
+    public Material canonical() {
+        return this.isCanonical() ? this : this.flipped();
+    }
+
+    /**
+     * Lists the piece sets a move can turn this one into: one piece fewer after a
+     * capture, or a pawn swapped for another piece after a promotion
+     *
+     * @return the canonical forms of the smaller piece sets, without duplicates
+     */
+    public List<Material> successors() {
+        List<Material> successors = new ArrayList<>();
+        int blackKing = this.name.indexOf('K', 1);
+        for (int i = 1; i < this.name.length(); i++) {
+            if (i == blackKing) {
+                continue;
+            }
+            String without = this.name.substring(0, i) + this.name.substring(i + 1);
+            addCanonical(successors, Material.of(without));
+            if (this.name.charAt(i) == 'P') {
+                for (char promotion : "QRBN".toCharArray()) {
+                    addCanonical(successors, Material.of(this.name.substring(0, i) + promotion
+                        + this.name.substring(i + 1)));
+                }
+            }
+        }
+        return successors;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Material other && this.name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    private static void addCanonical(List<Material> materials, Material material) {
+        Material canonical = material.canonical();
+        if (!materials.contains(canonical)) {
+            materials.add(canonical);
+        }
+    }
+
+    private static Material build(String white, String black) {
+        String name = "K" + white + "K" + black;
+        ChessPiece[] pieces = new ChessPiece[name.length()];
+        for (int i = 0; i < name.length(); i++) {
+            TeamColor color = i <= white.length() ? TeamColor.WHITE : TeamColor.BLACK;
+            pieces[i] = ChessPiece.of(color, pieceType(name.charAt(i)));
+        }
+        return new Material(name, pieces);
+    }
+
+    private static String side(ChessBoard board, TeamColor color) {
+        StringBuilder side = new StringBuilder();
+        for (char letter : ORDER.toCharArray()) {
+            long pieces = board.getBitboard(color, pieceType(letter));
+            for (int i = Long.bitCount(pieces); i > 0; i--) {
+                side.append(letter);
+            }
+        }
+        return side.toString();
+    }
+
+    private static String sorted(String pieces) {
+        StringBuilder sorted = new StringBuilder();
+        for (char letter : ORDER.toCharArray()) {
+            for (char c : pieces.toCharArray()) {
+                if (c == letter) {
+                    sorted.append(c);
+                }
+            }
+        }
+        if (sorted.length() != pieces.length()) {
+            throw new IllegalArgumentException("Not a piece set: " + pieces);
+        }
+        return sorted.toString();
+    }
+
+    private static PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'K' -> PieceType.KING;
+            case 'Q' -> PieceType.QUEEN;
+            case 'R' -> PieceType.ROOK;
+            case 'B' -> PieceType.BISHOP;
+            case 'N' -> PieceType.KNIGHT;
+            case 'P' -> PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Not a piece: " + letter);
+        };
+    }
+}
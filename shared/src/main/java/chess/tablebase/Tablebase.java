@@ -0,0 +1,194 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+
+/**
+ * The outcome of every position of one piece set, read from a memory-mapped file.
+ * <p>
+ * Each position takes one byte, found by the side to move and the square of each
+ * piece in the order of the piece set's name:
+ * <pre>
+ *   index = ((side * 64 + square of piece 0) * 64 + square of piece 1) * 64 + ...
+ * </pre>
+ * A byte holds the outcome for the side to move and the distance to mate:
+ * <ul>
+ *     <li>0 is a draw</li>
+ *     <li>1 to 127 is a win, mating in that many moves</li>
+ *     <li>128 to 254 is a loss, being mated in that many moves plus 128</li>
+ *     <li>255 is a position that cannot come up in a game, such as the side that
+ *     just moved being in check</li>
+ * </ul>
+ * The file is a 16 byte header (int magic "CTB1", int version, the piece set name
+ * in ASCII padded with zeros to 8 bytes) followed by the bytes. Castling and en
+ * passant are not part of the index; tables give the outcome as if neither is possible.
+ * <p>
+ * Probes only use absolute reads, so one table can be shared by any number of threads.
+ */
+public final class Tablebase {
+
+    static final int MAGIC = 0x43544231;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int NAME_BYTES = 8;
+
+    static final int DRAW = 0;
+    static final int LOSS = 128;
+    static final int ILLEGAL = 255;
+
+    private final Material material;
+    private final ByteBuffer values;
+    private volatile int maxPlies = -1;
+
+    private Tablebase(Material material, ByteBuffer values) {
+        this.material = material;
+        this.values = values;
+    }
+
+    /**
+     * Maps a table file into memory. The mapping stays valid after the file is
+     * closed and is released once the table is garbage collected.
+     *
+     * @param path the table file
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a tablebase: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            byte[] name = new byte[NAME_BYTES];
+            header.get(8, name);
+            Material material;
+            try {
+                material = Material.of(new String(name, StandardCharsets.US_ASCII).trim());
+            }
+            catch (IllegalArgumentException ex) {
+                throw new IOException("Not a tablebase: " + path);
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                || channel.size() != HEADER_BYTES + material.positions()) {
+                throw new IOException("Not a tablebase: " + path);
+            }
+            return new Tablebase(material, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                material.positions()));
+        }
+    }
+
+    /**
+     * @return the piece set of the table
+     */
+    public Material getMaterial() {
+        return this.material;
+    }
+
+    /**
+     * Looks up the position of a game. The pieces may be the table's piece set or
+     * the same set with the colors swapped.
+     *
+     * @param game the game to look up
+     * @return the outcome of the position with best play
+     * @throws IllegalArgumentException if the game has other pieces than the table
+     */
+    public TablebaseResult probe(ChessGame game) {
+        return result(this.value(game));
+    }
+
+    /**
+     * @return the longest distance to mate in the table, in half moves
+     */
+    public int maxPlies() {
+        int plies = this.maxPlies;
+        if (plies < 0) {
+            plies = 0;
+            for (int i = 0; i < this.values.capacity(); i++) {
+                plies = Math.max(plies, plies(this.values.get(i) & 0xFF));
+            }
+            this.maxPlies = plies;
+        }
+        return plies;
+    }
+
+    /**
+     * @return the raw byte for the position of a game
+     */
+    int value(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        Material onBoard = Material.of(board);
+        boolean flip;
+        if (onBoard.equals(this.material)) {
+            flip = false;
+        }
+        else if (onBoard.flipped().equals(this.material)) {
+            flip = true;
+        }
+        else {
+            throw new IllegalArgumentException("The game has " + onBoard + ", not " + this.material);
+        }
+
+        // Pieces of the same kind fill their slots in square order; any order indexes the same outcome
+        TeamColor side = game.getTeamTurn();
+        long index = flip == (side == TeamColor.WHITE) ? 1 : 0;
+        long taken = 0;
+        for (int slot = 0; slot < this.material.size(); slot++) {
+            ChessPiece piece = this.material.piece(slot);
+            TeamColor color = flip ? opposite(piece.getTeamColor()) : piece.getTeamColor();
+            long candidates = board.getBitboard(color, piece.getPieceType()) & ~taken;
+            long bit = Long.lowestOneBit(candidates);
+            taken |= bit;
+            int square = Long.numberOfTrailingZeros(bit);
+            index = index * 64 + (flip ? square ^ 56 : square);
+        }
+        return this.value(index);
+    }
+
+    int value(long index) {
+        return this.values.get((int) index) & 0xFF;
+    }
+
+    static TablebaseResult result(int value) {
+        if (value == DRAW || value == ILLEGAL) {
+            return new TablebaseResult(TablebaseResult.Outcome.DRAW, 0);
+        }
+        if (value < LOSS) {
+            return new TablebaseResult(TablebaseResult.Outcome.WIN, value);
+        }
+        return new TablebaseResult(TablebaseResult.Outcome.LOSS, value - LOSS);
+    }
+
+    static boolean isWin(int value) {
+        return value > DRAW && value < LOSS;
+    }
+
+    static boolean isLoss(int value) {
+        return value >= LOSS && value < ILLEGAL;
+    }
+
+    /**
+     * @return the number of half moves to mate for a win or loss, and 0 otherwise
+     */
+    static int plies(int value) {
+        if (isWin(value)) {
+            return value * 2 - 1;
+        }
+        if (isLoss(value)) {
+            return (value - LOSS) * 2;
+        }
+        return 0;
+    }
+
+    private static TeamColor opposite(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+}
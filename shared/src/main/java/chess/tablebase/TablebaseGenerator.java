@@ -0,0 +1,340 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * Builds tablebases offline by retrograde analysis.
+ * <p>
+ * Every position of a piece set starts out unknown, apart from checkmates, which
+ * are lost for the side to move. Each pass then looks one half move further from
+ * mate: on odd passes a position is won if some move reaches a position lost for
+ * the opponent, and on even passes a position is lost if every move reaches a
+ * position won for the opponent. Odd passes only write wins and read losses, and
+ * even passes the other way around, so the positions of a pass can be worked on
+ * in any order. Each pass is split across cores with fork/join over ranges of the
+ * index. Whatever is still unknown when the passes stop finding anything is a draw.
+ * <p>
+ * Moves that capture or promote lead to a smaller piece set, so the tables for
+ * those are built first and probed. The legal moves come from {@link ChessGame},
+ * so the tables follow exactly the rules the server plays by.
+ */
+public final class TablebaseGenerator {
+
+    public static final int MAX_PIECES = 4;
+
+    // Positions handled by one fork/join task without splitting further
+    private static final int TASK_POSITIONS = 1 << 13;
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final Tablebases tablebases;
+
+    public TablebaseGenerator(Path directory) {
+        this(directory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param directory where tables are written, and where tables already built are found
+     * @param pool the pool the passes run on
+     */
+    public TablebaseGenerator(Path directory, ForkJoinPool pool) {
+        this.directory = directory;
+        this.pool = pool;
+        this.tablebases = new Tablebases(directory);
+    }
+
+    /**
+     * @return the tables in the generator's directory
+     */
+    public Tablebases getTablebases() {
+        return this.tablebases;
+    }
+
+    /**
+     * Builds the table for a piece set, and first the tables of every smaller piece
+     * set its captures and promotions lead to. Tables already in the directory are
+     * reused rather than built again.
+     *
+     * @param name the piece set, such as "KRK"
+     * @return the table
+     * @throws IOException if a table cannot be written
+     * @throws IllegalArgumentException if the piece set has fewer than 3 or more than {@link #MAX_PIECES} pieces
+     */
+    public Tablebase generate(String name) throws IOException {
+        Material material = Material.of(name).canonical();
+        if (material.size() < 3 || material.size() > MAX_PIECES) {
+            throw new IllegalArgumentException("Tables are built for 3 to " + MAX_PIECES + " pieces, not " + name);
+        }
+        Tablebase existing = this.tablebases.get(material);
+        if (existing != null) {
+            return existing;
+        }
+
+        // A capture can reach a position lost long after this table's own passes have
+        // gone quiet, so keep going at least that far
+        int minPasses = 0;
+        for (Material successor : material.successors()) {
+            if (successor.size() >= 3) {
+                minPasses = Math.max(minPasses, this.generate(successor.name()).maxPlies() + 1);
+            }
+        }
+
+        byte[] values = new byte[(int) material.positions()];
+        this.pool.invoke(new Pass(material, values, 0, 0, values.length));
+        for (int ply = 1; ; ply++) {
+            long changed = this.pool.invoke(new Pass(material, values, ply, 0, values.length));
+            if (changed == 0 && ply > minPasses) {
+                break;
+            }
+        }
+
+        this.write(material, values);
+        return this.tablebases.get(material);
+    }
+
+    /**
+     * Builds tables: {@code TablebaseGenerator <directory> <piece set>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TablebaseGenerator <directory> <piece set>...");
+            System.exit(1);
+        }
+
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        for (int i = 1; i < args.length; i++) {
+            long start = System.nanoTime();
+            Tablebase table = generator.generate(args[i]);
+            System.out.printf("%s: %d positions, longest mate %d plies, %d ms%n", table.getMaterial(),
+                table.getMaterial().positions(), table.maxPlies(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Writes a table next to its final name and then moves it into place, so a
+     * half-written file is never mistaken for a table
+     */
+    private void write(Material material, byte[] values) throws IOException {
+        Path path = this.directory.resolve(material.name() + Tablebases.EXTENSION);
+        Path temporary = this.directory.resolve(material.name() + Tablebases.EXTENSION + ".tmp");
+
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+        header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION)
+            .put(material.name().getBytes(StandardCharsets.US_ASCII));
+        header.position(Tablebase.HEADER_BYTES).flip();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : new ByteBuffer[]{header, ByteBuffer.wrap(values)}) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * One pass over a range of the index, counting the positions it resolved
+     */
+    private final class Pass extends RecursiveTask<Long> {
+        private final Material material;
+        private final byte[] values;
+        private final int ply;
+        private final int from;
+        private final int to;
+
+        private Pass(Material material, byte[] values, int ply, int from, int to) {
+            this.material = material;
+            this.values = values;
+            this.ply = ply;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (this.to - this.from > TASK_POSITIONS) {
+                int middle = (this.from + this.to) >>> 1;
+                Pass left = new Pass(this.material, this.values, this.ply, this.from, middle);
+                left.fork();
+                long right = new Pass(this.material, this.values, this.ply, middle, this.to).compute();
+                return left.join() + right;
+            }
+
+            Worker worker = new Worker(this.material);
+            long changed = 0;
+            for (int index = this.from; index < this.to; index++) {
+                if (this.ply == 0) {
+                    this.values[index] = (byte) worker.initialValue(index);
+                }
+                else if (this.values[index] == Tablebase.DRAW && worker.resolve(this.values, index, this.ply)) {
+                    changed++;
+                }
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Sets up positions from their index on a board of its own
+     */
+    private final class Worker {
+        private final Material material;
+        private final int pieces;
+        private final int sideBit;
+        private final ChessGame game = new ChessGame();
+        private final MoveList moves = new MoveList();
+        private final int[] squares;
+
+        private Worker(Material material) {
+            this.material = material;
+            this.pieces = material.size();
+            this.sideBit = 6 * this.pieces;
+            this.squares = new int[this.pieces];
+            Arrays.fill(this.squares, -1);
+            this.game.setBoard(new ChessBoard());
+        }
+
+        /**
+         * @return 255 for a position that cannot happen, a loss in 0 for checkmate, and otherwise unknown
+         */
+        private int initialValue(int index) {
+            if (!this.setUp(index)) {
+                return Tablebase.ILLEGAL;
+            }
+            TeamColor side = this.game.getTeamTurn();
+            TeamColor opponent = side == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+            if (this.game.isInCheck(opponent)) {
+                return Tablebase.ILLEGAL;
+            }
+            if (this.generateMoves() == 0 && this.game.isInCheck(side)) {
+                return Tablebase.LOSS;
+            }
+            return Tablebase.DRAW;
+        }
+
+        /**
+         * Decides an unknown position if this pass can: a win on odd passes, a loss on even ones
+         *
+         * @return whether the position was decided
+         */
+        private boolean resolve(byte[] values, int index, int ply) {
+            this.setUp(index);
+            int count = this.generateMoves();
+            if (count == 0) {
+                return false;
+            }
+
+            boolean winPass = (ply & 1) == 1;
+            for (int i = 0; i < count; i++) {
+                int child = this.childValue(values, index, this.moves.get(i));
+                if (winPass && Tablebase.isLoss(child) && Tablebase.plies(child) <= ply - 1) {
+                    values[index] = (byte) ((ply + 1) / 2);
+                    return true;
+                }
+                if (!winPass && !(Tablebase.isWin(child) && Tablebase.plies(child) <= ply - 1)) {
+                    return false;
+                }
+            }
+            if (winPass) {
+                return false;
+            }
+            values[index] = (byte) (Tablebase.LOSS + ply / 2);
+            return true;
+        }
+
+        /**
+         * Gets the value of the position a move leads to, from this table when the
+         * pieces stay the same and from a smaller table when they do not
+         */
+        private int childValue(byte[] values, int index, int move) {
+            int from = Move.from(move);
+            int to = Move.to(move);
+            if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                for (int slot = 0; slot < this.pieces; slot++) {
+                    if (this.squares[slot] == from) {
+                        int shift = 6 * (this.pieces - 1 - slot);
+                        int child = (index ^ (1 << this.sideBit)) + ((to - from) << shift);
+                        return values[child] & 0xFF;
+                    }
+                }
+            }
+
+            this.game.makeUncheckedMove(move);
+            int value = tablebases.value(this.game);
+            this.game.unmakeMove();
+            return value;
+        }
+
+        /**
+         * Generates the legal moves of the position set up, leaving out castling
+         *
+         * @return the number of moves, which are at the start of the move list
+         */
+        private int generateMoves() {
+            this.moves.clear();
+            this.game.generateLegalMoves(this.moves);
+            int count = 0;
+            for (int i = 0; i < this.moves.size(); i++) {
+                if (!Move.isCastling(this.moves.get(i))) {
+                    this.moves.set(count++, this.moves.get(i));
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Places the pieces of an index on the board
+         *
+         * @return false if two pieces share a square or a pawn is on the first or last row
+         */
+        private boolean setUp(int index) {
+            ChessBoard board = this.game.getBoard();
+            for (int slot = 0; slot < this.pieces; slot++) {
+                if (this.squares[slot] >= 0) {
+                    board.addPiece(ChessPosition.of(this.squares[slot]), null);
+                }
+            }
+
+            long occupied = 0;
+            boolean legal = true;
+            for (int slot = 0; slot < this.pieces; slot++) {
+                int square = (index >>> (6 * (this.pieces - 1 - slot))) & 63;
+                ChessPiece piece = this.material.piece(slot);
+                if ((occupied & (1L << square)) != 0
+                    || (piece.getPieceType() == PieceType.PAWN && (square < 8 || square >= 56))) {
+                    legal = false;
+                    this.squares[slot] = -1;
+                    continue;
+                }
+                occupied |= 1L << square;
+                this.squares[slot] = square;
+                board.addPiece(ChessPosition.of(square), piece);
+            }
+            this.game.setTeamTurn((index >>> this.sideBit) == 0 ? TeamColor.WHITE : TeamColor.BLACK);
+            return legal;
+        }
+    }
+}
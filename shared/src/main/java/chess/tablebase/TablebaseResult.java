@@ -0,0 +1,17 @@
+package chess.tablebase;
+
+/**
+ * What a tablebase knows about a position, from the point of view of the side to move
+ *
+ * @param outcome whether the side to move wins, draws or loses with best play
+ * @param movesToMate for a win, how many moves the side to move needs to mate; for a
+ *     loss, how many moves until it is mated (0 if it already is); 0 for a draw
+ */
+public record TablebaseResult(Outcome outcome, int movesToMate) {
+
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+}
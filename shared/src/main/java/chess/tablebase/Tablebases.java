@@ -0,0 +1,119 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * Probes positions against a directory of tables, one file per piece set, each
+ * mapped into memory the first time a position with its pieces comes up
+ */
+public final class Tablebases {
+
+    static final String EXTENSION = ".ctb";
+
+    private final Path directory;
+    private final Map<Material, Tablebase> tables = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory the directory holding the table files
+     */
+    public Tablebases(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Looks up the position of a game
+     *
+     * @param game the game to look up
+     * @return the outcome with best play, or null if there is no table for the pieces on the board
+     */
+    public TablebaseResult probe(ChessGame game) {
+        int value = this.value(game);
+        return value < 0 ? null : Tablebase.result(value);
+    }
+
+    /**
+     * Picks the move that keeps the best outcome: the fastest mate when winning, the
+     * slowest loss when losing, and any move that holds the draw otherwise
+     *
+     * @param game the game to pick a move for
+     * @return the move, or null if there is no table for the pieces on the board or no legal move
+     */
+    public ChessMove bestMove(ChessGame game) {
+        if (this.value(game) < 0) {
+            return null;
+        }
+
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(moves);
+        int bestMove = Move.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.makeUncheckedMove(move);
+            int score = score(this.value(game));
+            game.unmakeMove();
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        }
+        return bestMove == Move.NONE ? null : Move.toChessMove(bestMove);
+    }
+
+    /**
+     * Gets the table for a piece set, mapping its file the first time
+     *
+     * @param material the piece set, in either color order
+     * @return the table, or null if the directory has no file for it (yet)
+     */
+    public Tablebase get(Material material) {
+        return this.tables.computeIfAbsent(material.canonical(), canonical -> {
+            Path path = this.directory.resolve(canonical.name() + EXTENSION);
+            if (!Files.exists(path)) {
+                return null;
+            }
+            try {
+                return Tablebase.open(path);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * @return the raw byte for the position of a game, {@link Tablebase#DRAW} for bare
+     *     kings, or -1 if there is no table
+     */
+    int value(ChessGame game) {
+        Material material = Material.of(game.getBoard());
+        if (material.size() == 2) {
+            return Tablebase.DRAW;
+        }
+        Tablebase table = this.get(material);
+        return table == null ? -1 : table.value(game);
+    }
+
+    /**
+     * Scores a position reached by a move, for the side that made the move
+     */
+    private static int score(int childValue) {
+        if (Tablebase.isLoss(childValue)) {
+            return 1000 - Tablebase.plies(childValue);
+        }
+        if (Tablebase.isWin(childValue)) {
+            return -1000 + Tablebase.plies(childValue);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package results;
+
+import java.util.List;
+
+import chess.ChessMove;
+
+/**
+ * A server-side search of a game's current position, as shown to players asking
+ * for a hint and to spectators watching an evaluation bar
+ *
+ * @param gameID the game that was analysed
+ * @param bestMove the suggested move, or null if the side to move has no legal move
+ * @param score the evaluation in centipawns; positive favours white
+ * @param mateIn the number of moves to a forced mate, positive if white mates and negative if black does; null when no mate was found
+ * @param depth the deepest iteration the search finished
+ * @param nodes the number of positions the search visited
+ * @param elapsedMillis how long the search ran
+ * @param principalVariation the expected line of play, starting with the best move
+ */
+public record AnalysisResult(
+        int gameID,
+        ChessMove bestMove,
+        int score,
+        Integer mateIn,
+        int depth,
+        long nodes,
+        long elapsedMillis,
+        List<ChessMove> principalVariation) {}
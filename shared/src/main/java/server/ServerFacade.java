@@ -12,6 +12,7 @@ import requests.CreateGameRequest;
 import requests.JoinGameRequest;
 import requests.LoginRequest;
 import requests.RegisterRequest;
+import results.AnalysisResult;
 import results.CreateGameResult;
 import results.ListGamesResult;
 import results.LoginResult;
@@ -59,6 +60,21 @@ public class ServerFacade {
         handleResponse(result, null);
     }
 
+    public AnalysisResult analyzeGame(int gameID, Integer depth, Integer timeMillis, String authToken) throws ResponseException {
+        StringBuilder path = new StringBuilder("/game/").append(gameID).append("/analysis");
+        char separator = '?';
+        if (depth != null) {
+            path.append(separator).append("depth=").append(depth);
+            separator = '&';
+        }
+        if (timeMillis != null) {
+            path.append(separator).append("ms=").append(timeMillis);
+        }
+        var request = buildRequest("GET", path.toString(), null, authToken);
+        var response = sendRequest(request);
+        return handleResponse(response, AnalysisResult.class);
+    }
+
     public void logout(String authToken) throws ResponseException {
         var request = buildRequest("DELETE", "/session", null, authToken);
         var result = sendRequest(request);
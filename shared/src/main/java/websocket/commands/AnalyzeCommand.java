@@ -0,0 +1,51 @@
+package websocket.commands;
+
+import java.util.Objects;
+
+/**
+ * Asks the server to search the current position of a game. The answer comes back
+ * as an {@link websocket.messages.AnalysisMessage} once the search finishes.
+ */
+public class AnalyzeCommand extends UserGameCommand {
+
+    private final Integer depth;
+
+    private final Integer timeMillis;
+
+    /**
+     * @param depth how many moves deep to search, or null for the server's default
+     * @param timeMillis how long to search, or null for the server's default
+     */
+    public AnalyzeCommand(String authToken, Integer gameID, Integer depth, Integer timeMillis) {
+        super(CommandType.ANALYZE, authToken, gameID);
+        this.depth = depth;
+        this.timeMillis = timeMillis;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public Integer getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AnalyzeCommand that)) {
+            return false;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        return Objects.equals(depth, that.depth) && Objects.equals(timeMillis, that.timeMillis);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), depth, timeMillis);
+    }
+}
@@ -0,0 +1,35 @@
+package websocket.messages;
+
+import java.util.Objects;
+
+import results.AnalysisResult;
+
+public class AnalysisMessage extends ServerMessage {
+    private AnalysisResult analysis;
+
+    public AnalysisMessage(AnalysisResult analysis) {
+        super(ServerMessageType.ANALYSIS);
+        this.analysis = analysis;
+    }
+
+    public AnalysisResult getAnalysis() {
+        return this.analysis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AnalysisMessage that)) {
+            return false;
+        }
+        return getServerMessageType() == that.getServerMessageType()
+            && Objects.equals(getAnalysis(), that.getAnalysis());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getServerMessageType(), getAnalysis());
+    }
+}
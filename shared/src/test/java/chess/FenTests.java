@@ -0,0 +1,89 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame.TeamColor;
+
+public class FenTests {
+
+    @Test
+    public void roundTripsPublishedPositions() {
+        for (Perft.Position position : Perft.Position.values()) {
+            assertEquals(position.getFen(), ChessGame.fromFen(position.getFen()).toFen(), position.name());
+        }
+        assertEquals(new ChessGame(), ChessGame.fromFen(Perft.Position.INITIAL.getFen()));
+    }
+
+    @Test
+    public void writesTheStateOfAPlayedGame() throws InvalidMoveException, IOException {
+        ChessGame game = new ChessGame();
+        for (String san : new String[] {"e4", "d5", "e5", "f5"}) {
+            game.makeUncheckedMove(San.parse(game, san));
+        }
+
+        String fen = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3";
+        StringBuilder out = new StringBuilder();
+        game.toFen(out);
+        assertEquals(fen, out.toString());
+
+        // The target square is read back as the push that made it, so the capture is there
+        ChessGame loaded = ChessGame.fromFen(fen);
+        assertEquals(game.positionKey(), loaded.positionKey());
+        assertTrue(Move.isEnPassant(San.parse(loaded, "exf6")));
+    }
+
+    @Test
+    public void countsMovesAndUndoesTheCounts() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 7 30");
+        assertEquals(7, game.getHalfmoveClock());
+        assertEquals(30, game.getFullmoveNumber());
+
+        game.makeUncheckedMove(San.parse(game, "O-O"));
+        game.makeUncheckedMove(San.parse(game, "Rxa1"));
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(31, game.getFullmoveNumber());
+        assertEquals("4k2r/8/8/8/8/8/8/r4RK1 w k - 0 31", game.toFen());
+
+        game.unmakeMove();
+        game.unmakeMove();
+        assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 7 30", game.toFen());
+
+        MoveUndo undo = game.makeUncheckedMove(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(1, 2), null));
+        assertEquals(8, game.getHalfmoveClock());
+        game.unmakeMove(undo);
+        assertEquals(7, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void readsEpdWithoutCountersAndExtraSpaces() {
+        ChessGame game = ChessGame.fromFen("  8/8/8/8/8/8/8/K6k  b  -  - ");
+        assertEquals(TeamColor.BLACK, game.getTeamTurn());
+        assertFalse(game.canCastle(TeamColor.WHITE, true));
+        assertEquals("8/8/8/8/8/8/8/K6k b - - 0 1", game.toFen());
+    }
+
+    @Test
+    public void rejectsMalformedText() {
+        String[] bad = {
+            "",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/44p/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KX - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e3 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+        };
+        for (String fen : bad) {
+            assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+}
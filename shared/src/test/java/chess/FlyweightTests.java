@@ -0,0 +1,54 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+public class FlyweightTests {
+
+    @Test
+    public void sharedInstancesAreReused() {
+        assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        assertSame(ChessPosition.of(4, 5), Bitboards.position(Bitboards.square(4, 5)));
+        assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+        assertEquals(new ChessPosition(4, 5).hashCode(), ChessPosition.of(4, 5).hashCode());
+
+        assertSame(ChessPiece.of(TeamColor.BLACK, PieceType.QUEEN), ChessPiece.of(TeamColor.BLACK, PieceType.QUEEN));
+        assertEquals(new ChessPiece(TeamColor.BLACK, PieceType.QUEEN), ChessPiece.of(TeamColor.BLACK, PieceType.QUEEN));
+    }
+
+    @Test
+    public void promotionDoesNotLeakIntoCopies() {
+        ChessBoard board = new ChessBoard();
+        ChessPosition start = ChessPosition.of(7, 1);
+        ChessPosition end = ChessPosition.of(8, 1);
+        board.addPiece(start, ChessPiece.of(TeamColor.WHITE, PieceType.PAWN));
+
+        ChessBoard copy = ChessBoard.deepCopy(board);
+        board.movePiece(new ChessMove(start, end, PieceType.QUEEN));
+
+        assertEquals(ChessPiece.of(TeamColor.WHITE, PieceType.QUEEN), board.getPiece(end));
+        assertEquals(ChessPiece.of(TeamColor.WHITE, PieceType.PAWN), copy.getPiece(start));
+        assertNull(copy.getPiece(end));
+        assertNotEquals(board, copy);
+    }
+
+    @Test
+    public void deserializedBoardsUseSharedPieces() {
+        Gson gson = new Gson();
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+
+        ChessBoard rebuilt = gson.fromJson(gson.toJson(board), ChessBoard.class);
+        assertEquals(board, rebuilt);
+        assertSame(ChessPiece.of(TeamColor.WHITE, PieceType.KING), rebuilt.getPiece(ChessPosition.of(1, 5)));
+    }
+}
@@ -0,0 +1,30 @@
+package chess;
+
+import passoff.chess.TestUtilities;
+
+/**
+ * Builds the games and moves that tests beyond the passoff ones start from
+ */
+public class GameTestUtilities {
+
+    /**
+     * Sets up a game from a board drawn the way {@link TestUtilities#loadBoard(String)} reads it
+     *
+     * @param boardText the board, rank 8 first
+     * @param turn the team to move
+     * @return the game, with no move history
+     */
+    public static ChessGame loadGame(String boardText, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    /**
+     * @return the move between two squares, without a promotion
+     */
+    public static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(ChessPosition.of(startRow, startCol), ChessPosition.of(endRow, endCol), null);
+    }
+}
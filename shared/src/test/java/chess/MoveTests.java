@@ -0,0 +1,87 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessPiece.PieceType;
+
+public class MoveTests {
+
+    @Test
+    public void packedMoveRoundTrips() {
+        ChessMove move = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), PieceType.KNIGHT);
+        int packed = Move.of(move);
+
+        assertEquals(Bitboards.square(7, 2), Move.from(packed));
+        assertEquals(Bitboards.square(8, 1), Move.to(packed));
+        assertEquals(PieceType.KNIGHT, Move.promotion(packed));
+        assertEquals(move, Move.toChessMove(packed));
+        assertSame(Move.toChessMove(packed), Move.toChessMove(packed | Move.FLAG_CAPTURE));
+        assertEquals("b7a8n", Move.toString(packed));
+    }
+
+    @Test
+    public void packedMovesMatchChessMoves() {
+        for (Perft.Position position : Perft.Position.values()) {
+            ChessGame game = position.createGame();
+            MoveList moves = new MoveList();
+            game.generateLegalMoves(moves);
+
+            Set<ChessMove> expected = new HashSet<>(game.legalMoves(game.getTeamTurn()));
+            assertEquals(expected, new HashSet<>(moves.toChessMoves()), position.name());
+            for (ChessMove move : expected) {
+                assertTrue(moves.contains(Move.of(move)));
+            }
+        }
+    }
+
+    @Test
+    public void flagsDescribeTheMove() {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(moves);
+
+        int castles = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            boolean capture = game.getBoard().getPiece(Move.to(move)) != null;
+            assertEquals(capture, Move.isCapture(move), Move.toString(move));
+            if (Move.isCastling(move)) {
+                castles++;
+            }
+        }
+        assertEquals(2, castles);
+    }
+
+    @Test
+    public void packedUnmakeRestoresGame() {
+        ChessGame game = Perft.Position.POSITION_4.createGame();
+        ChessGame original = Perft.Position.POSITION_4.createGame();
+        long key = game.positionKey();
+
+        MoveList moves = new MoveList();
+        MoveList replies = new MoveList();
+        game.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeUncheckedMove(moves.get(i));
+            replies.clear();
+            game.generateLegalMoves(replies);
+            for (int j = 0; j < replies.size(); j++) {
+                game.makeUncheckedMove(replies.get(j));
+                game.unmakeMove();
+            }
+            game.unmakeMove();
+
+            assertEquals(original, game);
+            assertEquals(key, game.positionKey());
+        }
+        assertFalse(moves.isEmpty());
+    }
+}
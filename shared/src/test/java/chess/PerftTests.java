@@ -0,0 +1,76 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+public class PerftTests {
+
+    // Deep enough to exercise castling, en passant, promotions and pins without slowing the build
+    private static final long MAX_NODES = 1_000_000;
+
+    @Test
+    public void perftMatchesPublishedCounts() {
+        for (Perft.Position position : Perft.Position.values()) {
+            ChessGame game = position.createGame();
+            for (int depth = 1; depth <= position.getMaxDepth(); depth++) {
+                if (position.getExpectedNodes(depth) > MAX_NODES) {
+                    break;
+                }
+                assertEquals(position.getExpectedNodes(depth), Perft.perft(game, depth),
+                        "%s at depth %d".formatted(position, depth));
+            }
+        }
+    }
+
+    @Test
+    public void perftLeavesGameUnchanged() {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        ChessGame original = Perft.Position.KIWIPETE.createGame();
+
+        Perft.perft(game, 3);
+
+        assertEquals(original, game);
+        assertEquals(original.legalMoves(original.getTeamTurn()), game.legalMoves(game.getTeamTurn()));
+    }
+
+    @Test
+    public void divideSumsToPerft() {
+        ChessGame game = Perft.Position.POSITION_5.createGame();
+        Map<ChessMove, Long> divide = Perft.divide(game, 3);
+
+        assertEquals(Perft.Position.POSITION_5.getExpectedNodes(1), divide.size());
+        assertEquals(Perft.Position.POSITION_5.getExpectedNodes(3),
+                divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void parallelPerftMatchesPerft() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Perft.Position position : Perft.Position.values()) {
+                ChessGame game = position.createGame();
+                // Deep enough that the branches below the root are split as well
+                int depth = position.getExpectedNodes(4) > MAX_NODES ? 3 : 4;
+                assertEquals(position.getExpectedNodes(depth), Perft.parallelPerft(game, depth, pool),
+                        "%s at depth %d".formatted(position, depth));
+                assertEquals(position.createGame(), game);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelDivideMatchesDivide() {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        assertEquals(Perft.divide(game, 2), Perft.parallelDivide(game, 2, ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class, () -> Perft.divide(game, 0));
+        assertThrows(IllegalArgumentException.class, () -> Perft.parallelDivide(game, -1, ForkJoinPool.commonPool()));
+    }
+}
@@ -0,0 +1,66 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+public class PerftValidatorTests {
+
+    private static final String INITIAL = Perft.Position.INITIAL.getFen();
+
+    @Test
+    public void readsCasesFromSuiteLines() {
+        List<PerftValidator.TestCase> cases = PerftValidator.parse(Stream.of(
+                "# comment",
+                "",
+                INITIAL + " ;D1 20 ;D2 400",
+                INITIAL + " moves e2e4 c7c5 ;D1 30")).toList();
+
+        assertEquals(3, cases.size());
+        assertEquals(new PerftValidator.TestCase(3, INITIAL, List.of(), 2, 400), cases.get(1));
+        assertEquals(List.of("e2e4", "c7c5"), cases.get(2).moves());
+        assertEquals(4, cases.get(2).line());
+        assertThrows(IllegalArgumentException.class,
+                () -> PerftValidator.parse(Stream.of(INITIAL + " ;twenty")).toList());
+    }
+
+    @Test
+    public void passesPublishedCounts() {
+        Stream<String> suite = Stream.of(Perft.Position.values())
+                .map(position -> position.getFen() + " ;D1 " + position.getExpectedNodes(1)
+                        + " ;D2 " + position.getExpectedNodes(2) + " ;D3 " + position.getExpectedNodes(3));
+
+        PerftValidator.Report report = PerftValidator.validate(PerftValidator.parse(suite), ForkJoinPool.commonPool());
+
+        assertTrue(report.passed(), report.mismatches().toString());
+        assertEquals(18, report.cases());
+        assertTrue(report.nodes() > 0);
+    }
+
+    @Test
+    public void reportsMismatchesAndBadCases() {
+        // After 1. e4 c5 white has 30 moves, not 31; and e2e5 is not a legal move
+        Stream<String> suite = Stream.of(
+                INITIAL + " ;D1 20",
+                INITIAL + " moves e2e4 c7c5 ;D1 31",
+                INITIAL + " moves e2e5 ;D1 20");
+
+        PerftValidator.Report report = PerftValidator.validate(PerftValidator.parse(suite), ForkJoinPool.commonPool());
+
+        assertFalse(report.passed());
+        assertEquals(3, report.cases());
+        assertEquals(2, report.mismatches().size());
+        assertEquals(30, report.mismatches().get(0).actualNodes());
+        assertNull(report.mismatches().get(0).error());
+        assertEquals(-1, report.mismatches().get(1).actualNodes());
+        assertEquals(3, report.mismatches().get(1).testCase().line());
+    }
+}
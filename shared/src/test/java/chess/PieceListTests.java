@@ -0,0 +1,78 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+public class PieceListTests {
+
+    @Test
+    public void piecesListsFollowMovesAndUndos() {
+        SplittableRandom random = new SplittableRandom(9);
+        for (Perft.Position position : Perft.Position.values()) {
+            ChessGame game = position.createGame();
+            MoveList moves = new MoveList();
+            int played = 0;
+
+            for (int ply = 0; ply < 80; ply++) {
+                moves.clear();
+                game.generateLegalMoves(moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                game.makeUncheckedMove(moves.get(random.nextInt(moves.size())));
+                played++;
+                assertMatchesBoard(game.getBoard());
+            }
+            while (played-- > 0) {
+                game.unmakeMove();
+                assertMatchesBoard(game.getBoard());
+            }
+            assertMatchesBoard(ChessBoard.deepCopy(game.getBoard()));
+        }
+    }
+
+    @Test
+    public void kingSquareTracksTheKing() {
+        ChessBoard board = new ChessBoard();
+        assertEquals(-1, board.getKingSquare(TeamColor.WHITE));
+
+        board.resetBoard();
+        assertEquals(ChessPosition.of(1, 5), board.getKingPosition(TeamColor.WHITE));
+        assertEquals(ChessPosition.of(8, 5), board.getKingPosition(TeamColor.BLACK));
+
+        board.movePiece(new ChessMove(ChessPosition.of(8, 5), ChessPosition.of(6, 5), null));
+        assertEquals(Bitboards.square(6, 5), board.getKingSquare(TeamColor.BLACK));
+
+        board.addPiece(ChessPosition.of(6, 5), null);
+        assertEquals(-1, board.getKingSquare(TeamColor.BLACK));
+    }
+
+    private static void assertMatchesBoard(ChessBoard board) {
+        for (TeamColor color : TeamColor.values()) {
+            Set<Integer> listed = new HashSet<>();
+            for (int i = 0; i < board.getPieceCount(color); i++) {
+                listed.add(board.getPieceSquare(color, i));
+            }
+
+            Set<Integer> expected = new HashSet<>();
+            long pieces = board.getOccupancy(color);
+            while (pieces != 0) {
+                expected.add(Bitboards.lowestSquare(pieces));
+                pieces &= pieces - 1;
+            }
+
+            assertEquals(expected, listed);
+            assertEquals(expected.size(), board.getPieceCount(color));
+            long kings = board.getBitboard(color, PieceType.KING);
+            assertEquals(kings == 0 ? -1 : Bitboards.lowestSquare(kings), board.getKingSquare(color));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessPiece.PieceType;
+
+public class SanTests {
+
+    @Test
+    public void readsPawnAndPieceMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals("e2e4", Move.toString(San.parse(game, "e4")));
+        assertEquals("g1f3", Move.toString(San.parse(game, "Nf3")));
+        assertEquals("b1c3", Move.toString(San.parse(game, "Nc3+")));
+    }
+
+    @Test
+    public void readsCastlingPromotionAndDisambiguation() throws InvalidMoveException {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        assertTrue(Move.isCastling(San.parse(game, "O-O")));
+        assertEquals(2, Move.to(San.parse(game, "O-O-O")) & 7);
+        assertTrue(Move.isCapture(San.parse(game, "Bxa6")));
+
+        ChessGame promotions = Perft.Position.POSITION_4.createGame();
+        promotions.setTeamTurn(ChessGame.TeamColor.BLACK);
+        int move = San.parse(promotions, "bxa1=N");
+        assertEquals(PieceType.KNIGHT, Move.promotion(move));
+        assertEquals(PieceType.QUEEN, Move.promotion(San.parse(promotions, "bxa1Q")));
+        // A rank or file that was not needed is still accepted
+        assertEquals("f6d5", Move.toString(San.parse(promotions, "N6d5")));
+    }
+
+    @Test
+    public void writesMovesTheWayTheyAreRead() throws InvalidMoveException {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            String san = San.format(game, moves.get(i));
+            assertTrue(Move.sameMove(moves.get(i), San.parse(game, san)), san);
+        }
+        assertEquals(Perft.Position.KIWIPETE.getFen(), game.toFen());
+
+        assertEquals("O-O-O", San.format(game, San.parse(game, "O-O-O")));
+        assertEquals("Bxa6", San.format(game, San.parse(game, "Bxa6")));
+        assertEquals("Nxf7", San.format(game, San.parse(game, "Nxf7")));
+        assertEquals("dxe6", San.format(game, San.parse(game, "dxe6")));
+
+        ChessGame promotions = Perft.Position.POSITION_4.createGame();
+        promotions.setTeamTurn(ChessGame.TeamColor.BLACK);
+        // White is already in check from the bishop on b6, so every black move gives check
+        assertEquals("bxa1=N+", San.format(promotions, San.parse(promotions, "bxa1N")));
+
+        // Two rooks on the same rank, then on the same file
+        ChessGame rooks = ChessGame.fromFen("k7/8/8/8/8/8/R6R/4K3 w - - 0 1");
+        assertEquals("Rad2", San.format(rooks, San.parse(rooks, "Rad2")));
+        ChessGame files = ChessGame.fromFen("7k/R7/8/8/8/8/R7/4K3 w - - 0 1");
+        assertEquals("R7a5", San.format(files, San.parse(files, "R7a5")));
+
+        ChessGame mate = new ChessGame();
+        for (String san : new String[] {"f3", "e5", "g4"}) {
+            mate.makeUncheckedMove(San.parse(mate, san));
+        }
+        assertEquals("Qh4#", San.format(mate, San.parse(mate, "Qh4")));
+        assertThrows(InvalidMoveException.class, () -> San.format(mate, Move.of(
+            new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(1, 4), null))));
+    }
+
+    @Test
+    public void rejectsIllegalAndAmbiguousMoves() {
+        ChessGame game = new ChessGame();
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "e5"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "O-O"));
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "Zz9"));
+    }
+
+    @Test
+    public void ambiguousMovesNeedDisambiguation() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String san : new String[]{"d4", "d5", "Nf3", "Nf6"}) {
+            game.makeUncheckedMove(San.parse(game, san));
+        }
+        // Both white knights can reach d2
+        assertThrows(InvalidMoveException.class, () -> San.parse(game, "Nd2"));
+        assertEquals("b1d2", Move.toString(San.parse(game, "Nbd2")));
+        assertEquals("f3d2", Move.toString(San.parse(game, "N3d2")));
+    }
+}
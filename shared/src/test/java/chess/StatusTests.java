@@ -0,0 +1,61 @@
+package chess;
+
+import static chess.GameTestUtilities.move;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+public class StatusTests {
+
+    @Test
+    public void statusFollowsTheGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(GameStatus.ONGOING, game.getStatus());
+
+        // Fool's mate
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+        assertFalse(game.getGameOver());
+        game.makeMove(move(8, 4, 4, 8));
+
+        assertEquals(GameStatus.CHECKMATE, game.getStatus());
+        assertTrue(game.getGameOver());
+        assertTrue(game.isInCheckmate(TeamColor.WHITE));
+        assertFalse(game.isInStalemate(TeamColor.WHITE));
+    }
+
+    @Test
+    public void statusNoticesBoardChanges() {
+        ChessGame game = new ChessGame();
+        assertEquals(GameStatus.ONGOING, game.getStatus());
+
+        // Editing the board directly changes the position key, so the cached status is dropped
+        game.getBoard().addPiece(ChessPosition.of(2, 6), null);
+        game.getBoard().addPiece(ChessPosition.of(3, 8), ChessPiece.of(TeamColor.BLACK, PieceType.BISHOP));
+        assertEquals(GameStatus.ONGOING, game.getStatus());
+        game.getBoard().addPiece(ChessPosition.of(3, 8), null);
+        game.getBoard().addPiece(ChessPosition.of(4, 8), ChessPiece.of(TeamColor.BLACK, PieceType.QUEEN));
+        assertEquals(GameStatus.CHECK, game.getStatus());
+    }
+
+    @Test
+    public void stalemateEndsTheGame() throws InvalidMoveException {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(8, 8), ChessPiece.of(TeamColor.BLACK, PieceType.KING));
+        board.addPiece(ChessPosition.of(1, 1), ChessPiece.of(TeamColor.WHITE, PieceType.KING));
+        board.addPiece(ChessPosition.of(5, 7), ChessPiece.of(TeamColor.WHITE, PieceType.QUEEN));
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.makeMove(move(5, 7, 6, 7));
+
+        assertEquals(GameStatus.STALEMATE, game.getStatus());
+        assertTrue(game.getGameOver());
+    }
+}
@@ -0,0 +1,61 @@
+package chess;
+
+import static chess.GameTestUtilities.move;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+public class ZobristTests {
+
+    @Test
+    public void incrementalKeyMatchesRebuiltKey() throws InvalidMoveException {
+        Random random = new Random(240);
+        Gson gson = new Gson();
+        ChessGame game = new ChessGame();
+
+        for (int ply = 0; ply < 120 && !game.getGameOver(); ply++) {
+            List<ChessMove> moves = new ArrayList<>(game.legalMoves(game.getTeamTurn()));
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+
+            // A deserialized game builds its key from scratch
+            ChessGame rebuilt = gson.fromJson(gson.toJson(game), ChessGame.class);
+            assertEquals(rebuilt.positionKey(), game.positionKey());
+        }
+    }
+
+    @Test
+    public void transpositionsShareAKey() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move(1, 7, 3, 6));
+        first.makeMove(move(8, 7, 6, 6));
+        first.makeMove(move(1, 2, 3, 3));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(move(1, 2, 3, 3));
+        second.makeMove(move(8, 7, 6, 6));
+        second.makeMove(move(1, 7, 3, 6));
+
+        assertEquals(first.positionKey(), second.positionKey());
+        assertNotEquals(new ChessGame().positionKey(), first.positionKey());
+    }
+
+    @Test
+    public void unmakeRestoresKey() {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        long key = game.positionKey();
+
+        for (ChessMove move : game.legalMoves(game.getTeamTurn())) {
+            MoveUndo undo = game.makeUncheckedMove(move);
+            assertNotEquals(key, game.positionKey());
+            game.unmakeMove(undo);
+            assertEquals(key, game.positionKey());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package chess.book;
+
+import static chess.GameTestUtilities.move;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+public class OpeningBookTests {
+
+    private static final String PGN = """
+            [Event "One"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the king's knight} Nc6 (2... d6 3. d4) 3. Bb5 a6 1-0
+
+            [Event "Two"]
+            [Result "0-1"]
+
+            1.e4 c5 2.Nf3 d6 $1 0-1
+
+            [Event "Three"]
+            [Result "1/2-1/2"]
+
+            1. d4 d5 2. c4 ; the queen's gambit
+            e6 1/2-1/2
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void looksUpMovesFromAPgnCorpus() throws IOException {
+        OpeningBook book = build(new OpeningBookBuilder(), PGN);
+
+        List<BookMove> moves = book.lookup(new ChessGame());
+        assertEquals(2, moves.size());
+        assertEquals(move(2, 5, 4, 5), moves.get(0).move());
+        assertEquals(2, moves.get(0).games());
+        assertEquals(2, moves.get(0).weight());
+        assertEquals(move(2, 4, 4, 4), moves.get(1).move());
+        assertEquals(1, moves.get(1).weight());
+
+        // Black's replies after 1. e4: the variation in game one is not part of the main line
+        ChessGame game = new ChessGame();
+        game.makeUncheckedMove(chess.Move.of(move(2, 5, 4, 5)));
+        List<BookMove> replies = book.lookup(game);
+        assertEquals(2, replies.size());
+        assertEquals(move(7, 3, 5, 3), replies.get(0).move());
+        assertEquals(2, replies.get(0).weight());
+        assertEquals(0, replies.get(1).weight());
+    }
+
+    @Test
+    public void stopsAtTheMaximumPly() throws IOException {
+        OpeningBook book = build(new OpeningBookBuilder(2, 1), PGN);
+        // Two plies from each of three games, where both games with 1. e4 share the first position
+        assertEquals(5, book.size());
+    }
+
+    @Test
+    public void leavesOutRareMoves() throws IOException {
+        // Only 1. e4 was played twice; every later move was played once
+        OpeningBook book = build(new OpeningBookBuilder(24, 2), PGN);
+        assertEquals(1, book.size());
+        assertEquals(1, book.lookup(new ChessGame()).size());
+    }
+
+    @Test
+    public void picksOnlyWeightedMoves() throws IOException, InvalidMoveException {
+        OpeningBook book = build(new OpeningBookBuilder(), PGN);
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            ChessMove move = book.pickMove(new ChessGame(), random);
+            assertNotNull(move);
+            assertTrue(new ChessGame().isValidMove(move, ChessGame.TeamColor.WHITE));
+        }
+
+        ChessGame unknown = new ChessGame();
+        unknown.makeMove(move(2, 1, 3, 1));
+        assertEquals(null, book.pickMove(unknown, random));
+        assertTrue(book.lookup(unknown).isEmpty());
+    }
+
+    @Test
+    public void binarySearchFindsEveryPosition() throws IOException {
+        // Many distinct short games make a book large enough for a real search
+        StringBuilder pgn = new StringBuilder();
+        String[] first = {"a3", "a4", "b3", "b4", "c3", "c4", "d3", "d4", "e3", "e4", "f3", "f4", "g3", "g4",
+            "h3", "h4", "Na3", "Nc3", "Nf3", "Nh3"};
+        for (String white : first) {
+            for (String black : new String[]{"a6", "b6", "c6", "d6", "e6", "f6", "g6", "h6", "Na6", "Nf6"}) {
+                pgn.append("1. ").append(white).append(' ').append(black).append(" 2. Kf2 *\n");
+            }
+        }
+        OpeningBook book = build(new OpeningBookBuilder(), pgn.toString());
+        assertEquals(20 + 20 + 200, book.size());
+        assertEquals(20, book.lookup(new ChessGame()).size());
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotBooks() throws IOException {
+        Path path = this.directory.resolve("junk.bin");
+        Files.writeString(path, "not an opening book at all");
+        assertThrows(IOException.class, () -> OpeningBook.open(path));
+    }
+
+    private OpeningBook build(OpeningBookBuilder builder, String pgn) throws IOException {
+        builder.addPgn(Channels.newChannel(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))));
+        Path path = this.directory.resolve("book.bin");
+        builder.write(path);
+        return OpeningBook.open(path);
+    }
+}
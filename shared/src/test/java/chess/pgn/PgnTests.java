@@ -0,0 +1,184 @@
+package chess.pgn;
+
+import static chess.GameTestUtilities.move;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+public class PgnTests {
+
+    private static final String ARCHIVE = """
+            \uFEFF[Event "Casual \\"blitz\\""]
+            [White "Müller"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the king's knight} Nc6 (2... d6 3. d4 (3. Bc4)) 3. Bb5 $1 a6 1-0
+
+            % an escaped line for some other program
+            [Event "No result token"]
+            [Result "0-1"]
+
+            1.d4 d5 2.c4 ; the queen's gambit
+            dxc4
+
+            [Event "Set up"]
+            [SetUp "1"]
+            [FEN "4k3/8/8/8/8/8/8/4K2R w K - 0 40"]
+
+            40. O-O Kd7 41. Rd1+ *
+
+            [Event "Broken"]
+
+            1. e4 e5 2. Ke3 Nc6 *
+
+            1. f3 e5 2. g4 Qh4# 0-1
+            """;
+
+    @Test
+    public void readsTagsMovesAndResults() {
+        List<GameRecord> games = read(ARCHIVE, 64 * 1024);
+        assertEquals(5, games.size());
+
+        GameRecord first = games.get(0);
+        assertEquals("Casual \"blitz\"", first.tag("Event"));
+        assertEquals("Müller", first.tag("White"));
+        assertEquals("1-0", first.result());
+        assertEquals(6, first.moves().size());
+        assertEquals(move(8, 2, 6, 3), first.moves().get(3));
+        assertTrue(first.isComplete());
+
+        GameRecord second = games.get(1);
+        assertEquals("0-1", second.result());
+        assertEquals(4, second.moves().size());
+
+        // Moves are played from the FEN tag, with the move number it gives
+        GameRecord third = games.get(2);
+        assertEquals(3, third.moves().size());
+        assertEquals(move(1, 5, 1, 7), third.moves().get(0));
+        assertEquals(GameRecord.UNKNOWN_RESULT, third.result());
+
+        GameRecord fourth = games.get(3);
+        assertFalse(fourth.isComplete());
+        assertEquals(2, fourth.moves().size());
+        assertTrue(fourth.error().startsWith("Move 3"));
+
+        GameRecord fifth = games.get(4);
+        assertTrue(fifth.tags().isEmpty());
+        assertEquals("0-1", fifth.result());
+    }
+
+    @Test
+    public void readsTheSameGamesThroughATinyBuffer() {
+        assertEquals(read(ARCHIVE, 64 * 1024), read(ARCHIVE, 3));
+    }
+
+    @Test
+    public void writesGamesThatReadBackTheSame() throws IOException, InvalidMoveException {
+        StringBuilder pgn = new StringBuilder();
+        PgnWriter writer = new PgnWriter(pgn);
+        List<GameRecord> games = read(ARCHIVE, 64 * 1024).stream().filter(GameRecord::isComplete).toList();
+        for (GameRecord game : games) {
+            writer.write(game);
+        }
+
+        assertTrue(pgn.toString().startsWith("[Event \"Casual \\\"blitz\\\"\"]\n"));
+        assertTrue(pgn.toString().contains("\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1-0\n\n"));
+        assertTrue(pgn.toString().contains("40. O-O Kd7 41. Rd1+ *"));
+        assertTrue(pgn.toString().contains("1. f3 e5 2. g4 Qh4# 0-1"));
+        assertEquals(games, read(pgn.toString(), 64 * 1024));
+    }
+
+    @Test
+    public void writesAPlayedGameFromItsHistory() throws IOException, InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 b Q - 3 12");
+        game.makeMove(move(8, 5, 8, 4));
+        game.makeMove(move(1, 5, 1, 3));
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "one");
+        StringBuilder pgn = new StringBuilder();
+        new PgnWriter(pgn).write(tags, game);
+
+        assertEquals("""
+                [White "one"]
+                [Result "*"]
+                [SetUp "1"]
+                [FEN "4k3/8/8/8/8/8/8/R3K3 b Q - 3 12"]
+
+                12... Kd8 13. O-O-O+ *
+
+                """, pgn.toString());
+
+        GameRecord record = read(pgn.toString(), 64 * 1024).get(0);
+        assertEquals(game.toFen(), record.toGame().toFen());
+        assertEquals(game.getMoveHistory(), record.toGame().getMoveHistory());
+    }
+
+    @Test
+    public void writesTheResultOfAResignedGame() throws IOException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Result", GameRecord.UNKNOWN_RESULT);
+        assertEquals(GameRecord.UNKNOWN_RESULT, GameRecord.of(tags, game).result());
+
+        game.resign(ChessGame.TeamColor.WHITE);
+        assertEquals("0-1", GameRecord.of(tags, game).result());
+        assertEquals(ChessGame.TeamColor.WHITE, game.copy().getResignedTeam());
+
+        StringBuilder pgn = new StringBuilder();
+        new PgnWriter(pgn).write(tags, game);
+        assertTrue(pgn.toString().contains("[Result \"0-1\"]\n\n1. e4 0-1\n"));
+    }
+
+    @Test
+    public void wrapsLongGames() throws IOException, InvalidMoveException {
+        StringBuilder moves = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            moves.append("Nf3 Nf6 Ng1 Ng8 ");
+        }
+        StringBuilder pgn = new StringBuilder();
+        new PgnWriter(pgn).write(read(moves + "*", 64).get(0));
+
+        for (String line : pgn.toString().split("\n")) {
+            assertTrue(line.length() <= 80, line);
+        }
+        assertEquals(80, read(pgn.toString(), 64).get(0).moves().size());
+    }
+
+    @Test
+    public void streamsAndClosesTheChannel() throws IOException {
+        ReadableByteChannel channel = channel(ARCHIVE);
+        try (Stream<GameRecord> games = new PgnReader(channel).stream()) {
+            assertEquals(3, games.filter(game -> game.result().equals("1-0") || game.tag("FEN") != null
+                || game.tag("Event") == null).count());
+        }
+        assertFalse(channel.isOpen());
+        assertNull(new PgnReader(channel("  \n")).stream().findFirst().orElse(null));
+    }
+
+    private static List<GameRecord> read(String pgn, int bufferSize) {
+        return new PgnReader(channel(pgn), bufferSize).stream().toList();
+    }
+
+    private static ReadableByteChannel channel(String text) {
+        return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,110 @@
+package chess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.ChessPosition;
+import chess.MoveList;
+import chess.Perft;
+
+public class IncrementalEvaluatorTests {
+
+    @ParameterizedTest
+    @EnumSource(Perft.Position.class)
+    public void runningTotalsMatchAFreshEvaluation(Perft.Position position) {
+        ChessGame game = position.createGame();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        evaluator.attach(game);
+        int start = evaluator.evaluate(game);
+
+        Random random = new Random(position.ordinal());
+        MoveList moves = new MoveList();
+        int played = 0;
+        for (int ply = 0; ply < 60; ply++) {
+            moves.clear();
+            game.generateLegalMoves(moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeUncheckedMove(moves.get(random.nextInt(moves.size())));
+            played++;
+            assertEquals(new IncrementalEvaluator().evaluate(game.copy()), evaluator.evaluate(game));
+        }
+
+        for (int i = 0; i < played; i++) {
+            game.unmakeMove();
+        }
+        assertEquals(start, evaluator.evaluate(game));
+    }
+
+    @Test
+    public void initialPositionIsEven() {
+        ChessGame game = new ChessGame();
+        assertEquals(0, new IncrementalEvaluator().evaluate(game));
+    }
+
+    @Test
+    public void mirroredPositionScoresTheSameForTheOtherSide() {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        ChessBoard mirrored = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null) {
+                    TeamColor other = piece.getTeamColor() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+                    mirrored.addPiece(ChessPosition.of(9 - row, col), ChessPiece.of(other, piece.getPieceType()));
+                }
+            }
+        }
+        ChessGame mirror = new ChessGame();
+        mirror.setBoard(mirrored);
+        mirror.setTeamTurn(TeamColor.BLACK);
+
+        assertEquals(new IncrementalEvaluator().evaluate(game), new IncrementalEvaluator().evaluate(mirror));
+    }
+
+    @Test
+    public void passedPawnIsWorthMoreInTheEndgame() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(1, 1), ChessPiece.of(TeamColor.WHITE, PieceType.KING));
+        board.addPiece(ChessPosition.of(8, 8), ChessPiece.of(TeamColor.BLACK, PieceType.KING));
+        board.addPiece(ChessPosition.of(6, 4), ChessPiece.of(TeamColor.WHITE, PieceType.PAWN));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(TeamColor.WHITE);
+
+        int score = new IncrementalEvaluator().evaluate(game);
+        assertTrue(score > EvaluationWeights.DEFAULT.endgameValues()[PieceType.PAWN.ordinal()], "score " + score);
+    }
+
+    @Test
+    public void pawnStructureIsCached() {
+        ChessGame game = new ChessGame();
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        evaluator.attach(game);
+
+        int first = evaluator.evaluate(game);
+        long misses = evaluator.getPawnTable().getMisses();
+        assertEquals(first, evaluator.evaluate(game));
+        assertEquals(misses, evaluator.getPawnTable().getMisses());
+        assertTrue(evaluator.getPawnTable().getHits() > 0);
+    }
+
+    @Test
+    public void searchUsesAPluggedInEvaluator() {
+        SearchResult result = new Search(new IncrementalEvaluator()).search(new ChessGame(), SearchLimits.ofDepth(3));
+        assertTrue(result.bestMove() != null);
+        assertTrue(Math.abs(result.score()) < 200, "score " + result.score());
+    }
+}
@@ -0,0 +1,89 @@
+package chess.search;
+
+import static chess.GameTestUtilities.loadGame;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.Perft;
+
+public class ParallelSearchTests {
+
+    @Test
+    public void workersAgreeOnMate() {
+        ChessGame game = loadGame("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                |R| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |K|R| | | | | | |
+                """, TeamColor.WHITE);
+
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3);
+        try {
+            SearchResult result = search.search(game, SearchLimits.ofDepth(6), 4);
+            assertEquals(Search.MATE - 3, result.score());
+        }
+        finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void stopFlagEndsEveryWorker() throws Exception {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 2);
+        AtomicBoolean stop = new AtomicBoolean();
+
+        try {
+            CompletableFuture<SearchResult> running = CompletableFuture.supplyAsync(
+                    () -> search.search(game, SearchLimits.ofTime(60_000), 3, stop));
+            Thread.sleep(200);
+            long start = System.nanoTime();
+            stop.set(true);
+
+            SearchResult result = running.get();
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 1000);
+            assertNotNull(result.bestMove());
+            assertTrue(result.nodes() > 0);
+        }
+        finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsAHelperThatFailed() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), () -> {
+            if (Thread.currentThread().getName().startsWith("search-helper")) {
+                throw new IllegalStateException("broken evaluator");
+            }
+            return new IncrementalEvaluator();
+        }, 2);
+
+        try {
+            // The one-thread search never touches the helpers
+            assertNotNull(search.search(Perft.Position.KIWIPETE.createGame(), SearchLimits.ofDepth(2), 1).bestMove());
+
+            IllegalStateException failure = assertThrows(IllegalStateException.class,
+                    () -> search.search(Perft.Position.KIWIPETE.createGame(), SearchLimits.ofDepth(2), 8));
+            assertEquals("broken evaluator", failure.getCause().getMessage());
+            // Asking for more threads than there are helpers only uses the helpers there are
+            assertEquals(1, failure.getSuppressed().length);
+        }
+        finally {
+            search.shutdown();
+        }
+    }
+}
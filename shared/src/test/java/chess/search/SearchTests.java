@@ -0,0 +1,155 @@
+package chess.search;
+
+import static chess.GameTestUtilities.loadGame;
+import static chess.GameTestUtilities.move;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.InvalidMoveException;
+import chess.Perft;
+
+public class SearchTests {
+
+    @Test
+    public void findsMateInOne() {
+        // Back rank mate: Ra1-a8
+        ChessGame game = loadGame("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | | | |K| |
+                """, TeamColor.WHITE);
+
+        SearchResult result = new Search().search(game, SearchLimits.ofDepth(3));
+
+        assertEquals(move(1, 1, 8, 1), result.bestMove());
+        assertEquals(Search.MATE - 1, result.score());
+        assertTrue(Search.isMateScore(result.score()));
+    }
+
+    @Test
+    public void findsMateInTwo() {
+        // Two rooks roll the black king up the board: Rb7, then Ra8#
+        ChessGame game = loadGame("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                |R| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |K|R| | | | | | |
+                """, TeamColor.WHITE);
+
+        SearchResult result = new Search().search(game, SearchLimits.ofDepth(5));
+
+        assertEquals(Search.MATE - 3, result.score());
+        assertEquals(3, result.principalVariation().size());
+    }
+
+    @Test
+    public void winsHangingQueen() {
+        ChessGame game = loadGame("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | |n| | | | | |
+                | | | | | | | | |
+                | | | |Q| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """, TeamColor.BLACK);
+
+        SearchResult result = new Search().search(game, SearchLimits.ofDepth(2));
+
+        assertEquals(move(6, 3, 4, 4), result.bestMove());
+    }
+
+    @Test
+    public void reportsNoMoveWhenMated() {
+        ChessGame game = loadGame("""
+                |R| | | | | |k| |
+                | | | | | | |p|p|
+                | | | | | | |K| |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, TeamColor.BLACK);
+
+        SearchResult result = new Search().search(game, SearchLimits.ofDepth(3));
+
+        assertNull(result.bestMove());
+        assertEquals(-Search.MATE, result.score());
+    }
+
+    @Test
+    public void countsRepetitionsOfEarlierGamePositions() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/8/K2Q4 w - - 0 1");
+        game.makeMove(move(1, 4, 2, 4));
+        game.makeMove(move(8, 8, 8, 7));
+        game.makeMove(move(2, 4, 1, 4));
+        game.makeMove(move(8, 7, 8, 8));
+        game.makeMove(move(1, 4, 2, 4));
+
+        // A queen down, black's best is going back to g8, where it already stood with white to move
+        SearchResult result = new Search().search(game, SearchLimits.ofDepth(3));
+        assertEquals(move(8, 8, 8, 7), result.bestMove());
+        assertEquals(0, result.score());
+
+        // The same position without the history is just lost
+        ChessGame noHistory = ChessGame.fromFen(game.toFen());
+        assertTrue(new Search().search(noHistory, SearchLimits.ofDepth(3)).score() < -500);
+    }
+
+    @Test
+    public void stopsFromAnotherThread() throws Exception {
+        Search search = new Search();
+        CompletableFuture<SearchResult> running = CompletableFuture.supplyAsync(
+                () -> search.search(Perft.Position.KIWIPETE.createGame(), SearchLimits.ofTime(60_000)));
+
+        // A stop made before the search starts does not count, so keep asking until it ends
+        long start = System.nanoTime();
+        while (!running.isDone() && System.nanoTime() - start < 5_000_000_000L) {
+            Thread.sleep(50);
+            search.stop();
+        }
+
+        SearchResult result = running.get(1, TimeUnit.SECONDS);
+        assertNotNull(result.bestMove());
+        assertTrue(result.nodes() > 0);
+    }
+
+    @Test
+    public void respectsLimits() {
+        ChessGame game = Perft.Position.KIWIPETE.createGame();
+        Search search = new Search();
+
+        SearchResult byNodes = search.search(game, SearchLimits.ofNodes(20_000));
+        assertTrue(byNodes.nodes() <= 20_000);
+        assertTrue(byNodes.bestMove() != null);
+
+        long start = System.nanoTime();
+        SearchResult byTime = search.search(game, SearchLimits.ofTime(100));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 300, "search ran " + elapsedMillis + "ms");
+        assertTrue(byTime.depth() > 0);
+
+        // The caller's game is left alone
+        assertEquals(Perft.Position.KIWIPETE.createGame(), game);
+    }
+}
@@ -0,0 +1,82 @@
+package chess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import chess.Move;
+import chess.Perft;
+import chess.search.TranspositionTable.Memory;
+import chess.search.TranspositionTable.Replacement;
+
+public class TranspositionTableTests {
+
+    // Keys that differ only above the bucket bits of a 1 MB table land in the same bucket
+    private static final long SAME_BUCKET = 1L << 40;
+
+    @ParameterizedTest
+    @EnumSource(Memory.class)
+    public void storedEntriesReadBack(Memory memory) {
+        TranspositionTable table = new TranspositionTable(1, memory, Replacement.ALWAYS);
+        int move = Move.of(12, 28, Move.FLAG_DOUBLE_PUSH);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -Search.MATE + 7, 9, TranspositionTable.BOUND_UPPER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertEquals(Move.of(12, 28, 0), TranspositionTable.move(entry));
+        assertEquals(-Search.MATE + 7, TranspositionTable.score(entry));
+        assertEquals(9, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.BOUND_UPPER, TranspositionTable.bound(entry));
+
+        table.clear();
+        assertEquals(0, table.probe(0x1234_5678_9ABC_DEF0L));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Memory.class)
+    public void bucketHoldsCollidingKeys(Memory memory) {
+        TranspositionTable table = new TranspositionTable(1, memory, Replacement.ALWAYS);
+        for (int i = 1; i <= 4; i++) {
+            table.store(42 + i * SAME_BUCKET, Move.NONE, i, i, TranspositionTable.BOUND_EXACT);
+        }
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, TranspositionTable.score(table.probe(42 + i * SAME_BUCKET)));
+        }
+        assertEquals(0, table.probe(42));
+
+        // A fifth key pushes out the shallowest entry
+        table.store(42 + 5 * SAME_BUCKET, Move.NONE, 5, 5, TranspositionTable.BOUND_EXACT);
+        assertEquals(0, table.probe(42 + SAME_BUCKET));
+        assertNotEquals(0, table.probe(42 + 5 * SAME_BUCKET));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Replacement.class)
+    public void deeperEntriesSurviveOnlyWhenPreferred(Replacement replacement) {
+        TranspositionTable table = new TranspositionTable(1, Memory.HEAP, replacement);
+        for (int i = 1; i <= 4; i++) {
+            table.store(7 + i * SAME_BUCKET, Move.NONE, 0, 10, TranspositionTable.BOUND_LOWER);
+        }
+        table.store(7, Move.NONE, 0, 2, TranspositionTable.BOUND_LOWER);
+
+        boolean stored = table.probe(7) != 0;
+        assertEquals(replacement == Replacement.ALWAYS, stored);
+
+        // After a new search starts the old entries give way
+        table.newSearch();
+        table.store(7, Move.NONE, 0, 2, TranspositionTable.BOUND_LOWER);
+        assertNotEquals(0, table.probe(7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Memory.class)
+    public void searchesThroughEitherMemory(Memory memory) {
+        TranspositionTable table = new TranspositionTable(2, memory, Replacement.DEPTH_PREFERRED);
+        SearchResult result = new Search(new MaterialEvaluator(), table)
+                .search(Perft.Position.KIWIPETE.createGame(), SearchLimits.ofDepth(4));
+
+        assertEquals(4, result.depth());
+        assertNotEquals(0, table.hashfull());
+    }
+}
@@ -0,0 +1,114 @@
+package chess.tablebase;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameStatus;
+import chess.InvalidMoveException;
+import chess.tablebase.TablebaseResult.Outcome;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        Tablebase table = generator.generate("KQK");
+        // The longest KQK mate is ten moves, so the longest loss is twenty half moves
+        assertEquals(20, table.maxPlies());
+        tablebases = generator.getTablebases();
+    }
+
+    @Test
+    public void knowsMatesAndStalemates() {
+        // White Kg6 and Qa7 against Kh8: Qg7 and Qa8 both mate
+        assertEquals(new TablebaseResult(Outcome.WIN, 1),
+                tablebases.probe(ChessGame.fromFen("7k/Q7/6K1/8/8/8/8/8 w - - 0 1")));
+
+        assertEquals(new TablebaseResult(Outcome.LOSS, 0),
+                tablebases.probe(ChessGame.fromFen("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1")));
+
+        assertEquals(new TablebaseResult(Outcome.DRAW, 0),
+                tablebases.probe(ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")));
+
+        // Black to move can take the undefended queen
+        assertEquals(new TablebaseResult(Outcome.DRAW, 0),
+                tablebases.probe(ChessGame.fromFen("7k/6Q1/8/8/8/8/8/K7 b - - 0 1")));
+    }
+
+    @Test
+    public void probesWithTheColorsSwapped() {
+        TablebaseResult white = tablebases.probe(ChessGame.fromFen("4k3/8/8/8/3Q4/8/8/4K3 w - - 0 1"));
+        TablebaseResult black = tablebases.probe(ChessGame.fromFen("4k3/8/8/3q4/8/8/8/4K3 b - - 0 1"));
+
+        assertEquals(Outcome.WIN, white.outcome());
+        assertEquals(white, black);
+    }
+
+    @Test
+    public void bestMovesMateWithinTheDistance() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/8/KQ6 w - - 0 1");
+        TablebaseResult start = tablebases.probe(game);
+        assertEquals(Outcome.WIN, start.outcome());
+
+        int plies = 0;
+        while (game.getStatus() != GameStatus.CHECKMATE) {
+            ChessMove move = tablebases.bestMove(game);
+            game.makeMove(move);
+            plies++;
+            assertTrue(plies < 2 * start.movesToMate(), "took " + plies + " half moves");
+        }
+        assertEquals(2 * start.movesToMate() - 1, plies);
+    }
+
+    @Test
+    public void missingTablesAreNotGuessed() {
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/8/KR6 w - - 0 1");
+        assertNull(tablebases.probe(game));
+        assertNull(tablebases.bestMove(game));
+
+        // Bare kings need no table
+        assertEquals(new TablebaseResult(Outcome.DRAW, 0),
+                tablebases.probe(ChessGame.fromFen("8/8/8/4k3/8/8/8/K7 w - - 0 1")));
+    }
+
+    @Test
+    public void namesPieceSets() {
+        assertEquals("KQKR", Material.of("KQKR").name());
+        assertEquals("KRBK", Material.of("KBRK").name());
+        assertTrue(Material.of("KQKR").isCanonical());
+        assertFalse(Material.of("KRKQ").isCanonical());
+        assertEquals("KQKR", Material.of("KRKQ").canonical().name());
+        assertEquals(2L << 24, Material.of("KQKR").positions());
+        assertEquals(List.of(Material.of("KK"), Material.of("KQK"), Material.of("KRK"), Material.of("KBK"),
+                Material.of("KNK")), Material.of("KPK").successors());
+        assertThrows(IllegalArgumentException.class, () -> Material.of("QK"));
+        assertThrows(IllegalArgumentException.class, () -> Material.of("KXK"));
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotTables() throws IOException {
+        Path path = directory.resolve("junk.ctb");
+        Files.writeString(path, "not a tablebase");
+        assertThrows(IOException.class, () -> Tablebase.open(path));
+        assertThrows(IllegalArgumentException.class, () -> new TablebaseGenerator(directory).generate("KQRBNK"));
+    }
+}